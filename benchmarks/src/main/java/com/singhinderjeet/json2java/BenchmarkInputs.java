@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Inputs shared by the benchmarks: the JSON documents used by the unit tests, and synthetic
+ * documents scaled by size, nesting depth and field count.
+ *
+ * @author Inderjeet Singh
+ */
+public class BenchmarkInputs {
+
+  @State(Scope.Benchmark)
+  public static class ResourceInput {
+    @Param({"reversegeocoding.json", "tms-lineups.json"})
+    public String resource;
+
+    String json;
+    CustomMappings mappings;
+
+    @Setup
+    public void setUp() throws IOException {
+      json = readResource("/" + resource);
+      if (resource.startsWith("reversegeocoding")) {
+        mappings = new CustomMappings()
+            .mapType("Northeast", "Location")
+            .mapType("Southwest", "Location")
+            .mapType("AddressComponents", "AddressComponent");
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class SyntheticInput {
+    /** Number of objects in the items array */
+    @Param({"100", "10000"})
+    public int documentSize;
+
+    @Param({"1", "8"})
+    public int depth;
+
+    @Param({"10", "100"})
+    public int fieldCount;
+
+    String json;
+    /** The document written to a temporary file, for the memory-mapped input mode */
+    File file;
+
+    @Setup
+    public void setUp() throws IOException {
+      json = new SyntheticCorpus(42).width(fieldCount).keyCardinality(fieldCount).depth(depth)
+          .nestedKeys(1).itemsDocument(documentSize);
+      file = File.createTempFile("json2java-benchmark", ".json");
+      Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() {
+      file.delete();
+    }
+  }
+
+  /**
+   * Returns a corpus of documents with classCount object and array fields, K4, K5, K10, K11 and so
+   * on, each inferring its own class with the fieldCount fields k0, k1, and so on.
+   */
+  static SyntheticCorpus wideCorpus(long seed, int classCount, int fieldCount) {
+    return new SyntheticCorpus(seed).width(3 * classCount).nestedWidth(fieldCount)
+        .keyCardinality(fieldCount).depth(2).arrayLength(1);
+  }
+
+  static String readResource(String name) throws IOException {
+    try (InputStream in = BenchmarkInputs.class.getResourceAsStream(name)) {
+      if (in == null) throw new IOException("Missing resource " + name);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int count; (count = in.read(buffer)) != -1;) {
+        bytes.write(buffer, 0, count);
+      }
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
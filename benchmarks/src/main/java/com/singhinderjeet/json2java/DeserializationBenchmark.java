@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapterFactory;
+
+/**
+ * Compares deserializing into the generated classes with Gson's reflective adapters against the
+ * generated TypeAdapters. The classes are compiled in memory from a synthetic document.
+ *
+ * @author Inderjeet Singh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeserializationBenchmark {
+
+  @Param({"100", "10000"})
+  public int documentSize;
+
+  @Param({"10", "100"})
+  public int fieldCount;
+
+  private String json;
+  private Class<?> rootClass;
+  private Gson reflective;
+  private Gson generated;
+
+  @Setup
+  public void setUp() throws Exception {
+    String document = new SyntheticCorpus(42).width(fieldCount).keyCardinality(fieldCount)
+        .depth(2).nestedKeys(1).itemsDocument(documentSize);
+    Json2Java converter = new Json2Java();
+    converter.processJson(new StringReader(document), "com.example", "Root", null);
+    ClassDefCollection classes = converter.getClasses();
+    classes.setGenerateTypeAdapters("com.example", "RootTypeAdapterFactory");
+    Map<String, Class<?>> compiled = new InMemoryCompiler().compile(classes, "  ");
+    rootClass = compiled.get("com.example.Root");
+    reflective = new Gson();
+    TypeAdapterFactory factory = (TypeAdapterFactory) compiled
+        .get("com.example.RootTypeAdapterFactory").getDeclaredConstructor().newInstance();
+    generated = new GsonBuilder().registerTypeAdapterFactory(factory).create();
+    // The generated classes use the field names derived from the JSON names
+    json = toFieldNames(JsonParser.parseString(document)).toString();
+  }
+
+  private static JsonElement toFieldNames(JsonElement element) {
+    if (element.isJsonArray()) {
+      for (int i = 0; i < element.getAsJsonArray().size(); ++i) {
+        element.getAsJsonArray().set(i, toFieldNames(element.getAsJsonArray().get(i)));
+      }
+    } else if (element.isJsonObject()) {
+      JsonObject renamed = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        renamed.add(Utils.lowerCaseUnderscoreToCamelCase(entry.getKey(), false),
+            toFieldNames(entry.getValue()));
+      }
+      return renamed;
+    }
+    return element;
+  }
+
+  @Benchmark
+  public Object reflective() throws IOException {
+    return reflective.fromJson(json, rootClass);
+  }
+
+  @Benchmark
+  public Object typeAdapters() throws IOException {
+    return generated.fromJson(json, rootClass);
+  }
+}
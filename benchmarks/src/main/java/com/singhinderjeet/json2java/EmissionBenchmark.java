@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of rendering classes with {@link ClassDefinition#writeClassFile}, of rendering their
+ * TypeAdapters, and of writing all the files with
+ * {@link ClassDefCollection#generateClasses(File, String, int)} or into a single sources jar.
+ *
+ * @author Inderjeet Singh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmissionBenchmark {
+
+  @Param({"100", "5000"})
+  public int classCount;
+
+  @Param({"10", "100"})
+  public int fieldCount;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private ClassDefCollection classes;
+  private List<ClassDefinition> prepared;
+  private File dir;
+  private File jar;
+
+  @Setup
+  public void setUp() throws IOException {
+    Json2Java converter = new Json2Java();
+    String document = BenchmarkInputs.wideCorpus(42, classCount, fieldCount).document(0);
+    converter.processJson(new StringReader(document), "com.example", "Root", null);
+    classes = converter.getClasses();
+    prepared = classes.prepareForWriting();
+    dir = Files.createTempDirectory("json2java-bench").toFile();
+    jar = new File(dir, "generated-sources.jar");
+  }
+
+  @Benchmark
+  public int renderClasses() throws IOException {
+    int length = 0;
+    for (ClassDefinition def : prepared) {
+      StringWriter writer = new StringWriter();
+      def.writeClassFile(writer, "  ", null, null);
+      length += writer.getBuffer().length();
+    }
+    return length;
+  }
+
+  @Benchmark
+  public int renderTypeAdapters() throws IOException {
+    int length = 0;
+    for (ClassDefinition def : prepared) {
+      StringWriter writer = new StringWriter();
+      def.writeTypeAdapterFile(writer, "  ", null);
+      length += writer.getBuffer().length();
+    }
+    return length;
+  }
+
+  @Benchmark
+  public File generateFiles() throws IOException {
+    classes.generateClasses(dir, "  ", threads);
+    return dir;
+  }
+
+  @Benchmark
+  public File generateJar() throws IOException {
+    try (SourceSink sink = SourceSink.zip(jar)) {
+      classes.generateClasses(sink, "  ", threads);
+    }
+    return jar;
+  }
+}
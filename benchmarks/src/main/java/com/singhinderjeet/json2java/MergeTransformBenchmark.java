@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link ClassDefCollection#merge(ClassDefCollection)} and
+ * {@link ClassDefCollection#transform(CustomMappings)} on collections of many classes. Both
+ * modify the classes, so fresh collections are built before every invocation.
+ *
+ * @author Inderjeet Singh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MergeTransformBenchmark {
+  private static final int DOCUMENTS = 8;
+
+  @Param({"100", "5000"})
+  public int classCount;
+
+  @Param({"10", "100"})
+  public int fieldCount;
+
+  private final List<String> documents = new ArrayList<>();
+  private CustomMappings mappings;
+  private List<ClassDefCollection> collections;
+  private ClassDefCollection transformed;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    SyntheticCorpus corpus = BenchmarkInputs.wideCorpus(42, classCount, fieldCount);
+    for (int i = 0; i < DOCUMENTS; ++i) {
+      documents.add(corpus.document(i));
+    }
+    // Renames every other class, renames a field of each class and deletes another
+    mappings = new CustomMappings();
+    for (int i = 0; i < classCount; ++i) {
+      int key = i / 2 * 6 + 4 + i % 2; // k4, k5, k10, k11, ...
+      String className = "K" + key;
+      if (i % 2 == 0) {
+        mappings.mapType(className, "Mapped" + key);
+        className = "Mapped" + key;
+      }
+      mappings.mapFieldName(className, "k0", "renamed0");
+      if (fieldCount > 1) mappings.deleteFieldName(className, "k1");
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() throws IOException {
+    collections = new ArrayList<>();
+    for (String document : documents) {
+      Json2Java converter = new Json2Java();
+      converter.processJson(new StringReader(document), "com.example", "Root", null);
+      collections.add(converter.getClasses());
+    }
+    transformed = collections.get(collections.size() - 1);
+  }
+
+  @Benchmark
+  public ClassDefCollection merge() {
+    ClassDefCollection merged = new ClassDefCollection();
+    for (ClassDefCollection collection : collections) {
+      merged.merge(collection);
+    }
+    return merged;
+  }
+
+  @Benchmark
+  public ClassDefCollection transform() {
+    transformed.transform(mappings);
+    return transformed;
+  }
+}
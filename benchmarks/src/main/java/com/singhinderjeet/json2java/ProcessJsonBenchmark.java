@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+/**
+ * Throughput of {@link Json2Java#processJson(java.io.Reader, String, String, CustomMappings)},
+ * which parses a document and infers its classes, of the memory-mapped input mode, and of
+ * parsing alone for comparison.
+ *
+ * @author Inderjeet Singh
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessJsonBenchmark {
+
+  @Benchmark
+  public ClassDefCollection processResource(BenchmarkInputs.ResourceInput input)
+      throws IOException {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new StringReader(input.json), "com.example", "Root", input.mappings);
+    return converter.getClasses();
+  }
+
+  @Benchmark
+  public ClassDefCollection processSynthetic(BenchmarkInputs.SyntheticInput input)
+      throws IOException {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new StringReader(input.json), "com.example", "Root", null);
+    return converter.getClasses();
+  }
+
+  @Benchmark
+  public ClassDefCollection processSyntheticMapped(BenchmarkInputs.SyntheticInput input)
+      throws IOException {
+    Json2Java converter = new Json2Java();
+    converter.processMappedJson(input.file, "com.example", "Root", null);
+    return converter.getClasses();
+  }
+
+  @Benchmark
+  public JsonElement parseSynthetic(BenchmarkInputs.SyntheticInput input) {
+    return JsonParser.parseString(input.json);
+  }
+}
@@ -15,39 +15,157 @@
  */
 package com.singhinderjeet.json2java;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
 import com.singhinderjeet.json2java.CustomMappings.MappedTypeName;
 import com.singhinderjeet.json2java.CustomMappings.MovedFieldName;
+import com.singhinderjeet.json2java.GenerationListener.Phase;
 
 /**
- * A list of class definitions.
+ * A list of class definitions, indexed by class name. A class belongs to the collection it was
+ * most recently added to, and renaming it through {@link ClassDefinition#rename(String)} keeps
+ * that collection's index up to date.
  *
  * @author Inderjeet Singh
  */
 public class ClassDefCollection {
-  private final List<ClassDefinition> classes = Utils.<ClassDefinition>asList(
-      new ClassDefinition("java.lang", "String"));
+  /** Number of classes rendered in memory before they are written out */
+  private static final int WRITE_BATCH_SIZE = 256;
+  /** Reused by each rendering thread so class sources are built without growing a new buffer */
+  private static final ThreadLocal<StringBuilder> RENDER_BUFFER =
+      ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+  private final List<ClassDefinition> classes = new ArrayList<>();
+  /** Maps a class name to the first class in {@link #classes} with that name */
+  private final Map<String, ClassDefinition> classesByName = new HashMap<>();
   private String fileCopyrightNotice;
   private String defaultClassComment;
+  private boolean logFileWrites = true;
+  private NumericArrayStyle numericArrayStyle = NumericArrayStyle.LIST;
+  private SourceStyle sourceStyle = SourceStyle.DEFAULT;
+  private GenerationListener listener = GenerationListener.NONE;
+  /** Package and name of the TypeAdapterFactory to generate, or null for no TypeAdapters */
+  private String typeAdapterFactoryPackage;
+  private String typeAdapterFactoryName;
+  private String viewPackage;
+  /** Incremented whenever a class or field is added or a field type widens */
+  private long modCount;
+
+  public ClassDefCollection() {
+    add(new ClassDefinition("java.lang", "String"));
+  }
+
+  /** Creates a collection holding exactly the specified classes, used to load snapshots */
+  ClassDefCollection(List<ClassDefinition> classes) {
+    for (ClassDefinition clazz : classes) {
+      add(clazz);
+    }
+  }
+
+  /** Returns the classes in this collection, in the order they were added */
+  List<ClassDefinition> getClassDefinitions() {
+    return classes;
+  }
 
   public void addEnumClass(EnumDefinition enumClass) {
-    this.classes.add(enumClass);
+    add(enumClass);
   }
 
   public ClassDefinition addClassDefinition(String pkg, String className) {
     ClassDefinition clazz = findByTypeName(className);
     if (clazz == null) {
       clazz = new ClassDefinition(pkg, className);
-      classes.add(clazz);
+      add(clazz);
+      listener.classCreated(clazz);
     }
     return clazz;
   }
 
+  /** Sets the listener notified of the merges, transforms and files of this collection */
+  public void setListener(GenerationListener listener) {
+    this.listener = listener;
+  }
+
+  GenerationListener getListener() {
+    return listener;
+  }
+
+  private void add(ClassDefinition clazz) {
+    ++modCount;
+    classes.add(clazz);
+    clazz.setCollection(this);
+    if (!classesByName.containsKey(clazz.getClassName())) {
+      classesByName.put(clazz.getClassName(), clazz);
+    }
+  }
+
+  private void remove(ClassDefinition clazz) {
+    classes.remove(clazz);
+    if (classesByName.get(clazz.getClassName()) == clazz) reindex(clazz.getClassName());
+  }
+
+  /** Invoked when a class in this collection gets a new field */
+  void modified() {
+    ++modCount;
+  }
+
+  /** Returns a counter that changes whenever the inferred classes gain a class, field or type */
+  long getModCount() {
+    return modCount;
+  }
+
+  /** Returns how many array elements or records were skipped by a {@link ConvergencePolicy} */
+  public long getSkippedElements() {
+    long skipped = 0;
+    for (ClassDefinition def : classes) {
+      skipped += def.getSkippedElements();
+    }
+    return skipped;
+  }
+
+  /**
+   * Invoked by {@link ClassDefinition#rename(String)} after a class in this collection is renamed
+   */
+  void renamed(ClassDefinition clazz, String oldName) {
+    if (classesByName.get(oldName) == clazz) reindex(oldName);
+    ClassDefinition existing = classesByName.get(clazz.getClassName());
+    if (existing == null) {
+      classesByName.put(clazz.getClassName(), clazz);
+    } else if (existing != clazz) { // whichever comes first in the list wins
+      reindex(clazz.getClassName());
+    }
+  }
+
+  /** Points the index entry for name at the first class with that name, if any. */
+  private void reindex(String name) {
+    classesByName.remove(name);
+    for (ClassDefinition def : classes) {
+      if (def.getClassName().equals(name)) {
+        classesByName.put(name, def);
+        return;
+      }
+    }
+  }
+
   public void setFileCopyrightNotice(String fileCopyrightNotice) {
     this.fileCopyrightNotice = fileCopyrightNotice;
   }
@@ -56,72 +174,488 @@ public class ClassDefCollection {
     this.defaultClassComment = defaultClassComment;
   }
 
+  /**
+   * Whether {@link #generateClasses(File, String)} prints a line for each file it writes. Defaults
+   * to true. The other generateClasses methods print nothing, and report the files written only
+   * to the {@link GenerationListener}.
+   */
+  public void setLogFileWrites(boolean logFileWrites) {
+    this.logFileWrites = logFileWrites;
+  }
+
+  /** Sets the types generated for arrays of numbers. Defaults to {@link NumericArrayStyle#LIST}. */
+  public void setNumericArrayStyle(NumericArrayStyle numericArrayStyle) {
+    this.numericArrayStyle = numericArrayStyle;
+  }
+
+  /**
+   * Sets the templates that the body of each class is rendered from. Defaults to
+   * {@link SourceStyle#DEFAULT}.
+   */
+  public void setSourceStyle(SourceStyle sourceStyle) {
+    this.sourceStyle = sourceStyle;
+  }
+
+  /**
+   * Also generates a reflection-free Gson TypeAdapter next to each class, and a
+   * TypeAdapterFactory with the specified package and class name that creates them. Register
+   * the factory with GsonBuilder.registerTypeAdapterFactory to use the adapters.
+   */
+  public void setGenerateTypeAdapters(String factoryPackage, String factoryClassName) {
+    this.typeAdapterFactoryPackage = factoryPackage;
+    this.typeAdapterFactoryName = factoryClassName;
+  }
+
+  /**
+   * Also generates a view next to each class, named after it with a View suffix, and the base
+   * class of the views in the specified package. A view has the same accessors as its class but
+   * keeps the UTF-8 bytes of the JSON object it was created from: it is created by a single scan
+   * that finds where each field starts, and each accessor decodes its field on first use. Objects
+   * and lists of objects are read as views, so parts of the JSON that are never read are never
+   * decoded. Create views with the generated {@code of(byte[])} methods.
+   */
+  public void setGenerateViews(String viewPackage) {
+    this.viewPackage = viewPackage;
+  }
+
   public void setGenerateClassFile(String className, boolean generate) {
     ClassDefinition clazz = findByTypeName(className);
     if (clazz != null) clazz.setGenerateFile(generate);
   }
 
   public void merge(ClassDefCollection other) {
-    for (ClassDefinition clazz : other.classes) {
-      ClassDefinition existing = findByTypeName(clazz.getClassName());
-      if (existing == null) {
-        this.classes.add(clazz);
-      } else {
-        existing.merge(clazz);
+    long start = System.nanoTime();
+    listener.phaseStarted(Phase.MERGE);
+    try {
+      for (ClassDefinition clazz : other.classes) {
+        ClassDefinition existing = findByTypeName(clazz.getClassName());
+        if (existing == null) {
+          add(clazz);
+          continue;
+        }
+        if (existing.merge(clazz)) modified();
+        listener.classMerged(existing, clazz);
       }
+    } finally {
+      listener.phaseFinished(Phase.MERGE, System.nanoTime() - start);
     }
   }
 
   public void generateClasses(File dir, String indent) throws IOException {
+    try (SourceSink sink = SourceSink.directory(dir)) {
+      generateClasses(sink, indent, 1, logFileWrites);
+    }
+  }
+
+  /**
+   * Writes the source files of the classes under dir, a file per class.
+   *
+   * @see #generateClasses(SourceSink, String, int)
+   */
+  public void generateClasses(File dir, String indent, int threads) throws IOException {
+    try (SourceSink sink = SourceSink.directory(dir)) {
+      generateClasses(sink, indent, threads);
+    }
+  }
+
+  /**
+   * Writes the source files of the classes to sink, which is left open. Classes are rendered into
+   * memory on up to the specified number of threads, a batch at a time, and each file is then
+   * written with a single call. Every class is prepared before any is rendered, so the output,
+   * including the order of the files, is the same irrespective of the number of threads.
+   */
+  public void generateClasses(SourceSink sink, String indent, int threads) throws IOException {
+    generateClasses(sink, indent, threads, false);
+  }
+
+  private void generateClasses(SourceSink sink, String indent, int threads, boolean logFileWrites)
+      throws IOException {
+    // Batches alternate between rendering and writing, so each phase is reported once per run
+    // with the time spent in it across all batches.
+    long renderNanos = 0;
+    long writeNanos = 0;
+    boolean writeStarted = false;
+    boolean writing = false;
+    long phaseStart = System.nanoTime();
+    listener.phaseStarted(Phase.RENDER);
+    ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    try {
+      List<GeneratedSource> toWrite = prepareSources(indent);
+      for (int start = 0; start < toWrite.size(); start += WRITE_BATCH_SIZE) {
+        List<GeneratedSource> batch =
+            toWrite.subList(start, Math.min(start + WRITE_BATCH_SIZE, toWrite.size()));
+        List<String> sources = render(batch, executor);
+        long now = System.nanoTime();
+        renderNanos += now - phaseStart;
+        phaseStart = now;
+        if (!writeStarted) {
+          listener.phaseStarted(Phase.WRITE);
+          writeStarted = true;
+        }
+        writing = true;
+        for (int i = 0; i < batch.size(); ++i) {
+          byte[] bytes = sources.get(i).getBytes(Charset.defaultCharset());
+          File classFile = sink.write(batch.get(i).getPath(), bytes);
+          if (logFileWrites) System.out.println("Writing " + classFile.getPath());
+          listener.fileWritten(classFile, bytes.length);
+        }
+        writing = false;
+        now = System.nanoTime();
+        writeNanos += now - phaseStart;
+        phaseStart = now;
+      }
+    } finally {
+      if (executor != null) executor.shutdown();
+      long elapsed = System.nanoTime() - phaseStart;
+      if (writing) {
+        writeNanos += elapsed;
+      } else {
+        renderNanos += elapsed;
+      }
+      if (writeStarted) listener.phaseFinished(Phase.WRITE, writeNanos);
+      listener.phaseFinished(Phase.RENDER, renderNanos);
+    }
+  }
+
+  private static List<String> render(List<GeneratedSource> batch, ExecutorService executor)
+      throws IOException {
+    List<String> sources = new ArrayList<>(batch.size());
+    if (executor == null) {
+      for (GeneratedSource source : batch) {
+        sources.add(source.render());
+      }
+      return sources;
+    }
+    List<Future<String>> futures = new ArrayList<>(batch.size());
+    for (GeneratedSource source : batch) {
+      futures.add(executor.submit(source::render));
+    }
+    try {
+      for (Future<String> future : futures) {
+        sources.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new IOException(cause);
+    }
+    return sources;
+  }
+
+  /**
+   * Prepares every class that generates a file for writing, and returns the sources to
+   * generate: the classes, followed by their views and TypeAdapters and factory if enabled.
+   */
+  List<GeneratedSource> prepareSources(String indent) {
+    List<ClassDefinition> toWrite = prepareForWriting();
+    List<GeneratedSource> sources = new ArrayList<>();
+    for (ClassDefinition def : toWrite) {
+      sources.add(new GeneratedSource(def.getPackage(), def.getClassName(), def) {
+        @Override String render() throws IOException {
+          return ClassDefCollection.this.render(def, indent);
+        }
+      });
+    }
+    if (viewPackage != null && !toWrite.isEmpty()) addViewSources(sources, toWrite, indent);
+    if (typeAdapterFactoryName == null || toWrite.isEmpty()) return sources;
+    for (ClassDefinition def : toWrite) {
+      sources.add(new GeneratedSource(def.getPackage(), def.getTypeAdapterClassName(), def) {
+        @Override String render() throws IOException {
+          StringWriter writer = new StringWriter();
+          def.writeTypeAdapterFile(writer, indent, fileCopyrightNotice);
+          return writer.toString();
+        }
+      });
+    }
+    sources.add(new GeneratedSource(typeAdapterFactoryPackage, typeAdapterFactoryName, null) {
+      @Override String render() throws IOException {
+        StringWriter writer = new StringWriter();
+        writeTypeAdapterFactory(writer, toWrite, indent);
+        return writer.toString();
+      }
+    });
+    return sources;
+  }
+
+  private void addViewSources(List<GeneratedSource> sources, List<ClassDefinition> toWrite,
+      String indent) {
+    Map<String, ClassDefinition> viewed = new HashMap<>();
+    for (ClassDefinition def : toWrite) {
+      if (!(def instanceof EnumDefinition)) viewed.put(def.getClassName(), def);
+    }
+    for (ClassDefinition def : toWrite) {
+      if (def instanceof EnumDefinition) continue;
+      sources.add(new GeneratedSource(def.getPackage(), def.getViewClassName(), def) {
+        @Override String render() throws IOException {
+          StringWriter writer = new StringWriter();
+          def.writeViewFile(writer, indent, fileCopyrightNotice, viewPackage, viewed);
+          return writer.toString();
+        }
+      });
+    }
+    String baseClassName = ClassDefinition.VIEW_BASE_CLASS_NAME;
+    sources.add(new GeneratedSource(viewPackage, baseClassName, null) {
+      @Override String render() throws IOException {
+        StringBuilder source = new StringBuilder();
+        if (fileCopyrightNotice != null) source.append(fileCopyrightNotice);
+        // the source is kept as a resource, indented with tabs
+        source.append(readResource(baseClassName + ".java.txt").replace("$package", viewPackage)
+            .replace("\t", indent));
+        return source.toString();
+      }
+    });
+  }
+
+  private static String readResource(String name) throws IOException {
+    try (InputStream in = ClassDefCollection.class.getResourceAsStream(name)) {
+      if (in == null) throw new FileNotFoundException(name);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int count; (count = in.read(buffer)) > 0;) {
+        bytes.write(buffer, 0, count);
+      }
+      return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /** Prepares every class that generates a file for writing, and returns those classes */
+  List<ClassDefinition> prepareForWriting() {
+    // types are settled for all classes first since a class imports types of its base class
+    for (ClassDefinition def : classes) {
+      def.setNumericArrayStyle(numericArrayStyle);
+      def.setSourceStyle(sourceStyle);
+    }
+    List<ClassDefinition> toWrite = new ArrayList<>();
     for (ClassDefinition def : classes) {
-      def.writeClassFile(dir, indent, fileCopyrightNotice, defaultClassComment);
+      if (!def.isGenerateFile()) continue;
+      def.prepareForWriting();
+      toWrite.add(def);
     }
+    return toWrite;
+  }
+
+  /** Returns the source of a class that has been prepared with {@link #prepareForWriting()} */
+  String render(ClassDefinition def, String indent) throws IOException {
+    StringBuilder source = RENDER_BUFFER.get();
+    source.setLength(0);
+    def.appendClassFile(source, indent, fileCopyrightNotice, defaultClassComment);
+    return source.toString();
+  }
+
+  /**
+   * Writes a TypeAdapterFactory that creates the TypeAdapter of each of the specified classes.
+   * Classes are referred to by their qualified names since they may be in other packages.
+   */
+  private void writeTypeAdapterFactory(Writer writer, List<ClassDefinition> adapted,
+      String indent) throws IOException {
+    String indent2 = indent + indent;
+    if (fileCopyrightNotice != null) writer.append(fileCopyrightNotice);
+    writer.append("package ").append(typeAdapterFactoryPackage).append(";\n\n");
+    writer.append("import com.google.gson.Gson;\n");
+    writer.append("import com.google.gson.TypeAdapter;\n");
+    writer.append("import com.google.gson.TypeAdapterFactory;\n");
+    writer.append("import com.google.gson.reflect.TypeToken;\n\n");
+    writer.append("public final class ").append(typeAdapterFactoryName)
+        .append(" implements TypeAdapterFactory {\n");
+    writer.append(indent).append("@SuppressWarnings(\"unchecked\")\n");
+    writer.append(indent).append("@Override\n");
+    writer.append(indent)
+        .append("public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {\n");
+    writer.append(indent2).append("switch (type.getRawType().getName()) {\n");
+    for (ClassDefinition def : adapted) {
+      writer.append(indent2).append("case \"").append(def.getPackage()).append(".")
+          .append(def.getClassName()).append("\":\n");
+      writer.append(indent2).append(indent).append("return (TypeAdapter<T>) new ")
+          .append(def.getPackage()).append(".").append(def.getTypeAdapterClassName())
+          .append("(gson);\n");
+    }
+    writer.append(indent2).append("default:\n");
+    writer.append(indent2).append(indent).append("return null;\n");
+    writer.append(indent2).append("}\n");
+    writer.append(indent).append("}\n");
+    writer.append("}\n");
   }
 
   public ClassDefinition findByTypeName(String typeName) {
-    for (ClassDefinition def : classes) {
-      if (def.getClassName().equals(typeName)) return def;
+    ClassDefinition def = classesByName.get(typeName);
+    // a class moved to another collection may have been renamed there
+    return def != null && def.getClassName().equals(typeName) ? def : null;
+  }
+
+  /**
+   * Collapses classes that have the same shape into one, so that, for example, billingAddress and
+   * shippingAddress objects with the same fields share a single BillingAddress class. Two classes
+   * have the same shape if their fields have the same JSON names, field names and types, where
+   * fields referring to classes must refer to classes of the same shape. The first class of each
+   * shape is kept, and fields referring to the others are changed to refer to it.
+   *
+   * <p>Enums, classes in an inheritance relation and classes that are not generated are left
+   * alone.
+   *
+   * @return the number of classes removed
+   */
+  public int deduplicate() {
+    long start = System.nanoTime();
+    listener.phaseStarted(Phase.DEDUPLICATE);
+    try {
+      return collapseSameShapes();
+    } finally {
+      listener.phaseFinished(Phase.DEDUPLICATE, System.nanoTime() - start);
+    }
+  }
+
+  private int collapseSameShapes() {
+    Map<String, Integer> nameCounts = new HashMap<>();
+    Set<ClassDefinition> baseClasses = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (ClassDefinition clazz : classes) {
+      nameCounts.merge(clazz.getClassName(), 1, Integer::sum);
+      if (clazz.getBaseClass() != null) baseClasses.add(clazz.getBaseClass());
+    }
+    List<ClassDefinition> candidates = new ArrayList<>();
+    Map<ClassDefinition, Integer> indexes = new IdentityHashMap<>();
+    for (ClassDefinition clazz : classes) {
+      boolean candidate = clazz.getClass() == ClassDefinition.class && clazz.isGenerateFile()
+          && clazz.getBaseClass() == null && !baseClasses.contains(clazz)
+          && nameCounts.get(clazz.getClassName()) == 1;
+      if (!candidate) continue;
+      indexes.put(clazz, candidates.size());
+      candidates.add(clazz);
+    }
+
+    // Partition the candidates by their fields, ignoring which candidates the fields refer to,
+    // then split the blocks until the candidates in each block refer to candidates in the same
+    // blocks
+    int count = candidates.size();
+    int[][] references = new int[count][];
+    List<Object> keys = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      List<ClassField> fields = new ArrayList<>(candidates.get(i).fields);
+      fields.sort((a, b) -> a.getJsonName().compareTo(b.getJsonName()));
+      references[i] = new int[fields.size()];
+      StringBuilder key = new StringBuilder();
+      for (int j = 0; j < fields.size(); ++j) {
+        ClassField field = fields.get(j);
+        String typeName = field.getTypeName();
+        ClassDefinition referenced = findByTypeName(field.getElementTypeName());
+        Integer reference = referenced == null ? null : indexes.get(referenced);
+        references[i][j] = reference == null ? -1 : reference;
+        if (reference != null) typeName = typeName.replace(field.getElementTypeName(), "#");
+        key.append(field.getJsonName()).append(' ').append(field.getFieldName()).append(' ')
+            .append(typeName).append(';');
+      }
+      keys.add(key.toString());
     }
-    return null;
+    int[] blocks = partition(keys);
+    int blockCount = count == 0 ? 0 : max(blocks) + 1;
+    while (true) {
+      keys.clear();
+      for (int i = 0; i < count; ++i) {
+        List<Integer> key = new ArrayList<>(references[i].length + 1);
+        key.add(blocks[i]);
+        for (int reference : references[i]) {
+          key.add(reference == -1 ? -1 : blocks[reference]);
+        }
+        keys.add(key);
+      }
+      int[] refined = partition(keys);
+      int refinedCount = count == 0 ? 0 : max(refined) + 1;
+      blocks = refined;
+      if (refinedCount == blockCount) break;
+      blockCount = refinedCount;
+    }
+
+    ClassDefinition[] kept = new ClassDefinition[blockCount];
+    Map<String, String> replacements = new HashMap<>();
+    Set<ClassDefinition> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 0; i < count; ++i) {
+      ClassDefinition clazz = candidates.get(i);
+      ClassDefinition first = kept[blocks[i]];
+      if (first == null) {
+        kept[blocks[i]] = clazz;
+        continue;
+      }
+      first.merge(clazz);
+      replacements.put(clazz.getClassName(), first.getClassName());
+      removed.add(clazz);
+    }
+    if (removed.isEmpty()) return 0;
+    classes.removeIf(removed::contains);
+    classesByName.clear();
+    for (ClassDefinition clazz : classes) {
+      classesByName.putIfAbsent(clazz.getClassName(), clazz);
+      for (ClassField field : clazz.fields) {
+        String replacement = replacements.get(field.getDeclaredType());
+        if (replacement != null) field.replaceType(field.getDeclaredType(), replacement);
+      }
+    }
+    modified();
+    return removed.size();
+  }
+
+  /** Numbers the distinct keys in order of first appearance and returns the number of each key */
+  private static int[] partition(List<Object> keys) {
+    Map<Object, Integer> numbers = new HashMap<>();
+    int[] partition = new int[keys.size()];
+    for (int i = 0; i < partition.length; ++i) {
+      Integer number = numbers.get(keys.get(i));
+      if (number == null) {
+        number = numbers.size();
+        numbers.put(keys.get(i), number);
+      }
+      partition[i] = number;
+    }
+    return partition;
+  }
+
+  private static int max(int[] values) {
+    int max = Integer.MIN_VALUE;
+    for (int value : values) {
+      max = Math.max(max, value);
+    }
+    return max;
   }
 
   /** Applies the specified mappings to all the classes */
   public void transform(CustomMappings mappings) {
     if (mappings == null) return;
-    for (Map.Entry<String, String> mapping : mappings.subTypesEntrySet()) {
+    long start = System.nanoTime();
+    listener.phaseStarted(Phase.TRANSFORM);
+    try {
+      applyMappings(mappings.compile());
+    } finally {
+      listener.phaseFinished(Phase.TRANSFORM, System.nanoTime() - start);
+    }
+  }
+
+  private void applyMappings(CompiledMappings mappings) {
+    for (Map.Entry<String, String> mapping : mappings.subTypes) {
       String subType = mapping.getKey();
-        String baseType = mapping.getValue();
-        ClassDefinition baseClass = findByTypeName(baseType);
-        ClassDefinition subClass = findByTypeName(subType);
-        if (subClass != null) subClass.setBaseClass(baseClass);
-    }
-
-    for (Map.Entry<String, MappedTypeName> mapping : mappings.typesEntrySet()) {
-      String origType = mapping.getKey();
-      String mappedType = mapping.getValue().name;
-      boolean isArrayType = mapping.getValue().isArrayType;
-      ClassDefinition origClass = findByTypeName(origType);
-      ClassDefinition mappedClass = findByTypeName(mappedType);
-      if (mappedClass == null) {
-        if (origClass != null) origClass.rename(mappedType);
-      } else {
-        mappedClass.merge(origClass);
-        classes.remove(mappedClass);
-      }
-      for (ClassDefinition clazz : classes) {
-        clazz.mapType(origType, mappedType, isArrayType);
-        if (clazz.getClassName().equals(origType)) {
-          clazz.rename(mappedType);
-        }
-      }
+      String baseType = mapping.getValue();
+      ClassDefinition baseClass = findByTypeName(baseType);
+      ClassDefinition subClass = findByTypeName(subType);
+      if (subClass != null) subClass.setBaseClass(baseClass);
     }
-    for (MappedFieldName mapping : mappings.fieldNameMappings()) {
-      ClassDefinition origClass = findByTypeName(mapping.className);
-      if (origClass != null) {
-        origClass.mapFieldName(mapping);
+    if (mappings.getTypeMappingCount() > 0) applyTypeMappings(mappings);
+
+    // Renames whose JSON names resolve to the same field are applied in the order of the mappings
+    Map<ClassField, Integer> renamedFields = new IdentityHashMap<>();
+    for (String className : mappings.getFieldNameMappedClasses()) {
+      ClassDefinition origClass = findByTypeName(className);
+      if (origClass == null) continue;
+      for (Map.Entry<String, Integer> mapping
+          : mappings.getFieldNameIndexes(className).entrySet()) {
+        ClassField field = origClass.find(mapping.getKey());
+        if (field != null) renamedFields.merge(field, mapping.getValue(), Math::max);
       }
     }
-    for (MovedFieldName field : mappings.movedFieldNames()) {
+    for (Map.Entry<ClassField, Integer> renamed : renamedFields.entrySet()) {
+      renamed.getKey().mapFieldName(mappings.getFieldName(renamed.getValue()));
+    }
+    for (MovedFieldName field : mappings.movedFields) {
       ClassDefinition origClass = findByTypeName(field.baseType);
       ClassDefinition destClass = findByTypeName(field.subType);
       if (origClass != null && destClass != null) {
@@ -132,11 +666,100 @@ public class ClassDefCollection {
         }
       }
     }
-    for (MappedFieldName mapping : mappings.deletedFields()) {
-      ClassDefinition origClass = findByTypeName(mapping.className);
-      if (origClass != null) {
-        origClass.deleteField(mapping.jsonName);
+    for (String className : mappings.getDeletedFieldClasses()) {
+      ClassDefinition origClass = findByTypeName(className);
+      if (origClass == null) continue;
+      for (String jsonName : mappings.getDeletedFields(className)) {
+        origClass.deleteField(jsonName);
+      }
+    }
+  }
+
+  /**
+   * Renames and merges classes as if each type mapping were applied to the whole collection in
+   * turn, and then maps the types of all fields in one pass. Mapping a type to the name of an
+   * existing class merges the mapped class into that class, which is then dropped.
+   */
+  private void applyTypeMappings(CompiledMappings mappings) {
+    // Classes by their name as of the mapping being applied, in the order of the collection
+    Map<String, List<ClassDefinition>> classesByMappedName = new HashMap<>();
+    Map<ClassDefinition, Integer> positions = new IdentityHashMap<>();
+    for (int i = 0; i < classes.size(); ++i) {
+      ClassDefinition clazz = classes.get(i);
+      if (!mappings.isMentionedType(clazz.getClassName())) continue;
+      positions.put(clazz, i);
+      classesByMappedName.computeIfAbsent(clazz.getClassName(), k -> new ArrayList<>()).add(clazz);
+    }
+    // Dropped classes, with the index of the mapping that dropped them
+    Map<ClassDefinition, Integer> dropped = new IdentityHashMap<>();
+    for (int i = 0; i < mappings.getTypeMappingCount(); ++i) {
+      String origType = mappings.getOrigType(i);
+      String mappedType = mappings.getMappedType(i);
+      List<ClassDefinition> origClasses = classesByMappedName.get(origType);
+      List<ClassDefinition> mappedClasses = classesByMappedName.get(mappedType);
+      if (mappedClasses != null && !mappedClasses.isEmpty()) {
+        ClassDefinition origClass = origClasses == null || origClasses.isEmpty()
+            ? null : origClasses.get(0);
+        ClassDefinition mappedClass = mappedClasses.remove(0);
+        mappedClass.merge(origClass);
+        mappedClass.setClassName(mappedType);
+        dropped.put(mappedClass, i);
       }
+      if (origType.equals(mappedType) || origClasses == null || origClasses.isEmpty()) continue;
+      classesByMappedName.remove(origType);
+      if (mappedClasses == null || mappedClasses.isEmpty()) {
+        classesByMappedName.put(mappedType, origClasses);
+      } else {
+        classesByMappedName.put(mappedType, mergeInOrder(mappedClasses, origClasses, positions));
+      }
+    }
+    if (!dropped.isEmpty()) classes.removeIf(dropped::containsKey);
+    for (Map.Entry<String, List<ClassDefinition>> entry : classesByMappedName.entrySet()) {
+      for (ClassDefinition clazz : entry.getValue()) {
+        clazz.setClassName(entry.getKey());
+      }
+    }
+    classesByName.clear();
+    for (ClassDefinition clazz : classes) {
+      classesByName.putIfAbsent(clazz.getClassName(), clazz);
+    }
+
+    // A field shared by several classes is mapped once, as long as any of them was in the
+    // collection, so dropped classes are visited last and the latest dropped first
+    Set<ClassField> mappedFields = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (ClassDefinition clazz : classes) {
+      mapFieldTypes(clazz, mappings, Integer.MAX_VALUE, mappedFields);
+    }
+    List<Map.Entry<ClassDefinition, Integer>> droppedClasses = new ArrayList<>(dropped.entrySet());
+    droppedClasses.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+    for (Map.Entry<ClassDefinition, Integer> entry : droppedClasses) {
+      mapFieldTypes(entry.getKey(), mappings, entry.getValue(), mappedFields);
+    }
+  }
+
+  /** Maps the types of the fields of clazz by the type mappings before the one at index limit */
+  private static void mapFieldTypes(ClassDefinition clazz, CompiledMappings mappings, int limit,
+      Set<ClassField> mappedFields) {
+    for (ClassField field : clazz.fields) {
+      if (!mappedFields.add(field)) continue;
+      String type = field.getDeclaredType();
+      MappedTypeName mapped = limit == Integer.MAX_VALUE
+          ? mappings.resolveType(type) : mappings.resolveType(type, limit);
+      if (mapped != null) field.mapType(type, mapped.name, mapped.isArrayType);
+    }
+  }
+
+  /** Merges two lists of classes, each in collection order, into one in collection order */
+  private static List<ClassDefinition> mergeInOrder(List<ClassDefinition> a,
+      List<ClassDefinition> b, Map<ClassDefinition, Integer> positions) {
+    List<ClassDefinition> merged = new ArrayList<>(a.size() + b.size());
+    int i = 0;
+    int j = 0;
+    while (i < a.size() || j < b.size()) {
+      boolean takeA = j == b.size()
+          || (i < a.size() && positions.get(a.get(i)) < positions.get(b.get(j)));
+      merged.add(takeA ? a.get(i++) : b.get(j++));
     }
+    return merged;
   }
 }
@@ -18,14 +18,18 @@ package com.singhinderjeet.json2java;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
 
@@ -35,6 +39,30 @@ import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
  * @author Inderjeet Singh
  */
 public class ClassDefinition {
+  /** Name of the class that generated views extend */
+  static final String VIEW_BASE_CLASS_NAME = "JsonView";
+  /** Types that a view reads with a method of the base class, such as readInt */
+  private static final Set<String> DIRECT_VIEW_TYPES =
+      new HashSet<>(Arrays.asList("boolean", "int", "long", "double", "String"));
+  /** Static methods of the view base class that decode list elements of each type */
+  private static final Map<String, String> VIEW_ELEMENT_DECODERS = new HashMap<>();
+  static {
+    VIEW_ELEMENT_DECODERS.put("String", "stringAt");
+    VIEW_ELEMENT_DECODERS.put("Integer", "integerAt");
+    VIEW_ELEMENT_DECODERS.put("Long", "longAt");
+    VIEW_ELEMENT_DECODERS.put("Double", "doubleAt");
+    VIEW_ELEMENT_DECODERS.put("Boolean", "booleanAt");
+  }
+  /** The methods that wrote classes before {@link SourceStyle}, which subclasses may override */
+  private static final Set<String> WRITE_METHODS = new HashSet<>(Arrays.asList(
+      "writeClassBody", "writeFieldDeclarations", "writeAccessorMethods"));
+  private static final ClassValue<Boolean> OVERRIDES_WRITE_METHODS = new ClassValue<Boolean>() {
+    @Override protected Boolean computeValue(Class<?> type) {
+      Class<?> base = EnumDefinition.class.isAssignableFrom(type)
+          ? EnumDefinition.class : ClassDefinition.class;
+      return Utils.declaresAny(type, base, WRITE_METHODS);
+    }
+  };
 
   protected final String pkg;
   protected String className;
@@ -42,6 +70,21 @@ public class ClassDefinition {
   protected final List<ClassField> fields = new ArrayList<>();
   protected boolean generateFile;
   protected ClassDefinition baseClass;
+  protected SourceStyle sourceStyle = SourceStyle.DEFAULT;
+  /** {@link #fields} indexed by their JSON names */
+  private final Map<String, ClassField> fieldsByJsonName = new HashMap<>();
+  /** Incremented whenever a field is added or removed, or the base class changes */
+  private int modCount;
+  /** Fields of the base class chain by JSON name, valid while the chain is unmodified */
+  private Map<String, ClassField> inheritedFields;
+  /** The base class chain {@link #inheritedFields} was built from, nearest base class first */
+  private ClassDefinition[] inheritedFieldsChain;
+  /** The modification counts of {@link #inheritedFieldsChain} when it was built */
+  private int[] inheritedFieldsModCounts;
+  /** Number of instances of this class skipped by a {@link ConvergencePolicy} */
+  private long skippedElements;
+  /** The collection this class was last added to */
+  private ClassDefCollection collection;
 
   public ClassDefinition(String pkg, String className) {
     this.pkg = pkg;
@@ -51,24 +94,32 @@ public class ClassDefinition {
 
   public void setBaseClass(ClassDefinition baseClass) {
     this.baseClass = baseClass;
+    ++modCount;
   }
 
   public void setGenerateFile(boolean generate) {
     this.generateFile = generate;
   }
 
+  public boolean isGenerateFile() {
+    return generateFile;
+  }
+
   public void addField(ClassField classField) {
-    if (!present(classField.getJsonName())) fields.add(classField);
+    if (!present(classField.getJsonName())) {
+      fields.add(classField);
+      fieldsByJsonName.put(classField.getJsonName(), classField);
+      ++modCount;
+      if (collection != null) collection.modified();
+    }
   }
 
   public void deleteField(ClassField classField) {
     if (classField == null) return;
-    Iterator<ClassField> iterator = fields.iterator();
-    while (iterator.hasNext()) {
-      ClassField field = iterator.next();
-      if (field.getJsonName().equals(classField.getJsonName())) {
-        iterator.remove();
-      }
+    ClassField field = fieldsByJsonName.remove(classField.getJsonName());
+    if (field != null) {
+      fields.remove(field);
+      ++modCount;
     }
   }
 
@@ -89,27 +140,49 @@ public class ClassDefinition {
     }
   }
 
-  /** Copies the additional fields of other that are not present in self */
-  public void merge(ClassDefinition other) {
-    if (other == null) return;
-    this.imports.addAll(other.imports);
+  /**
+   * Copies the additional fields of other that are not present in self.
+   *
+   * @return whether a field was added or the type of a field widened
+   */
+  public boolean merge(ClassDefinition other) {
+    if (other == null) return false;
+    boolean changed = false;
+    for (String importedClass : other.imports) {
+      addImport(importedClass);
+    }
     if (this.baseClass != null) {
-      this.baseClass.merge(other.baseClass);
-    } else {
-      this.baseClass = other.baseClass;
+      changed = this.baseClass.merge(other.baseClass);
+    } else if (other.baseClass != null) {
+      setBaseClass(other.baseClass);
+      changed = true;
     }
     for (ClassField field : other.fields) {
       ClassField existing = find(field.getJsonName());
       if (existing == null) {
         addField(field);
-      } else {
-        existing.merge(field);
+        changed = true;
+      } else if (existing.merge(field)) {
+        changed = true;
       }
     }
+    this.skippedElements += other.skippedElements;
+    return changed;
   }
 
   public void rename(String mappedType) {
+    String oldName = this.className;
     this.className = mappedType;
+    if (collection != null) collection.renamed(this, oldName);
+  }
+
+  /** Renames this class without notifying its collection, which must then rebuild its index */
+  void setClassName(String className) {
+    this.className = className;
+  }
+
+  void setCollection(ClassDefCollection collection) {
+    this.collection = collection;
   }
 
   public String getPackage() {
@@ -128,6 +201,15 @@ public class ClassDefinition {
     return count;
   }
 
+  void addSkippedElements(long count) {
+    this.skippedElements += count;
+  }
+
+  /** Returns how many instances of this class were skipped by a {@link ConvergencePolicy} */
+  public long getSkippedElements() {
+    return skippedElements;
+  }
+
   public ClassDefinition getBaseClass() {
     return baseClass;
   }
@@ -137,13 +219,50 @@ public class ClassDefinition {
   }
 
   public ClassField find(String fieldJsonName) {
-    for (ClassField field : fields) {
-      if (field.getJsonName().equals(fieldJsonName)) return field;
+    ClassField field = fieldsByJsonName.get(fieldJsonName);
+    if (field == null && baseClass != null) {
+      field = inheritedFields().get(fieldJsonName);
     }
-    if (baseClass != null) {
-      return baseClass.find(fieldJsonName);
+    return field;
+  }
+
+  /**
+   * Returns the fields of the base class chain by JSON name, with fields of nearer base classes
+   * taking precedence. The view is rebuilt only after a class in the chain changes.
+   */
+  private Map<String, ClassField> inheritedFields() {
+    if (baseClass == null) return Collections.emptyMap();
+    if (inheritedFields == null || !isInheritedFieldsChainUnchanged()) {
+      Map<String, ClassField> fields = new HashMap<>(baseClass.inheritedFields());
+      fields.putAll(baseClass.fieldsByJsonName);
+      List<ClassDefinition> chain = new ArrayList<>();
+      for (ClassDefinition base = baseClass; base != null; base = base.baseClass) {
+        chain.add(base);
+      }
+      int[] modCounts = new int[chain.size()];
+      for (int i = 0; i < modCounts.length; ++i) {
+        modCounts[i] = chain.get(i).modCount;
+      }
+      inheritedFields = fields;
+      inheritedFieldsChain = chain.toArray(new ClassDefinition[0]);
+      inheritedFieldsModCounts = modCounts;
+    }
+    return inheritedFields;
+  }
+
+  /**
+   * Returns true if the base class chain is made of the same classes, in the same order and with
+   * the same modification counts, as when {@link #inheritedFields} was built.
+   */
+  private boolean isInheritedFieldsChainUnchanged() {
+    int i = 0;
+    for (ClassDefinition base = baseClass; base != null; base = base.baseClass, ++i) {
+      if (i == inheritedFieldsChain.length || inheritedFieldsChain[i] != base
+          || inheritedFieldsModCounts[i] != base.modCount) {
+        return false;
+      }
     }
-    return null;
+    return i == inheritedFieldsChain.length;
   }
 
   public boolean isSame(ClassDefinition other) {
@@ -158,10 +277,9 @@ public class ClassDefinition {
   public void writeClassFile(File dir, String indent, String copyrightNotice,
       String classComment) throws IOException {
     if (!generateFile) return;
-    dir = new File(dir, pkg.replaceAll("\\.", File.separator));
+    dir = getPackageDir(dir);
     dir.mkdirs();
-    updateImports();
-    updateFields();
+    prepareForWriting();
     File classFile = new File(dir, className + ".java");
     try (Writer writer = new FileWriter(classFile)) {
       System.out.println("Writing " + classFile.getAbsolutePath());
@@ -169,18 +287,81 @@ public class ClassDefinition {
     }
   }
 
+  /** Returns the directory under dir where the source file of this class goes */
+  File getPackageDir(File dir) {
+    return new File(dir, pkg.replaceAll("\\.", File.separator));
+  }
+
+  /** Adds the needed imports and sorts the imports and fields before the class is written. */
+  void prepareForWriting() {
+    updateImports();
+    updateFields();
+  }
+
   void writeClassFile(Writer writer, String indent, String copyrightNotice,
       String classComment) throws IOException {
-    if (copyrightNotice != null) writer.append(copyrightNotice);
-    writer.append("package " + pkg + ";\n");
-    writeImports(writer);
+    StringBuilder source = new StringBuilder();
+    appendClassFile(source, indent, copyrightNotice, classComment);
+    writer.append(source);
+  }
+
+  /** Appends the source of this class to out, rendering its body with the source style */
+  void appendClassFile(StringBuilder out, String indent, String copyrightNotice,
+      String classComment) throws IOException {
+    if (copyrightNotice != null) out.append(copyrightNotice);
+    out.append("package ").append(pkg).append(";\n");
+    if (imports.size() > 0) out.append("\n");
+    for (String importedClass : imports) {
+      out.append("import ").append(importedClass).append(";\n");
+    }
     if (classComment != null) {
-      classComment = classComment.replaceAll("\\$className", className);
-      writer.append("\n").append(classComment);
+      out.append("\n").append(classComment.replace("$className", className));
+    }
+    appendClassBody(out, indent);
+  }
+
+  /**
+   * Appends the class declaration and body. They are rendered from the source style, unless a
+   * subclass overrides one of the write methods, or a field of the class or of its base class
+   * overrides an append method of {@link ClassField}. Such a class is written by
+   * {@link #writeClassBody(Writer, String)} instead, so that the overrides keep shaping it.
+   */
+  protected void appendClassBody(StringBuilder out, String indent) throws IOException {
+    if (usesWriteMethods()) {
+      StringWriter writer = new StringWriter();
+      writeClassBody(writer, indent);
+      out.append(writer.getBuffer());
+    } else {
+      appendStyledClassBody(out, indent);
+    }
+  }
+
+  /** Renders the class declaration and body from the source style */
+  void appendStyledClassBody(StringBuilder out, String indent) {
+    sourceStyle.appendClass(this, out, indent);
+  }
+
+  private boolean usesWriteMethods() {
+    if (OVERRIDES_WRITE_METHODS.get(getClass())) return true;
+    for (ClassField field : fields) {
+      if (field.overridesAppendMethods()) return true;
     }
-    writeClassBody(writer, indent);
+    if (baseClass != null) {
+      for (ClassField field : baseClass.fields) {
+        if (field.overridesAppendMethods()) return true;
+      }
+    }
+    return false;
   }
 
+  /**
+   * Writes the class declaration and body with the write methods. This produces the same source
+   * as the default source style.
+   *
+   * @deprecated use {@link ClassDefCollection#setSourceStyle(SourceStyle)}. Overriding this
+   *     still changes the class, which is then not rendered from its source style.
+   */
+  @Deprecated
   protected void writeClassBody(Writer writer, String indent) throws IOException {
     writer.append("public class ").append(className);
     if (baseClass != null) writer.append(" extends ").append(baseClass.getClassName());
@@ -191,11 +372,66 @@ public class ClassDefinition {
     writer.append("}\n");
   }
 
+  /**
+   * Writes the declarations of the fields declared by this class.
+   *
+   * @deprecated use {@link SourceStyle#withFieldTemplate(String)}. Overriding this still
+   *     changes the class, which is then not rendered from its source style.
+   */
+  @Deprecated
+  protected void writeFieldDeclarations(Writer writer, String indent) throws IOException {
+    writer.append("\n");
+    for (ClassField field : getOwnFields()) {
+      field.appendtDeclaration(writer, 1, indent);
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  private void writeConstructor(Writer writer, String indent) throws IOException {
+    writer.append("\n").append(indent).append("public ").append(className).append("(");
+    List<ClassField> parameters = getConstructorParameters();
+    for (int i = 0; i < parameters.size(); ++i) {
+      if (i > 0) writer.append(", ");
+      parameters.get(i).appendParameter(writer);
+    }
+    writer.append(") {\n");
+    if (baseClass != null && !baseClass.fields.isEmpty()) {
+      writer.append(indent).append(indent).append("super(");
+      for (int i = 0; i < baseClass.fields.size(); ++i) {
+        if (i > 0) writer.append(", ");
+        baseClass.fields.get(i).appendParameterName(writer);
+      }
+      writer.append(");\n");
+    }
+    List<ClassField> ownFields = getOwnFields();
+    for (int i = 0; i < ownFields.size(); ++i) {
+      if (i > 0) writer.append("\n");
+      ownFields.get(i).appendConstructorAssignment(writer, 2, indent);
+    }
+    writer.append("\n").append(indent).append("}\n");
+  }
+
+  void setSourceStyle(SourceStyle sourceStyle) {
+    this.sourceStyle = sourceStyle;
+  }
+
+  void setNumericArrayStyle(NumericArrayStyle numericArrayStyle) {
+    for (ClassField field : fields) {
+      field.setNumericArrayStyle(numericArrayStyle);
+    }
+  }
+
   private void updateImports() {
     boolean needSerializedNameImport = needSerializedNameImport();
     if (needSerializedNameImport) {
       addImport("com.google.gson.annotations.SerializedName");
     }
+    // arrays that became primitive arrays no longer need a List
+    boolean needListImport = false;
+    for (ClassField field : getConstructorParameters()) {
+      needListImport |= field.isListType();
+    }
+    if (!needListImport) imports.remove("java.util.List");
     // remove duplicates
     Set<String> set = new HashSet<>();
     set.addAll(imports);
@@ -227,6 +463,13 @@ public class ClassDefinition {
       if (field.getTypeName().equals("Date")) {
         addImport("java.util.Date");
       }
+      if (field.isListType()) {
+        addImport("java.util.List");
+      }
+      String typeImport = field.getTypeImport();
+      if (typeImport != null) {
+        addImport(typeImport);
+      }
       if (field.needsSerializedNameAnnotation()) {
         needSerializedNameImport = true;
       }
@@ -234,76 +477,359 @@ public class ClassDefinition {
     return needSerializedNameImport;
   }
 
-  private void writeImports(Writer writer) throws IOException {
-    if (imports.size() > 0) writer.append("\n");
-    for (String importedClass : imports) {
-      writer.append("import ").append(importedClass).append(";\n");
-    }
+  private boolean isBaseClassField(ClassField field) {
+    return isBaseClassField(field.getJsonName());
   }
 
-  protected void writeFieldDeclarations(Writer writer, String indent) throws IOException {
-    writer.append("\n");
+  boolean isBaseClassField(String fieldJsonName) {
+    return baseClass != null && inheritedFields().containsKey(fieldJsonName);
+  }
+
+  /** Returns the fields passed to the constructor, in the order of its parameters */
+  List<ClassField> getConstructorParameters() {
+    List<ClassField> parameters = new ArrayList<>();
+    if (baseClass != null) parameters.addAll(baseClass.getOwnFields());
+    parameters.addAll(getOwnFields());
+    return parameters;
+  }
+
+  /** Returns the fields declared by this class rather than inherited from its base class */
+  List<ClassField> getOwnFields() {
+    if (baseClass == null) return fields;
+    List<ClassField> ownFields = new ArrayList<>();
     for (ClassField field : fields) {
-        if (!isBaseClassField(field)) {
-            field.appendtDeclaration(writer, 1, indent);
-        }
+      if (!isBaseClassField(field)) ownFields.add(field);
     }
+    return ownFields;
   }
 
-  private boolean isBaseClassField(ClassField field) {
-    return isBaseClassField(field.getJsonName());
+  /** Returns the name of the view generated for this class */
+  String getViewClassName() {
+    return className + "View";
   }
 
-  boolean isBaseClassField(String fieldJsonName) {
-    return baseClass != null && baseClass.find(fieldJsonName) != null;
+  /** Returns the name of the TypeAdapter generated for this class */
+  String getTypeAdapterClassName() {
+    return className + "TypeAdapter";
   }
 
-  void writeConstructor(Writer writer, String indent) throws IOException {
-      writer.append("\n").append(indent);
-      writer.append("public " + className + "(");
-    boolean first = true;
-    if (baseClass != null) {
-      first = baseClass.appendParameters(writer, first);
-    }
-    first = appendParameters(writer, first);
-    writer.append(") {\n");
-    if (baseClass != null) {
-      baseClass.appendSuperCallInSubclass(writer, 2, indent);
-    }
-    first = true;
-    for (ClassField field : fields) {
-      if (isBaseClassField(field)) continue;
-      if (first) first = false; else writer.append("\n");
-      field.appendConstructorAssignment(writer, 2, indent);
+  /**
+   * Writes a Gson TypeAdapter for this class that reads and writes the fields by their JSON names
+   * and creates instances through the constructor, without reflection. The class must have been
+   * prepared with {@link #prepareForWriting()}.
+   */
+  void writeTypeAdapterFile(Writer writer, String indent, String copyrightNotice)
+      throws IOException {
+    if (copyrightNotice != null) writer.append(copyrightNotice);
+    writer.append("package " + pkg + ";\n\n");
+    Set<String> adapterImports = new TreeSet<>();
+    adapterImports.add("java.io.IOException");
+    adapterImports.add("com.google.gson.Gson");
+    adapterImports.add("com.google.gson.TypeAdapter");
+    adapterImports.add("com.google.gson.stream.JsonReader");
+    adapterImports.add("com.google.gson.stream.JsonToken");
+    adapterImports.add("com.google.gson.stream.JsonWriter");
+    addTypeAdapterImports(adapterImports);
+    for (boolean javaImports : new boolean[] {true, false}) {
+      for (String importedClass : adapterImports) {
+        if (importedClass.startsWith("java") != javaImports) continue;
+        writer.append("import ").append(importedClass).append(";\n");
+      }
+      writer.append("\n");
     }
-    writer.append("\n").append(indent).append("}\n");
+    writeTypeAdapterBody(writer, indent);
   }
 
-  private boolean appendParameters(Writer writer, boolean first) throws IOException {
-    for (ClassField field : fields) {
-      if (isBaseClassField(field)) continue;
-      if (first) first = false; else writer.append(", ");
-      field.appendParameter(writer);
+  protected void addTypeAdapterImports(Set<String> adapterImports) {
+    for (String importedClass : imports) {
+      if (!importedClass.endsWith(".SerializedName")) adapterImports.add(importedClass);
+    }
+    for (ClassField field : getConstructorParameters()) {
+      if (field.isListType()) {
+        adapterImports.add("java.util.ArrayList");
+        adapterImports.add("java.util.List");
+      }
+      if (field.getTypeName().endsWith("[]")) adapterImports.add("java.util.Arrays");
+      if (field.getAdaptedType() != null && field.getAdaptedType().contains("<")) {
+        adapterImports.add("com.google.gson.reflect.TypeToken");
+      }
     }
-    return first;
   }
 
-  private void appendSuperCallInSubclass(Writer writer, int indentLevel, String indent)
-      throws IOException {
-    if (fields.size() == 0) return;
-    for (int i = 0; i < indentLevel; ++i) writer.append(indent);
-    writer.append("super(");
+  protected void writeTypeAdapterBody(Writer writer, String indent) throws IOException {
+    List<ClassField> parameters = getConstructorParameters();
+    Set<String> adaptedTypes = new TreeSet<>();
+    Set<String> arrayTypes = new TreeSet<>();
+    boolean hasLists = false;
+    for (ClassField field : parameters) {
+      if (field.getAdaptedType() != null) adaptedTypes.add(field.getAdaptedType());
+      if (field.getTypeName().endsWith("[]")) arrayTypes.add(field.getTypeName());
+      hasLists |= field.isListType();
+    }
+    String adapterName = getTypeAdapterClassName();
+    writer.append("public final class ").append(adapterName)
+        .append(" extends TypeAdapter<").append(className).append("> {\n");
+    for (String type : adaptedTypes) {
+      writer.append(indent).append("private final TypeAdapter<").append(type).append("> ")
+          .append(ClassField.getAdapterFieldName(type)).append(";\n");
+    }
+    if (!adaptedTypes.isEmpty()) writer.append("\n");
+    writer.append(indent).append("public ").append(adapterName).append("(Gson gson) {\n");
+    for (String type : adaptedTypes) {
+      writer.append(indent).append(indent).append("this.")
+          .append(ClassField.getAdapterFieldName(type)).append(" = gson.getAdapter(");
+      if (type.contains("<")) {
+        writer.append("new TypeToken<").append(type).append(">() {}");
+      } else {
+        writer.append(type).append(".class");
+      }
+      writer.append(");\n");
+    }
+    writer.append(indent).append("}\n");
+
+    writer.append("\n").append(indent).append("@Override\n");
+    writer.append(indent).append("public ").append(className)
+        .append(" read(JsonReader jsonReader) throws IOException {\n");
+    writeTypeAdapterNullCheck(writer, indent, "jsonReader.peek() == JsonToken.NULL",
+        "jsonReader.nextNull();", "return null;");
+    for (ClassField field : parameters) {
+      field.appendTypeAdapterLocal(writer, 2, indent);
+    }
+    writer.append(indent).append(indent).append("jsonReader.beginObject();\n");
+    writer.append(indent).append(indent).append("while (jsonReader.hasNext()) {\n");
+    String indent3 = indent + indent + indent;
+    writer.append(indent3).append("String jsonName = jsonReader.nextName();\n");
+    writer.append(indent3).append("if (jsonReader.peek() == JsonToken.NULL) {\n");
+    writer.append(indent3).append(indent).append("jsonReader.nextNull();\n");
+    writer.append(indent3).append(indent).append("continue;\n");
+    writer.append(indent3).append("}\n");
+    writer.append(indent3).append("switch (jsonName) {\n");
+    for (ClassField field : parameters) {
+      field.appendTypeAdapterRead(writer, 3, indent);
+    }
+    writer.append(indent3).append("default:\n");
+    writer.append(indent3).append(indent).append("jsonReader.skipValue();\n");
+    writer.append(indent3).append("}\n");
+    writer.append(indent).append(indent).append("}\n");
+    writer.append(indent).append(indent).append("jsonReader.endObject();\n");
+    writer.append(indent).append(indent).append("return new ").append(className).append("(");
     boolean first = true;
-    for (ClassField field : fields) {
+    for (ClassField field : parameters) {
       if (first) first = false; else writer.append(", ");
       field.appendParameterName(writer);
     }
     writer.append(");\n");
+    writer.append(indent).append("}\n");
+
+    writer.append("\n").append(indent).append("@Override\n");
+    writer.append(indent).append("public void write(JsonWriter jsonWriter, ").append(className)
+        .append(" value) throws IOException {\n");
+    writeTypeAdapterNullCheck(writer, indent, "value == null", "jsonWriter.nullValue();",
+        "return;");
+    writer.append(indent).append(indent).append("jsonWriter.beginObject();\n");
+    for (ClassField field : parameters) {
+      field.appendTypeAdapterWrite(writer, 2, indent);
+    }
+    writer.append(indent).append(indent).append("jsonWriter.endObject();\n");
+    writer.append(indent).append("}\n");
+    if (hasLists) writeTypeAdapterListMethods(writer, indent);
+    for (String arrayType : arrayTypes) {
+      writeTypeAdapterArrayMethods(writer, indent, arrayType.replace("[]", ""));
+    }
+    writer.append("}\n");
+  }
+
+  static void writeTypeAdapterNullCheck(Writer writer, String indent, String condition,
+      String... statements) throws IOException {
+    writer.append(indent).append(indent).append("if (").append(condition).append(") {\n");
+    for (String statement : statements) {
+      writer.append(indent).append(indent).append(indent).append(statement).append("\n");
+    }
+    writer.append(indent).append(indent).append("}\n");
+  }
+
+  private static void writeTypeAdapterListMethods(Writer writer, String indent)
+      throws IOException {
+    String indent2 = indent + indent;
+    writer.append("\n").append(indent).append("private static <E> List<E> readList(")
+        .append("JsonReader jsonReader, TypeAdapter<E> elementAdapter)\n");
+    writer.append(indent2).append(indent).append("throws IOException {\n");
+    writer.append(indent2).append("List<E> list = new ArrayList<>();\n");
+    writer.append(indent2).append("jsonReader.beginArray();\n");
+    writer.append(indent2).append("while (jsonReader.hasNext()) {\n");
+    writer.append(indent2).append(indent).append("list.add(elementAdapter.read(jsonReader));\n");
+    writer.append(indent2).append("}\n");
+    writer.append(indent2).append("jsonReader.endArray();\n");
+    writer.append(indent2).append("return list;\n");
+    writer.append(indent).append("}\n");
+
+    writer.append("\n").append(indent).append("private static <E> void writeList(")
+        .append("JsonWriter jsonWriter, TypeAdapter<E> elementAdapter,\n");
+    writer.append(indent2).append(indent).append("List<E> list) throws IOException {\n");
+    writeTypeAdapterNullCheck(writer, indent, "list == null", "jsonWriter.nullValue();",
+        "return;");
+    writer.append(indent2).append("jsonWriter.beginArray();\n");
+    writer.append(indent2).append("for (E element : list) {\n");
+    writer.append(indent2).append(indent).append("elementAdapter.write(jsonWriter, element);\n");
+    writer.append(indent2).append("}\n");
+    writer.append(indent2).append("jsonWriter.endArray();\n");
+    writer.append(indent).append("}\n");
+  }
+
+  /** Writes methods that read and write an array of a primitive type without boxing */
+  private static void writeTypeAdapterArrayMethods(Writer writer, String indent,
+      String elementType) throws IOException {
+    String indent2 = indent + indent;
+    String arrayType = elementType + "[]";
+    writer.append("\n").append(indent).append("private static ").append(arrayType)
+        .append(" read").append(Utils.firstLetterUpperCase(elementType))
+        .append("Array(JsonReader jsonReader) throws IOException {\n");
+    writer.append(indent2).append(arrayType).append(" values = new ").append(elementType)
+        .append("[16];\n");
+    writer.append(indent2).append("int size = 0;\n");
+    writer.append(indent2).append("jsonReader.beginArray();\n");
+    writer.append(indent2).append("while (jsonReader.hasNext()) {\n");
+    writer.append(indent2).append(indent)
+        .append("if (size == values.length) values = Arrays.copyOf(values, size * 2);\n");
+    writer.append(indent2).append(indent).append("values[size++] = jsonReader.next")
+        .append(Utils.firstLetterUpperCase(elementType)).append("();\n");
+    writer.append(indent2).append("}\n");
+    writer.append(indent2).append("jsonReader.endArray();\n");
+    writer.append(indent2).append("return Arrays.copyOf(values, size);\n");
+    writer.append(indent).append("}\n");
+
+    writer.append("\n").append(indent).append("private static void writeArray(")
+        .append("JsonWriter jsonWriter, ").append(arrayType)
+        .append(" values) throws IOException {\n");
+    writeTypeAdapterNullCheck(writer, indent, "values == null", "jsonWriter.nullValue();",
+        "return;");
+    writer.append(indent2).append("jsonWriter.beginArray();\n");
+    writer.append(indent2).append("for (").append(elementType).append(" value : values) {\n");
+    writer.append(indent2).append(indent).append("jsonWriter.value(value);\n");
+    writer.append(indent2).append("}\n");
+    writer.append(indent2).append("jsonWriter.endArray();\n");
+    writer.append(indent).append("}\n");
+  }
+
+  /**
+   * Writes a view of this class: a class with the same accessors that reads the fields lazily
+   * from the UTF-8 bytes of a JSON object. Fields that refer to classes with views, or to lists
+   * of them, are views as well; values of types that views do not cover are read with Gson. The
+   * class must have been prepared with {@link #prepareForWriting()}.
+   *
+   * @param viewed the classes that have views, by name
+   */
+  void writeViewFile(Writer writer, String indent, String copyrightNotice, String viewPackage,
+      Map<String, ClassDefinition> viewed) throws IOException {
+    List<ClassField> parameters = getConstructorParameters();
+    String[] viewTypes = new String[parameters.size()];
+    String[] reads = new String[parameters.size()];
+    boolean needTypeToken = false;
+    for (int i = 0; i < parameters.size(); ++i) {
+      ClassField field = parameters.get(i);
+      String type = field.getTypeName();
+      String elementType = field.isListType()
+          ? type.substring("List<".length(), type.length() - 1) : null;
+      String view = viewTypeName(type, viewed);
+      String elementView = elementType == null ? null : viewTypeName(elementType, viewed);
+      String decoder = elementType == null ? null : VIEW_ELEMENT_DECODERS.get(elementType);
+      viewTypes[i] = type;
+      if (DIRECT_VIEW_TYPES.contains(type)) {
+        reads[i] = "read" + Utils.firstLetterUpperCase(type) + "(" + i + ")";
+      } else if (view != null) {
+        viewTypes[i] = view;
+        reads[i] = "readObject(" + i + ", " + view + "::new)";
+      } else if (elementView != null) {
+        viewTypes[i] = "List<" + elementView + ">";
+        reads[i] = "readList(" + i + ", " + elementView + "::new)";
+      } else if (decoder != null) {
+        reads[i] = "readList(" + i + ", " + VIEW_BASE_CLASS_NAME + "::" + decoder + ")";
+      } else if (type.contains("<")) {
+        needTypeToken = true;
+        reads[i] = "read(" + i + ", new TypeToken<" + type + ">() {}.getType())";
+      } else {
+        reads[i] = "read(" + i + ", " + type + ".class)";
+      }
+    }
+
+    if (copyrightNotice != null) writer.append(copyrightNotice);
+    writer.append("package ").append(pkg).append(";\n");
+    Set<String> viewImports = new TreeSet<>();
+    for (String importedClass : imports) {
+      if (!importedClass.endsWith(".SerializedName")) viewImports.add(importedClass);
+    }
+    if (needTypeToken) viewImports.add("com.google.gson.reflect.TypeToken");
+    if (!viewPackage.equals(pkg)) viewImports.add(viewPackage + "." + VIEW_BASE_CLASS_NAME);
+    if (viewImports.size() > 0) writer.append("\n");
+    for (String importedClass : viewImports) {
+      writer.append("import ").append(importedClass).append(";\n");
+    }
+
+    String viewName = getViewClassName();
+    writer.append("\npublic final class ").append(viewName).append(" extends ")
+        .append(VIEW_BASE_CLASS_NAME).append(" {\n");
+    String namesDeclaration = "private static final Names NAMES = new Names(";
+    writer.append(indent).append(namesDeclaration);
+    int lineLength = indent.length() + namesDeclaration.length();
+    for (int i = 0; i < parameters.size(); ++i) {
+      String name = "\"" + parameters.get(i).getJsonName() + "\"";
+      if (i > 0 && lineLength + name.length() + 3 > 100) {
+        writer.append(",\n").append(indent).append(indent).append(indent).append(indent);
+        lineLength = 4 * indent.length();
+      } else if (i > 0) {
+        writer.append(", ");
+        lineLength += 2;
+      }
+      writer.append(name);
+      lineLength += name.length();
+    }
+    writer.append(");\n\n");
+    for (int i = 0; i < parameters.size(); ++i) {
+      writer.append(indent).append("private ").append(viewTypes[i]).append(" ")
+          .append(parameters.get(i).getFieldName()).append(";\n");
+    }
+    if (parameters.size() > 0) writer.append("\n");
+    writer.append(indent).append("public ").append(viewName)
+        .append("(byte[] json, int offset) {\n");
+    writer.append(indent).append(indent).append("super(json, offset, NAMES);\n");
+    writer.append(indent).append("}\n");
+
+    writer.append("\n").append(indent)
+        .append("/** Returns a view of the JSON object held by json in UTF-8 */\n");
+    writer.append(indent).append("public static ").append(viewName)
+        .append(" of(byte[] json) {\n");
+    writer.append(indent).append(indent).append("return new ").append(viewName)
+        .append("(json, 0);\n");
+    writer.append(indent).append("}\n");
+    for (int i = 0; i < parameters.size(); ++i) {
+      ClassField field = parameters.get(i);
+      String fieldName = field.getFieldName();
+      writer.append("\n").append(indent).append("public ").append(viewTypes[i]).append(" ")
+          .append(field.getAccessorName()).append("() {\n");
+      writer.append(indent).append(indent).append("if (decode(").append(String.valueOf(i))
+          .append(")) ").append(fieldName).append(" = ").append(reads[i]).append(";\n");
+      writer.append(indent).append(indent).append("return ").append(fieldName).append(";\n");
+      writer.append(indent).append("}\n");
+    }
+    writer.append("}\n");
+  }
+
+  /** Returns the name to refer to the view of the class named type by, or null if it has none */
+  private String viewTypeName(String type, Map<String, ClassDefinition> viewed) {
+    ClassDefinition def = viewed.get(type);
+    if (def == null) return null;
+    return def.pkg.equals(pkg) ? def.getViewClassName() : def.pkg + "." + def.getViewClassName();
   }
 
+  /**
+   * Writes the accessors of the fields declared by this class.
+   *
+   * @deprecated use {@link SourceStyle#withAccessorTemplate(String)}. Overriding this still
+   *     changes the class, which is then not rendered from its source style.
+   */
+  @Deprecated
   protected void writeAccessorMethods(Writer writer, String indent) throws IOException {
-    for (ClassField field : fields) {
-      if (isBaseClassField(field)) continue;
+    for (ClassField field : getOwnFields()) {
       writer.append("\n");
       field.appendAccessorMethods(writer, 1, indent);
     }
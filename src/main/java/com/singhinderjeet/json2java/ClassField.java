@@ -16,12 +16,13 @@
 package com.singhinderjeet.json2java;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonPrimitive;
 import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
 
 /**
@@ -30,41 +31,111 @@ import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
  * @author Inderjeet Singh
  */
 public class ClassField {
+  /** Types that a generated TypeAdapter reads and writes directly instead of through Gson */
+  private static final Set<String> DIRECT_TYPES =
+      new HashSet<>(Arrays.asList("boolean", "int", "long", "double", "String", "int[]",
+          "long[]", "double[]"));
+  private static final Map<String, String> BOXED_TYPES = new HashMap<>();
+  static {
+    BOXED_TYPES.put("boolean", "Boolean");
+    BOXED_TYPES.put("int", "Integer");
+    BOXED_TYPES.put("long", "Long");
+    BOXED_TYPES.put("double", "Double");
+  }
 
-  private static final class InferredType {
-    final String type;
-    final boolean isArrayType;
-    public InferredType(String type, boolean isArrayType) {
-      this.type = type;
-      this.isArrayType = isArrayType;
+  /** The methods that wrote fields before {@link SourceStyle}, which subclasses may override */
+  private static final Set<String> APPEND_METHODS = new HashSet<>(Arrays.asList(
+      "appendtDeclaration", "appendAccessorMethods", "appendParameter", "appendParameterName",
+      "appendConstructorAssignment"));
+  private static final ClassValue<Boolean> OVERRIDES_APPEND_METHODS = new ClassValue<Boolean>() {
+    @Override protected Boolean computeValue(Class<?> type) {
+      return Utils.declaresAny(type, ClassField.class, APPEND_METHODS);
     }
-  }
+  };
+
   private final String jsonName;
-  private final Set<JsonElement> jsonValues = new HashSet<>();
+  private final TypeAccumulator types;
   private String fieldName;
   private String type;
   private boolean mappedType;
   private boolean isArrayType;
+  private NumericArrayStyle numericArrayStyle = NumericArrayStyle.LIST;
+  /** Cached result of {@link #getTypeName()}, cleared whenever the inputs to it change */
+  private String typeName;
 
   public ClassField(String jsonName, JsonElement jsonValue, String type, boolean isArrayType) {
+    this(jsonName, type, isArrayType);
+    this.types.add(jsonValue);
+  }
+
+  /** Creates a field whose values are supplied later through {@link #addJsonValue(JsonElement)} */
+  ClassField(String jsonName, String type, boolean isArrayType) {
+    this(jsonName, null, type, false, isArrayType, new TypeAccumulator());
+  }
+
+  /** Recreates a field with the state returned by its accessors, used to load snapshots */
+  ClassField(String jsonName, String fieldName, String type, boolean mappedType,
+      boolean isArrayType, TypeAccumulator types) {
     this.jsonName = jsonName;
-    this.jsonValues.add(jsonValue);
+    this.fieldName = fieldName;
     this.type = type;
+    this.mappedType = mappedType;
     this.isArrayType = isArrayType;
+    this.types = types;
   }
 
-  public void merge(ClassField other) {
-    if (this.jsonName.equals(other.jsonName)) {
-      this.jsonValues.addAll(other.jsonValues);
-    }
+  void addJsonValue(JsonElement jsonValue) {
+    this.types.add(jsonValue);
+    this.typeName = null;
+  }
+
+  /**
+   * Returns a value of each kind seen for this field, such as an int, a string or an array of
+   * doubles, from which the same type is inferred.
+   *
+   * @deprecated the values seen are no longer retained, only their kinds. The returned values are
+   *     samples of those kinds, created on each call, and adding to the set has no effect.
+   */
+  @Deprecated
+  public Set<JsonElement> getJsonValues() {
+    return new HashSet<>(types.getSampleValues());
+  }
+
+  /**
+   * Returns the accumulator recording the kinds of values seen for this field. Callers that add
+   * values to it directly must do so before the type name is first queried.
+   */
+  TypeAccumulator getTypes() {
+    return types;
+  }
+
+  /** Merges the values seen by other, returning whether that widened the type */
+  public boolean merge(ClassField other) {
+    if (!this.jsonName.equals(other.jsonName) || !this.types.merge(other.types)) return false;
+    this.typeName = null;
+    return true;
   }
 
   public String getJsonName() {
     return jsonName;
   }
 
-  public Set<JsonElement> getJsonValues() {
-    return jsonValues;
+  /** Returns the field name set by a mapping, or null if it is derived from the JSON name */
+  String getMappedFieldName() {
+    return fieldName;
+  }
+
+  /** Returns the type this field was created or mapped with, before inference */
+  String getDeclaredType() {
+    return type;
+  }
+
+  boolean isMappedType() {
+    return mappedType;
+  }
+
+  boolean isDeclaredArrayType() {
+    return isArrayType;
   }
 
   public String getFieldName() {
@@ -93,6 +164,18 @@ public class ClassField {
       this.mappedType = true;
       this.type = mappedType;
       this.isArrayType = isArrayType;
+      this.typeName = null;
+    }
+  }
+
+  /**
+   * Makes a field that refers to the class named type refer to the class named replacement
+   * instead, keeping the type inferred from its values.
+   */
+  void replaceType(String type, String replacement) {
+    if (this.type.equals(type)) {
+      this.type = replacement;
+      this.typeName = null;
     }
   }
 
@@ -102,63 +185,59 @@ public class ClassField {
     }
   }
 
+  void setNumericArrayStyle(NumericArrayStyle numericArrayStyle) {
+    if (this.numericArrayStyle == numericArrayStyle) return;
+    this.numericArrayStyle = numericArrayStyle;
+    this.typeName = null;
+  }
+
   public String getTypeName() {
-    InferredType inferredType = inferType(jsonValues, type, isArrayType);
-    StringBuilder sb = new StringBuilder();
-    if (inferredType.isArrayType) sb.append("List<");
-    sb.append(inferredType.type);
-    if (inferredType.isArrayType) sb.append(">");
-    return sb.toString();
+    if (typeName == null) typeName = inferTypeName();
+    return typeName;
   }
 
   /**
    * Based on the seen json values, infer a type for this field.
-   * Strings are mapped to String. numbers are preferred mapped to ints, then longs and finally as doubles.
+   * Strings are mapped to String. numbers are preferred mapped to ints, then longs and finally
+   * as doubles.
    */
-  private InferredType inferType(Iterable<JsonElement> jsonValues, String type, boolean isArrayType) {
-    if (mappedType) return new InferredType(type, isArrayType);
-    InferredType inferredType = new InferredType(type, isArrayType);
-    for (JsonElement jsonValue : jsonValues) {
-      if (jsonValue instanceof JsonPrimitive) {
-        JsonPrimitive primitive = jsonValue.getAsJsonPrimitive();
-        if (isBooleanValue(primitive)) {
-          inferredType = new InferredType("boolean", false);
-        } else if (primitive.isString()) {
-          inferredType = new InferredType("String", false);
-        } else if (primitive.isNumber()) {
-          double number = primitive.getAsDouble();
-          boolean isWholeNumber = number - Math.ceil(number) == 0;
-          if (isWholeNumber) { // int is preferred over long so look for that
-            long longValue = (long) number;
-            boolean isLargerThanInt = longValue > Integer.MAX_VALUE || longValue < Integer.MIN_VALUE;
-            if (isLargerThanInt && !inferredType.type.equals("double")) { // some other value was a floating point
-              inferredType = new InferredType("long", false);
-            } else { // some other jsonValue was big enough to fit in long
-              if (!inferredType.equals("long") && !inferredType.equals("double")) {
-                inferredType = new InferredType("int", false);
-              }
-            }
-          } else { // double is preferred over float
-            inferredType = new InferredType("double", false);
-          }
-        }
-      } else if (jsonValue instanceof JsonArray) {
-        this.isArrayType = true;
-        inferredType = new InferredType(inferType(jsonValue.getAsJsonArray(), type, false).type, true);
-      }
-    }
-    return inferredType;
+  private String inferTypeName() {
+    boolean isArray = mappedType ? isArrayType : isArrayType || types.isArray();
+    String elementType = getElementTypeName();
+    if (!isArray) return elementType;
+    String numericArrayType = getNumericArrayType(elementType);
+    if (numericArrayType != null) return numericArrayType;
+    String boxed = BOXED_TYPES.get(elementType);
+    return "List<" + (boxed == null ? elementType : boxed) + ">";
   }
 
-  private boolean isBooleanValue(JsonPrimitive primitive) {
-    boolean isBoolean = primitive.isBoolean();
-    if (!isBoolean && primitive.isString()) {
-      String value = primitive.getAsString();
-      isBoolean = value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false");
-    }
-    return isBoolean;
+  /** Returns the type of this field, or of its elements for arrays */
+  String getElementTypeName() {
+    return mappedType ? type : types.getTypeName(type);
   }
 
+  /**
+   * Returns the type given by the {@link NumericArrayStyle} for an array of elementType, or null.
+   * Inferred arrays qualify only if all their elements were numbers.
+   */
+  private String getNumericArrayType(String elementType) {
+    boolean numeric = mappedType || types.getElements() != null && types.getElements().isNumeric();
+    return numeric ? numericArrayStyle.getTypeName(elementType) : null;
+  }
+
+  /** Returns the class to import for the type of this field, or null if there is none */
+  String getTypeImport() {
+    String elementType = getElementTypeName();
+    String numericArrayType = getNumericArrayType(elementType);
+    return numericArrayType != null && numericArrayType.equals(getTypeName())
+        ? numericArrayStyle.getImport(elementType) : null;
+  }
+
+  /**
+   * @deprecated use {@link SourceStyle#withFieldTemplate(String)}. Overriding this still
+   *     changes the classes that write this field, which are then not rendered from a style.
+   */
+  @Deprecated
   public void appendtDeclaration(Appendable appendable, int indentLevel, String indent)
       throws IOException {
     for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
@@ -169,36 +248,174 @@ public class ClassField {
     appendable.append("private final " + getTypeName() + " " + getFieldName() + ";\n");
   }
 
+  /**
+   * @deprecated use {@link SourceStyle#withAccessorTemplate(String)}. Overriding this still
+   *     changes the classes that write this field, which are then not rendered from a style.
+   */
+  @Deprecated
   public void appendAccessorMethods(Appendable appendable, int indentLevel, String indent)
       throws IOException {
     for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
-    String typeName = getTypeName();
-    boolean isBoolean = "Boolean".equals(typeName) || "boolean".equals(typeName);
-    String getterPrefix = isBoolean ? "is" : "get";
-    appendable.append("public " + typeName + " " + getterPrefix + Utils.firstLetterUpperCase(getFieldName()) + "() {\n");
+    appendable.append("public " + getTypeName() + " " + getAccessorName() + "() {\n");
     for (int i = 0; i < indentLevel + 1; ++i) appendable.append(indent);
     appendable.append("return " + getFieldName() + ";\n");
     for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
     appendable.append("}\n");
   }
 
+  /** Name of the getter of this field */
+  public String getAccessorName() {
+    String typeName = getTypeName();
+    boolean isBoolean = "Boolean".equals(typeName) || "boolean".equals(typeName);
+    String getterPrefix = isBoolean ? "is" : "get";
+    return getterPrefix + Utils.firstLetterUpperCase(getFieldName());
+  }
+
+  /** Appends {@link #getAccessorName()} without building it as a string */
+  void appendAccessorName(StringBuilder out) {
+    String typeName = getTypeName();
+    boolean isBoolean = "Boolean".equals(typeName) || "boolean".equals(typeName);
+    String fieldName = getFieldName();
+    out.append(isBoolean ? "is" : "get").append(Character.toUpperCase(fieldName.charAt(0)))
+        .append(fieldName, 1, fieldName.length());
+  }
+
   public void appendParameterName(Appendable appendable) throws IOException {
     appendable.append(getFieldName());
   }
 
+  /**
+   * @deprecated use {@link SourceStyle#withConstructorTemplate(String)}. Overriding this still
+   *     changes the classes that write this field, which are then not rendered from a style.
+   */
+  @Deprecated
   public void appendParameter(Appendable appendable) throws IOException {
     appendable.append(getTypeName()).append(" ").append(getFieldName());
   }
 
+  /**
+   * @deprecated use {@link SourceStyle#withConstructorTemplate(String)}. Overriding this still
+   *     changes the classes that write this field, which are then not rendered from a style.
+   */
+  @Deprecated
   public void appendConstructorAssignment(Appendable appendable, int indentLevel, String indent)
       throws IOException {
     for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
-    appendable.append("this.").append(getFieldName()).append(" = ").append(getFieldName()).append(";");
+    appendable.append("this.").append(getFieldName()).append(" = ").append(getFieldName())
+        .append(";");
+  }
+
+  /**
+   * Returns whether this is a subclass that overrides one of the append methods, so that the
+   * classes writing it are written by those methods instead of their {@link SourceStyle}.
+   */
+  boolean overridesAppendMethods() {
+    return OVERRIDES_APPEND_METHODS.get(getClass());
+  }
+
+  boolean isListType() {
+    return getTypeName().startsWith("List<");
+  }
+
+  /**
+   * Returns the type that a generated TypeAdapter reads and writes through a delegate adapter
+   * obtained from Gson, or null if the values are read directly. For lists this is the element
+   * type.
+   */
+  String getAdaptedType() {
+    String typeName = getTypeName();
+    if (isListType()) return typeName.substring("List<".length(), typeName.length() - 1);
+    return DIRECT_TYPES.contains(typeName) ? null : typeName;
+  }
+
+  /** Returns the name of the TypeAdapter field that a generated TypeAdapter uses for type */
+  static String getAdapterFieldName(String type) {
+    StringBuilder name = new StringBuilder();
+    for (char c : type.toCharArray()) {
+      if (Character.isJavaIdentifierPart(c)) name.append(c);
+    }
+    name.setCharAt(0, Character.toLowerCase(name.charAt(0)));
+    return name.append("Adapter").toString();
+  }
+
+  /** Appends the declaration of a local variable that holds the value of this field while read */
+  void appendTypeAdapterLocal(Appendable appendable, int indentLevel, String indent)
+      throws IOException {
+    for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
+    String typeName = getTypeName();
+    String initialValue = "boolean".equals(typeName) ? "false"
+        : BOXED_TYPES.containsKey(typeName) ? "0" : "null";
+    appendable.append(typeName).append(" ").append(getFieldName())
+        .append(" = ").append(initialValue).append(";\n");
+  }
+
+  /** Appends the switch case that reads this field from jsonReader into its local variable */
+  void appendTypeAdapterRead(Appendable appendable, int indentLevel, String indent)
+      throws IOException {
+    for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
+    appendable.append("case \"").append(jsonName).append("\":\n");
+    for (int i = 0; i < indentLevel + 1; ++i) appendable.append(indent);
+    appendable.append(getFieldName()).append(" = ");
+    String typeName = getTypeName();
+    String adaptedType = getAdaptedType();
+    if (isListType()) {
+      appendable.append("readList(jsonReader, ").append(getAdapterFieldName(adaptedType))
+          .append(")");
+    } else if (adaptedType != null) {
+      appendable.append(getAdapterFieldName(adaptedType)).append(".read(jsonReader)");
+    } else if (typeName.endsWith("[]")) {
+      appendable.append("read").append(Utils.firstLetterUpperCase(typeName.replace("[]", "")))
+          .append("Array(jsonReader)");
+    } else if ("boolean".equals(typeName)) { // booleans may be quoted, as Gson allows
+      appendable.append("jsonReader.peek() == JsonToken.STRING\n");
+      for (int i = 0; i < indentLevel + 3; ++i) appendable.append(indent);
+      appendable.append("? Boolean.parseBoolean(jsonReader.nextString())")
+          .append(" : jsonReader.nextBoolean()");
+    } else if ("String".equals(typeName)) { // strings may be written as booleans
+      appendable.append("jsonReader.peek() == JsonToken.BOOLEAN\n");
+      for (int i = 0; i < indentLevel + 3; ++i) appendable.append(indent);
+      appendable.append("? Boolean.toString(jsonReader.nextBoolean())")
+          .append(" : jsonReader.nextString()");
+    } else {
+      appendable.append("jsonReader.next").append(Utils.firstLetterUpperCase(typeName))
+          .append("()");
+    }
+    appendable.append(";\n");
+    for (int i = 0; i < indentLevel + 1; ++i) appendable.append(indent);
+    appendable.append("break;\n");
+  }
+
+  /** Appends the statements that write this field of value to jsonWriter */
+  void appendTypeAdapterWrite(Appendable appendable, int indentLevel, String indent)
+      throws IOException {
+    for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
+    appendable.append("jsonWriter.name(\"").append(jsonName).append("\")");
+    String getter = "value." + getAccessorName() + "()";
+    String adaptedType = getAdaptedType();
+    if (getTypeName().endsWith("[]")) {
+      appendable.append(";\n");
+      for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
+      appendable.append("writeArray(jsonWriter, ").append(getter).append(");\n");
+      return;
+    }
+    if (adaptedType == null) {
+      appendable.append(".value(").append(getter).append(");\n");
+      return;
+    }
+    appendable.append(";\n");
+    for (int i = 0; i < indentLevel; ++i) appendable.append(indent);
+    if (isListType()) {
+      appendable.append("writeList(jsonWriter, ").append(getAdapterFieldName(adaptedType))
+          .append(", ").append(getter).append(");\n");
+    } else {
+      appendable.append(getAdapterFieldName(adaptedType)).append(".write(jsonWriter, ")
+          .append(getter).append(");\n");
+    }
   }
 
   @Override
   public String toString() {
-    return "ClassField [jsonName=" + jsonName + ", jsonValues=" + jsonValues + ", fieldName="
+    return "ClassField [jsonName=" + jsonName + ", types=" + types + ", fieldName="
         + fieldName + ", type=" + type + ", mappedType=" + mappedType + ", isArrayType="
         + isArrayType + "]";
   }
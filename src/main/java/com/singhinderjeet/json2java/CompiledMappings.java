@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
+import com.singhinderjeet.json2java.CustomMappings.MappedTypeName;
+import com.singhinderjeet.json2java.CustomMappings.MovedFieldName;
+
+/**
+ * Immutable lookup tables built from a {@link CustomMappings}, so that
+ * {@link ClassDefCollection#transform(CustomMappings)} can apply the mappings in a single pass over
+ * the classes instead of a pass for each mapping.
+ *
+ * <p>Type mappings are applied in order, and a type produced by one mapping is mapped again by any
+ * later mapping of that type. The tables resolve these chains up front.
+ *
+ * @author Inderjeet Singh
+ */
+final class CompiledMappings {
+  final List<Map.Entry<String, String>> subTypes;
+  private final String[] origTypes;
+  private final MappedTypeName[] mappedTypes;
+  /** Maps a type name to the index of the type mapping for it */
+  private final Map<String, Integer> typeIndexes;
+  /** Maps a type name to the type it ends up as after all the type mappings */
+  private final Map<String, MappedTypeName> resolvedTypes;
+  /** Type names that are mapped or mapped to */
+  private final Set<String> mentionedTypes;
+  private final MappedFieldName[] fieldNames;
+  /** Maps a class name and then a JSON name to the index of its last field name mapping */
+  private final Map<String, Map<String, Integer>> fieldNameIndexes;
+  final List<MovedFieldName> movedFields;
+  /** Maps a class name to the JSON names of its deleted fields */
+  private final Map<String, Set<String>> deletedFields;
+  /** The mappings by JsonPath, applied while reading documents rather than by the transform */
+  final JsonPathMatcher paths;
+
+  CompiledMappings(CustomMappings mappings, JsonPathMatcher paths) {
+    this.paths = paths;
+    subTypes = Collections.unmodifiableList(new ArrayList<>(mappings.subTypesEntrySet()));
+
+    int count = mappings.typesEntrySet().size();
+    origTypes = new String[count];
+    mappedTypes = new MappedTypeName[count];
+    typeIndexes = new HashMap<>();
+    mentionedTypes = new LinkedHashSet<>();
+    int i = 0;
+    for (Map.Entry<String, MappedTypeName> mapping : mappings.typesEntrySet()) {
+      origTypes[i] = mapping.getKey();
+      mappedTypes[i] = mapping.getValue();
+      typeIndexes.put(origTypes[i], i);
+      mentionedTypes.add(origTypes[i]);
+      mentionedTypes.add(mappedTypes[i].name);
+      ++i;
+    }
+    resolvedTypes = new HashMap<>();
+    for (i = count - 1; i >= 0; --i) { // later mappings are resolved first
+      MappedTypeName resolved = mappedTypes[i];
+      Integer next = typeIndexes.get(resolved.name);
+      if (next != null && next > i) resolved = resolvedTypes.get(origTypes[next]);
+      resolvedTypes.put(origTypes[i], resolved);
+    }
+
+    fieldNames = mappings.fieldNameMappings().toArray(new MappedFieldName[0]);
+    fieldNameIndexes = new LinkedHashMap<>();
+    for (i = 0; i < fieldNames.length; ++i) {
+      fieldNameIndexes.computeIfAbsent(fieldNames[i].className, k -> new LinkedHashMap<>())
+          .put(fieldNames[i].jsonName, i);
+    }
+    movedFields = Collections.unmodifiableList(new ArrayList<>(mappings.movedFieldNames()));
+    deletedFields = new LinkedHashMap<>();
+    for (MappedFieldName deleted : mappings.deletedFields()) {
+      deletedFields.computeIfAbsent(deleted.className, k -> new LinkedHashSet<>())
+          .add(deleted.jsonName);
+    }
+  }
+
+  int getTypeMappingCount() {
+    return origTypes.length;
+  }
+
+  String getOrigType(int index) {
+    return origTypes[index];
+  }
+
+  String getMappedType(int index) {
+    return mappedTypes[index].name;
+  }
+
+  /** Returns whether a type mapping maps typeName or maps another type to it */
+  boolean isMentionedType(String typeName) {
+    return mentionedTypes.contains(typeName);
+  }
+
+  /** Returns what typeName is mapped to by all the type mappings, or null if it is not mapped */
+  MappedTypeName resolveType(String typeName) {
+    return resolvedTypes.get(typeName);
+  }
+
+  /**
+   * Returns what typeName is mapped to by the type mappings before the one at index limit, or
+   * null if it is not mapped by them.
+   */
+  MappedTypeName resolveType(String typeName, int limit) {
+    MappedTypeName resolved = null;
+    int last = -1;
+    while (true) {
+      Integer index = typeIndexes.get(typeName);
+      if (index == null || index <= last || index >= limit) return resolved;
+      resolved = mappedTypes[index];
+      typeName = resolved.name;
+      last = index;
+    }
+  }
+
+  /** Returns the class names that have field name mappings */
+  Set<String> getFieldNameMappedClasses() {
+    return fieldNameIndexes.keySet();
+  }
+
+  /**
+   * Returns the indexes of the field name mappings of a class by JSON name. Where a JSON name is
+   * mapped more than once, only the last mapping is included.
+   */
+  Map<String, Integer> getFieldNameIndexes(String className) {
+    return fieldNameIndexes.get(className);
+  }
+
+  MappedFieldName getFieldName(int index) {
+    return fieldNames[index];
+  }
+
+  /** Returns the class names that have deleted fields */
+  Set<String> getDeletedFieldClasses() {
+    return deletedFields.keySet();
+  }
+
+  Set<String> getDeletedFields(String className) {
+    return deletedFields.get(className);
+  }
+}
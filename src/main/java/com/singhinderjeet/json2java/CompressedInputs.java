@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Opens gzip compressed files and the entries of zip files as JSON input. Inflating runs on a
+ * thread of its own, see {@link PipelinedInputStream}.
+ *
+ * @author Inderjeet Singh
+ */
+final class CompressedInputs {
+  private static final int GZIP_MAGIC = 0x8b1f;
+
+  private CompressedInputs() {
+  }
+
+  /** Opens the file, decompressing it if it starts with the gzip magic number */
+  static InputStream open(File file) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(file),
+        PipelinedInputStream.BUFFER_SIZE);
+    try {
+      if (!isGzip(in)) return in;
+      return new PipelinedInputStream(new GZIPInputStream(in, PipelinedInputStream.BUFFER_SIZE),
+          file.getName());
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  static boolean isGzip(File file) throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file), 2)) {
+      return isGzip(in);
+    }
+  }
+
+  /** Checks the first two bytes of a stream that supports mark, leaving them unread */
+  private static boolean isGzip(InputStream in) throws IOException {
+    in.mark(2);
+    int magic = in.read() | in.read() << 8;
+    in.reset();
+    return magic == GZIP_MAGIC;
+  }
+
+  static boolean isZip(File file) {
+    return file.getName().toLowerCase().endsWith(".zip");
+  }
+
+  /** Returns a source for each .json entry of the zip file, in the order of the entries */
+  static List<JsonSource> zipEntries(File zip) throws IOException {
+    List<JsonSource> sources = new ArrayList<>();
+    try (ZipFile zipFile = new ZipFile(zip)) {
+      for (Enumeration<? extends ZipEntry> entries = zipFile.entries();
+          entries.hasMoreElements();) {
+        ZipEntry entry = entries.nextElement();
+        if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(".json")) continue;
+        String name = entry.getName();
+        sources.add(new Utf8JsonSource(() -> openEntry(zip, name)));
+      }
+    }
+    return sources;
+  }
+
+  private static InputStream openEntry(File zip, String name) throws IOException {
+    ZipFile zipFile = new ZipFile(zip);
+    try {
+      ZipEntry entry = zipFile.getEntry(name);
+      if (entry == null) throw new IOException("No entry " + name + " in " + zip);
+      InputStream in = new FilterInputStream(zipFile.getInputStream(entry)) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            zipFile.close();
+          }
+        }
+      };
+      return new PipelinedInputStream(in, zip.getName() + "!" + name);
+    } catch (IOException | RuntimeException e) {
+      zipFile.close();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+/**
+ * Decides when to stop inferring classes from the elements of an array or a stream of records.
+ * Once a number of consecutive elements have added no new class, field or wider type, the
+ * schema is considered converged and the remaining elements are either skipped or sampled at a
+ * rate that halves after every sample that adds nothing new. A sample that does add something
+ * resets the policy.
+ *
+ * @author Inderjeet Singh
+ */
+public final class ConvergencePolicy {
+
+  /** Processes every element */
+  public static final ConvergencePolicy NONE = new ConvergencePolicy(Integer.MAX_VALUE, false);
+
+  private static final long MAX_SAMPLE_GAP = 1L << 40;
+
+  private final int patience;
+  private final boolean sample;
+
+  private ConvergencePolicy(int patience, boolean sample) {
+    this.patience = patience;
+    this.sample = sample;
+  }
+
+  /**
+   * Skips all remaining elements after patience consecutive elements added nothing new.
+   *
+   * @throws IllegalArgumentException if patience is less than 1
+   */
+  public static ConvergencePolicy skipAfter(int patience) {
+    return new ConvergencePolicy(checkPatience(patience), false);
+  }
+
+  /**
+   * After patience consecutive elements added nothing new, processes only 1 of the next 2
+   * elements, then 1 of the next 3, 5, 9 and so on.
+   *
+   * @throws IllegalArgumentException if patience is less than 1
+   */
+  public static ConvergencePolicy sampleAfter(int patience) {
+    return new ConvergencePolicy(checkPatience(patience), true);
+  }
+
+  /** A patience of 0 would skip every element after the first, which is never what is meant */
+  private static int checkPatience(int patience) {
+    if (patience < 1) throw new IllegalArgumentException("Invalid patience " + patience);
+    return patience;
+  }
+
+  Tracker newTracker() {
+    return new Tracker();
+  }
+
+  /** Convergence state of a single array or record stream */
+  final class Tracker {
+    private int unchanged;
+    private long gap = 1;
+    private long untilNextSample;
+    private long skipped;
+
+    /** Returns whether the next element should be processed, counting it as skipped if not */
+    boolean shouldProcess() {
+      if (unchanged < patience) return true;
+      if (sample && untilNextSample == 0) return true;
+      if (sample) --untilNextSample;
+      ++skipped;
+      return false;
+    }
+
+    /** Records whether a processed element changed the inferred classes */
+    void processed(boolean changed) {
+      if (changed) {
+        unchanged = 0;
+        gap = 1;
+        untilNextSample = 0;
+        return;
+      }
+      if (unchanged < patience) ++unchanged;
+      if (unchanged == patience && sample) {
+        untilNextSample = gap;
+        if (gap < MAX_SAMPLE_GAP) gap <<= 1;
+      }
+    }
+
+    long getSkipped() {
+      return skipped;
+    }
+  }
+}
@@ -15,7 +15,11 @@
  */
 package com.singhinderjeet.json2java;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,49 +65,88 @@ public class CustomMappings {
   private final List<MovedFieldName> movedFieldNames = new ArrayList<>();
   private final Map<String, String> mappedSubTypes = new HashMap<>();
   private final List<MappedFieldName> deletedFieldNames = new ArrayList<>();
+  private final List<String> paths = new ArrayList<>();
+  private final List<JsonPathMatcher.Action> pathActions = new ArrayList<>();
+  /** Lookup tables for the current mappings, built on first use and dropped on any change */
+  private volatile CompiledMappings compiled;
 
   /**
    * replaces all classes of type name with mappedName.
    */
   public CustomMappings mapType(String name, String mappedName) {
     mappedTypes.put(name, new MappedTypeName(mappedName, false));
+    compiled = null;
     return this;
   }
 
   public CustomMappings mapToArrayType(String name, String mappedArrayElementName) {
     mappedTypes.put(name, new MappedTypeName(mappedArrayElementName, true));
+    compiled = null;
     return this;
   }
 
   public CustomMappings mapFieldName(String className, String jsonName, String fieldName) {
     mappedFieldNames.add(new MappedFieldName(className, jsonName, fieldName));
+    compiled = null;
     return this;
   }
 
   public CustomMappings deleteFieldName(String className, String jsonName) {
     deletedFieldNames.add(new MappedFieldName(className, jsonName, null));
+    compiled = null;
     return this;
   }
 
   public CustomMappings moveFieldToSubType(String fieldJsonName, String baseType, String subType) {
     this.movedFieldNames.add(new MovedFieldName(fieldJsonName, baseType, subType));
+    compiled = null;
+    return this;
+  }
+
+  /**
+   * Gives the fields at the JsonPath expression path the type mappedName, or a List of it for
+   * arrays. Their values are skipped while reading, so no classes are inferred from them. See
+   * {@link JsonPathMatcher} for the supported expressions, such as {@code $.results[*].geometry}.
+   */
+  public CustomMappings mapPath(String path, String mappedName) {
+    return addPath(path, new JsonPathMatcher.Action(JsonPathMatcher.Action.Kind.MAP, mappedName));
+  }
+
+  /**
+   * Types the fields at the JsonPath expression path as JsonElement, leaving their values to be
+   * read as a tree. Their values are skipped while reading.
+   */
+  public CustomMappings skipPath(String path) {
+    return addPath(path, new JsonPathMatcher.Action(JsonPathMatcher.Action.Kind.SKIP, null));
+  }
+
+  /** Drops the fields at the JsonPath expression path. Their values are skipped while reading. */
+  public CustomMappings deletePath(String path) {
+    return addPath(path, new JsonPathMatcher.Action(JsonPathMatcher.Action.Kind.DELETE, null));
+  }
+
+  private CustomMappings addPath(String path, JsonPathMatcher.Action action) {
+    JsonPathMatcher.checkPath(path);
+    paths.add(path);
+    pathActions.add(action);
+    compiled = null;
     return this;
   }
 
   public Set<Map.Entry<String, MappedTypeName>> typesEntrySet() {
-    return mappedTypes.entrySet();
+    return Collections.unmodifiableMap(mappedTypes).entrySet();
   }
 
   public List<MappedFieldName> fieldNameMappings() {
-    return mappedFieldNames;
+    return Collections.unmodifiableList(mappedFieldNames);
   }
 
   public List<MappedFieldName> deletedFields() {
-    return deletedFieldNames;
+    return Collections.unmodifiableList(deletedFieldNames);
   }
 
   public List<MovedFieldName> movedFieldNames() {
-    return movedFieldNames;
+    return Collections.unmodifiableList(movedFieldNames);
   }
 
   public CustomMappings addMappings(CustomMappings other) {
@@ -112,16 +155,74 @@ public class CustomMappings {
       this.mappedFieldNames.addAll(other.mappedFieldNames);
       this.deletedFieldNames.addAll(other.deletedFieldNames);
       this.movedFieldNames.addAll(other.movedFieldNames);
+      this.paths.addAll(other.paths);
+      this.pathActions.addAll(other.pathActions);
+      compiled = null;
     }
     return this;
   }
 
   public Set<Map.Entry<String,String>> subTypesEntrySet() {
-      return mappedSubTypes.entrySet();
+      return Collections.unmodifiableMap(mappedSubTypes).entrySet();
   }
 
   public CustomMappings mapSubType(String subType, String baseType) {
       this.mappedSubTypes.put(subType, baseType);
+      compiled = null;
       return this;
   }
+
+  /**
+   * Returns lookup tables for these mappings, built once and reused until the mappings change.
+   * The accessors return read-only views, so every change goes through a method that drops them.
+   */
+  CompiledMappings compile() {
+    CompiledMappings tables = compiled;
+    if (tables == null) {
+      tables = new CompiledMappings(this, new JsonPathMatcher(paths, pathActions));
+      compiled = tables;
+    }
+    return tables;
+  }
+
+  /**
+   * Reads mappings, one per line, written as the name of a mapping method of this class followed
+   * by its arguments separated by whitespace. For example: {@code mapType Northeast Location}.
+   * Blank lines and lines starting with # are ignored.
+   */
+  public static CustomMappings read(Reader reader) throws IOException {
+    CustomMappings mappings = new CustomMappings();
+    BufferedReader lines = new BufferedReader(reader);
+    int lineNumber = 0;
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      ++lineNumber;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) continue;
+      String[] parts = line.split("\\s+");
+      String method = parts[0];
+      int argCount = parts.length - 1;
+      if (method.equals("mapType") && argCount == 2) {
+        mappings.mapType(parts[1], parts[2]);
+      } else if (method.equals("mapToArrayType") && argCount == 2) {
+        mappings.mapToArrayType(parts[1], parts[2]);
+      } else if (method.equals("mapFieldName") && argCount == 3) {
+        mappings.mapFieldName(parts[1], parts[2], parts[3]);
+      } else if (method.equals("deleteFieldName") && argCount == 2) {
+        mappings.deleteFieldName(parts[1], parts[2]);
+      } else if (method.equals("moveFieldToSubType") && argCount == 3) {
+        mappings.moveFieldToSubType(parts[1], parts[2], parts[3]);
+      } else if (method.equals("mapSubType") && argCount == 2) {
+        mappings.mapSubType(parts[1], parts[2]);
+      } else if (method.equals("mapPath") && argCount == 2) {
+        mappings.mapPath(parts[1], parts[2]);
+      } else if (method.equals("skipPath") && argCount == 1) {
+        mappings.skipPath(parts[1]);
+      } else if (method.equals("deletePath") && argCount == 1) {
+        mappings.deletePath(parts[1]);
+      } else {
+        throw new IllegalArgumentException("Invalid mapping at line " + lineNumber + ": " + line);
+      }
+    }
+    return mappings;
+  }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link SourceSink} that writes each source to its own file under a directory.
+ *
+ * @author Inderjeet Singh
+ */
+final class DirectorySourceSink implements SourceSink {
+  private final File dir;
+  private final Set<File> createdDirs = new HashSet<>();
+
+  DirectorySourceSink(File dir) {
+    this.dir = dir.getAbsoluteFile();
+  }
+
+  @Override
+  public File write(String path, byte[] bytes) throws IOException {
+    File file = new File(dir, path.replace('/', File.separatorChar));
+    File parent = file.getParentFile();
+    if (createdDirs.add(parent)) parent.mkdirs();
+    Files.write(file.toPath(), bytes);
+    return file;
+  }
+
+  @Override
+  public void close() {
+  }
+}
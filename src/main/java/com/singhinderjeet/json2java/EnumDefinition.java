@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Definition of an enum class.
@@ -25,6 +26,15 @@ public class EnumDefinition extends ClassDefinition {
     return this;
   }
 
+  List<String> getJavaNames() {
+    return javaNames;
+  }
+
+  /** JSON names of the values, in the same order as {@link #getJavaNames()}; may contain nulls */
+  List<String> getJsonNames() {
+    return jsonNames;
+  }
+
   @Override
   protected boolean needSerializedNameImport() {
     for (int i = 0; i < javaNames.size(); ++i) {
@@ -37,27 +47,85 @@ public class EnumDefinition extends ClassDefinition {
     return false;
   }
 
+  @Override
+  void appendStyledClassBody(StringBuilder out, String indent) {
+    sourceStyle.appendEnum(this, out, indent);
+  }
+
+  /**
+   * @deprecated use {@link SourceStyle#withEnumTemplate(String)}. Overriding this still changes
+   *     the enum, which is then not rendered from its source style.
+   */
+  @Deprecated
   @Override
   protected void writeClassBody(Writer writer, String indent) throws IOException {
     writer.append("public enum ").append(className);
     if (baseClass != null) writer.append(" extends ").append(baseClass.getClassName());
     writer.append(" {\n");
-    writeEnumValues(writer, indent, 1);
-    writer.append("}\n");
-  }
-
-  private void writeEnumValues(Writer writer, String indent, int indentLevel) throws IOException {
     int count = javaNames.size();
     for (int i = 0; i < count; ++i) {
       String javaName = javaNames.get(i);
       String jsonName = jsonNames.get(i);
-      for (int j = 0; j < indentLevel; ++j) writer.append(indent);
+      writer.append(indent);
       if (jsonName != null && !jsonName.equals(javaName)) {
         writer.append("@SerializedName(\"").append(jsonName).append("\") ");
       }
       writer.append(javaName);
-      if (i != count-1) writer.append(",");
+      if (i != count - 1) writer.append(",");
       writer.append("\n");
     }
+    writer.append("}\n");
+  }
+
+  @Override
+  protected void addTypeAdapterImports(Set<String> adapterImports) {
+  }
+
+  /** Maps each value to and from its JSON name with a switch, instead of Gson's reflection */
+  @Override
+  protected void writeTypeAdapterBody(Writer writer, String indent) throws IOException {
+    String adapterName = getTypeAdapterClassName();
+    String indent2 = indent + indent;
+    writer.append("public final class ").append(adapterName)
+        .append(" extends TypeAdapter<").append(className).append("> {\n");
+    writer.append(indent).append("public ").append(adapterName).append("(Gson gson) {\n");
+    writer.append(indent).append("}\n");
+
+    writer.append("\n").append(indent).append("@Override\n");
+    writer.append(indent).append("public ").append(className)
+        .append(" read(JsonReader jsonReader) throws IOException {\n");
+    writeTypeAdapterNullCheck(writer, indent, "jsonReader.peek() == JsonToken.NULL",
+        "jsonReader.nextNull();", "return null;");
+    writer.append(indent2).append("switch (jsonReader.nextString()) {\n");
+    for (int i = 0; i < javaNames.size(); ++i) {
+      writer.append(indent2).append("case \"").append(serializedName(i)).append("\":\n");
+      writer.append(indent2).append(indent).append("return ").append(className).append(".")
+          .append(javaNames.get(i)).append(";\n");
+    }
+    writer.append(indent2).append("default:\n");
+    writer.append(indent2).append(indent).append("return null;\n");
+    writer.append(indent2).append("}\n");
+    writer.append(indent).append("}\n");
+
+    writer.append("\n").append(indent).append("@Override\n");
+    writer.append(indent).append("public void write(JsonWriter jsonWriter, ").append(className)
+        .append(" value) throws IOException {\n");
+    writeTypeAdapterNullCheck(writer, indent, "value == null", "jsonWriter.nullValue();",
+        "return;");
+    writer.append(indent2).append("switch (value) {\n");
+    for (int i = 0; i < javaNames.size(); ++i) {
+      writer.append(indent2).append("case ").append(javaNames.get(i)).append(":\n");
+      writer.append(indent2).append(indent).append("jsonWriter.value(\"")
+          .append(serializedName(i)).append("\");\n");
+      writer.append(indent2).append(indent).append("break;\n");
+    }
+    writer.append(indent2).append("}\n");
+    writer.append(indent).append("}\n");
+    writer.append("}\n");
+  }
+
+  private String serializedName(int index) {
+    String jsonName = jsonNames.get(index);
+    return jsonName == null ? javaNames.get(index) : jsonName;
   }
 }
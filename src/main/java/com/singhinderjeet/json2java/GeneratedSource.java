@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.IOException;
+
+/**
+ * A Java source file produced by a {@link ClassDefCollection}, rendered on demand.
+ *
+ * @author Inderjeet Singh
+ */
+abstract class GeneratedSource {
+  final String pkg;
+  final String className;
+  /** The class this source was generated from, or null if it covers several classes */
+  final ClassDefinition def;
+
+  GeneratedSource(String pkg, String className, ClassDefinition def) {
+    this.pkg = pkg;
+    this.className = className;
+    this.def = def;
+  }
+
+  String getQualifiedName() {
+    return pkg + "." + className;
+  }
+
+  /** Returns the path of the source file relative to the source root, separated by / */
+  String getPath() {
+    return pkg.replace('.', '/') + "/" + className + ".java";
+  }
+
+  /** Renders the source; may be invoked from any thread */
+  abstract String render() throws IOException;
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Receives progress events from {@link Json2Java} and {@link ClassDefCollection}, for metrics
+ * and profiling. Events may be delivered concurrently from several threads when inputs are
+ * processed in parallel or classes are rendered on several threads, so implementations must be
+ * thread-safe. All methods do nothing by default.
+ *
+ * @see GenerationMetrics
+ * @see JfrGenerationListener
+ * @author Inderjeet Singh
+ */
+public interface GenerationListener {
+
+  /**
+   * Stages of generating classes. The times reported for the phases of a run do not overlap, so
+   * they add up to the time spent generating. Parsing is streamed together with inference, so it
+   * is part of the inference phase. Source files are rendered and written a batch at a time, and
+   * {@link #RENDER} and {@link #WRITE} are each reported once per
+   * {@link ClassDefCollection#generateClasses(SourceSink, String, int)} with the time of all the
+   * batches, so WRITE starts and finishes while RENDER is in progress.
+   */
+  enum Phase {
+    /** Parsing a document and inferring its classes */
+    INFERENCE,
+    /** Applying {@link CustomMappings} */
+    TRANSFORM,
+    /** Merging the classes of a document into the classes seen so far */
+    MERGE,
+    /** Collapsing classes of the same shape, see {@link ClassDefCollection#deduplicate()} */
+    DEDUPLICATE,
+    /** Preparing and rendering source files in memory */
+    RENDER,
+    /** Writing source files */
+    WRITE
+  }
+
+  /** A listener that ignores all events */
+  GenerationListener NONE = new GenerationListener() {};
+
+  default void phaseStarted(Phase phase) {
+  }
+
+  /** Invoked on the thread that started the phase, even if the phase failed */
+  default void phaseFinished(Phase phase, long elapsedNanos) {
+  }
+
+  /** Invoked for each top-level object or JSON line read */
+  default void recordRead() {
+  }
+
+  /** Invoked with the number of characters read from an input once it has been processed */
+  default void charactersRead(long count) {
+  }
+
+  /**
+   * Invoked with the number of bytes read from an encoded input, such as a file, once it has been
+   * processed. Compressed inputs report the bytes after decompression. Inputs given as a reader
+   * have no bytes to report.
+   */
+  default void bytesRead(long count) {
+  }
+
+  default void classCreated(ClassDefinition clazz) {
+  }
+
+  default void fieldCreated(ClassDefinition clazz, ClassField field) {
+  }
+
+  /** Invoked when merged is merged into an existing class of the same name */
+  default void classMerged(ClassDefinition existing, ClassDefinition merged) {
+  }
+
+  default void fileWritten(File file, long bytes) {
+  }
+
+  /** Returns a listener that forwards each event to all the specified listeners in order */
+  static GenerationListener compose(GenerationListener... listeners) {
+    List<GenerationListener> all = Arrays.asList(listeners.clone());
+    return new GenerationListener() {
+      @Override public void phaseStarted(Phase phase) {
+        for (GenerationListener listener : all) listener.phaseStarted(phase);
+      }
+      @Override public void phaseFinished(Phase phase, long elapsedNanos) {
+        for (GenerationListener listener : all) listener.phaseFinished(phase, elapsedNanos);
+      }
+      @Override public void recordRead() {
+        for (GenerationListener listener : all) listener.recordRead();
+      }
+      @Override public void charactersRead(long count) {
+        for (GenerationListener listener : all) listener.charactersRead(count);
+      }
+      @Override public void bytesRead(long count) {
+        for (GenerationListener listener : all) listener.bytesRead(count);
+      }
+      @Override public void classCreated(ClassDefinition clazz) {
+        for (GenerationListener listener : all) listener.classCreated(clazz);
+      }
+      @Override public void fieldCreated(ClassDefinition clazz, ClassField field) {
+        for (GenerationListener listener : all) listener.fieldCreated(clazz, field);
+      }
+      @Override public void classMerged(ClassDefinition existing, ClassDefinition merged) {
+        for (GenerationListener listener : all) listener.classMerged(existing, merged);
+      }
+      @Override public void fileWritten(File file, long bytes) {
+        for (GenerationListener listener : all) listener.fileWritten(file, bytes);
+      }
+    };
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link GenerationListener} that totals the time spent in each phase and counts the records,
+ * classes, fields, merges and files handled. Times of phases that ran in parallel are summed
+ * across threads.
+ *
+ * @author Inderjeet Singh
+ */
+public class GenerationMetrics implements GenerationListener {
+  private final LongAdder[] phaseNanos = newAdders(Phase.values().length);
+  private final LongAdder[] phaseCounts = newAdders(Phase.values().length);
+  private final LongAdder records = new LongAdder();
+  private final LongAdder characters = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder classes = new LongAdder();
+  private final LongAdder fields = new LongAdder();
+  private final LongAdder merges = new LongAdder();
+  private final LongAdder files = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+
+  private static LongAdder[] newAdders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int i = 0; i < count; ++i) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  @Override
+  public void phaseFinished(Phase phase, long elapsedNanos) {
+    phaseNanos[phase.ordinal()].add(elapsedNanos);
+    phaseCounts[phase.ordinal()].increment();
+  }
+
+  @Override
+  public void recordRead() {
+    records.increment();
+  }
+
+  @Override
+  public void charactersRead(long count) {
+    characters.add(count);
+  }
+
+  @Override
+  public void bytesRead(long count) {
+    bytesRead.add(count);
+  }
+
+  @Override
+  public void classCreated(ClassDefinition clazz) {
+    classes.increment();
+  }
+
+  @Override
+  public void fieldCreated(ClassDefinition clazz, ClassField field) {
+    fields.increment();
+  }
+
+  @Override
+  public void classMerged(ClassDefinition existing, ClassDefinition merged) {
+    merges.increment();
+  }
+
+  @Override
+  public void fileWritten(File file, long bytes) {
+    files.increment();
+    bytesWritten.add(bytes);
+  }
+
+  /** Total time spent in the phase, summed across threads */
+  public long getPhaseNanos(Phase phase) {
+    return phaseNanos[phase.ordinal()].sum();
+  }
+
+  /** Number of times the phase ran */
+  public long getPhaseCount(Phase phase) {
+    return phaseCounts[phase.ordinal()].sum();
+  }
+
+  public long getRecords() {
+    return records.sum();
+  }
+
+  public long getCharactersRead() {
+    return characters.sum();
+  }
+
+  /** Bytes read from encoded inputs, such as files; inputs given as readers are not counted */
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  /** Classes created during inference, including those later merged into others */
+  public long getClassesCreated() {
+    return classes.sum();
+  }
+
+  public long getFieldsCreated() {
+    return fields.sum();
+  }
+
+  /** Classes merged into an existing class of the same name */
+  public long getMerges() {
+    return merges.sum();
+  }
+
+  public long getFilesWritten() {
+    return files.sum();
+  }
+
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder();
+    for (Phase phase : Phase.values()) {
+      report.append(String.format("%-9s %10d ms %10d times%n", phase,
+          TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(phase)), getPhaseCount(phase)));
+    }
+    report.append(String.format("read %d records, %d characters, %d bytes%n", getRecords(),
+        getCharactersRead(), getBytesRead()));
+    report.append(String.format("created %d classes, %d fields; %d merges%n",
+        getClassesCreated(), getFieldsCreated(), getMerges()));
+    report.append(String.format("wrote %d files, %d bytes%n", getFilesWritten(),
+        getBytesWritten()));
+    return report.toString();
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles the classes of a {@link ClassDefCollection} in the running JVM and loads them, without
+ * writing sources or class files to disk. The generated classes are compiled against the class
+ * path of this JVM, which must include Gson.
+ *
+ * @author Inderjeet Singh
+ */
+public class InMemoryCompiler {
+
+  /** Thrown when the generated sources do not compile */
+  public static final class CompilationException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final List<String> errors;
+
+    CompilationException(List<String> errors) {
+      super("Generated classes failed to compile:\n" + String.join("\n", errors));
+      this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /** Each error names the class, and the field where the error is on a field's line */
+    public List<String> getErrors() {
+      return errors;
+    }
+  }
+
+  private final ClassLoader parent;
+  private final List<String> options;
+
+  public InMemoryCompiler() {
+    this(InMemoryCompiler.class.getClassLoader());
+  }
+
+  /**
+   * @param parent the class loader used to resolve classes referenced by the generated classes,
+   *   such as Gson
+   * @param options additional javac options
+   */
+  public InMemoryCompiler(ClassLoader parent, String... options) {
+    this.parent = parent;
+    this.options = new ArrayList<>(Arrays.asList(options));
+    this.options.add("-proc:none");
+  }
+
+  /**
+   * Renders and compiles all the sources of the collection that would be generated as files,
+   * including TypeAdapters if enabled.
+   *
+   * @return the loaded classes by their fully qualified names. They share a single class loader.
+   */
+  public Map<String, Class<?>> compile(ClassDefCollection classes, String indent)
+      throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) throw new IOException("No Java compiler available, run on a JDK");
+    List<SourceFile> sources = new ArrayList<>();
+    for (GeneratedSource source : classes.prepareSources(indent)) {
+      sources.add(new SourceFile(source, source.render()));
+    }
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    StandardJavaFileManager standardFileManager =
+        compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+    Map<String, byte[]> classBytes = new HashMap<>();
+    try (ClassFileManager fileManager = new ClassFileManager(standardFileManager, classBytes)) {
+      boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, sources)
+          .call();
+      if (!success) throw new CompilationException(describeErrors(diagnostics));
+    }
+    ClassLoader loader = new ByteArrayClassLoader(parent, classBytes);
+    Map<String, Class<?>> loaded = new LinkedHashMap<>();
+    for (SourceFile source : sources) {
+      try {
+        loaded.put(source.qualifiedName, loader.loadClass(source.qualifiedName));
+      } catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+    }
+    return loaded;
+  }
+
+  private static List<String> describeErrors(DiagnosticCollector<JavaFileObject> diagnostics) {
+    List<String> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() != Diagnostic.Kind.ERROR) continue;
+      String message = diagnostic.getMessage(Locale.ROOT);
+      if (!(diagnostic.getSource() instanceof SourceFile)) {
+        errors.add(message);
+        continue;
+      }
+      SourceFile source = (SourceFile) diagnostic.getSource();
+      StringBuilder error = new StringBuilder(source.className);
+      ClassField field = source.findField(diagnostic.getLineNumber());
+      if (field != null) {
+        error.append('.').append(field.getFieldName())
+            .append(" (JSON name \"").append(field.getJsonName()).append("\")");
+      }
+      error.append(", line ").append(diagnostic.getLineNumber()).append(": ").append(message);
+      errors.add(error.toString());
+    }
+    return errors;
+  }
+
+  /** Source of a generated class, held in memory */
+  private static final class SourceFile extends SimpleJavaFileObject {
+    final ClassDefinition def;
+    final String className;
+    final String qualifiedName;
+    private final String source;
+
+    SourceFile(GeneratedSource generated, String source) {
+      super(URI.create("string:///" + generated.getQualifiedName().replace('.', '/')
+          + Kind.SOURCE.extension), Kind.SOURCE);
+      this.def = generated.def;
+      this.className = generated.className;
+      this.qualifiedName = generated.getQualifiedName();
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+
+    /**
+     * Returns the field whose name or accessor name appears on the specified line of the
+     * source, if any
+     */
+    ClassField findField(long lineNumber) {
+      String[] lines = source.split("\n", -1);
+      if (def == null || lineNumber < 1 || lineNumber > lines.length) return null;
+      String line = lines[(int) lineNumber - 1];
+      ClassField found = null;
+      for (ClassField field : def.fields) {
+        String name = field.getFieldName();
+        boolean longer = found == null || name.length() > found.getFieldName().length();
+        if (!longer) continue;
+        String accessor = Pattern.quote(Utils.firstLetterUpperCase(name));
+        String regex = "\\b(" + Pattern.quote(name) + "|(get|is)" + accessor + ")\\b";
+        if (Pattern.compile(regex).matcher(line).find()) found = field;
+      }
+      return found;
+    }
+  }
+
+  /** Compiled class, held in memory */
+  private static final class ClassFile extends SimpleJavaFileObject {
+    private final String className;
+    private final Map<String, byte[]> classBytes;
+
+    ClassFile(String className, Map<String, byte[]> classBytes) {
+      super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension),
+          Kind.CLASS);
+      this.className = className;
+      this.classBytes = classBytes;
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new ByteArrayOutputStream() {
+        @Override
+        public void close() throws IOException {
+          super.close();
+          classBytes.put(className, toByteArray());
+        }
+      };
+    }
+  }
+
+  /** Sends class files to memory and everything else to the standard file manager */
+  private static final class ClassFileManager
+      extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, byte[]> classBytes;
+
+    ClassFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classBytes) {
+      super(fileManager);
+      this.classBytes = classBytes;
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className,
+        JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+      if (kind != JavaFileObject.Kind.CLASS) {
+        return super.getJavaFileForOutput(location, className, kind, sibling);
+      }
+      return new ClassFile(className, classBytes);
+    }
+  }
+
+  private static final class ByteArrayClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classBytes;
+
+    ByteArrayClassLoader(ClassLoader parent, Map<String, byte[]> classBytes) {
+      super(parent);
+      this.classBytes = classBytes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      byte[] bytes = classBytes.get(name);
+      if (bytes == null) throw new ClassNotFoundException(name);
+      return defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves and restores the inference state of a {@link ClassDefCollection}: its classes, their
+ * fields with the kinds of values seen so far, base classes and generate flags. A restored
+ * collection can be merged with classes from new documents as if they had all been processed in
+ * one run.
+ * <p>
+ * The format is a versioned binary encoding where every string is stored once in a table and
+ * referred to by index. Classes are restored as {@link ClassDefinition} or
+ * {@link EnumDefinition}; state added by other subclasses is not saved. A field shared by
+ * several classes is restored as a separate copy for each of them.
+ *
+ * @author Inderjeet Singh
+ */
+public final class InferenceSnapshot {
+  private static final int MAGIC = 0x4A324A53; // "J2JS"
+  private static final int VERSION = 1;
+
+  private static final int KIND_CLASS = 0;
+  private static final int KIND_ENUM = 1;
+  private static final int FLAG_MAPPED_TYPE = 1;
+  private static final int FLAG_ARRAY_TYPE = 2;
+
+  private InferenceSnapshot() {
+  }
+
+  public static void write(ClassDefCollection classes, OutputStream out) throws IOException {
+    // Base classes may come from a merged collection without being part of this one
+    List<ClassDefinition> all = new ArrayList<>(classes.getClassDefinitions());
+    Map<ClassDefinition, Integer> indexes = new IdentityHashMap<>();
+    for (int i = 0; i < all.size(); ++i) {
+      indexes.put(all.get(i), i);
+    }
+    for (int i = 0; i < all.size(); ++i) {
+      ClassDefinition baseClass = all.get(i).getBaseClass();
+      if (baseClass != null && !indexes.containsKey(baseClass)) {
+        indexes.put(baseClass, all.size());
+        all.add(baseClass);
+      }
+    }
+    StringTable strings = new StringTable();
+    for (ClassDefinition clazz : all) {
+      strings.addAll(clazz);
+    }
+
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    writeVarInt(data, VERSION);
+    strings.write(data);
+    writeVarInt(data, classes.getClassDefinitions().size());
+    writeVarInt(data, all.size());
+    for (ClassDefinition clazz : all) {
+      writeClass(data, clazz, strings, indexes);
+    }
+    data.flush();
+  }
+
+  public static ClassDefCollection read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+    if (data.readInt() != MAGIC) throw new IOException("Not a json2java snapshot");
+    int version = readVarInt(data);
+    if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+    String[] strings = new String[readVarInt(data) + 1]; // index 0 stands for null
+    for (int i = 1; i < strings.length; ++i) {
+      byte[] bytes = new byte[readVarInt(data)];
+      data.readFully(bytes);
+      strings[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    int collectionSize = readVarInt(data);
+    int count = readVarInt(data);
+    List<ClassDefinition> all = new ArrayList<>(count);
+    int[] baseClasses = new int[count];
+    for (int i = 0; i < count; ++i) {
+      baseClasses[i] = readVarInt(data);
+      all.add(readClass(data, strings));
+    }
+    // Base classes are linked last so that fields also present in a base class are not dropped
+    for (int i = 0; i < count; ++i) {
+      if (baseClasses[i] != 0) all.get(i).setBaseClass(all.get(baseClasses[i] - 1));
+    }
+    return new ClassDefCollection(all.subList(0, collectionSize));
+  }
+
+  private static void writeClass(DataOutputStream data, ClassDefinition clazz,
+      StringTable strings, Map<ClassDefinition, Integer> indexes) throws IOException {
+    ClassDefinition baseClass = clazz.getBaseClass();
+    writeVarInt(data, baseClass == null ? 0 : indexes.get(baseClass) + 1);
+    boolean isEnum = clazz instanceof EnumDefinition;
+    data.writeByte(isEnum ? KIND_ENUM : KIND_CLASS);
+    writeVarInt(data, strings.indexOf(clazz.getPackage()));
+    writeVarInt(data, strings.indexOf(clazz.getClassName()));
+    data.writeBoolean(clazz.isGenerateFile());
+    writeVarLong(data, clazz.getSkippedElements());
+    writeVarInt(data, clazz.imports.size());
+    for (String importedClass : clazz.imports) {
+      writeVarInt(data, strings.indexOf(importedClass));
+    }
+    writeVarInt(data, clazz.fields.size());
+    for (ClassField field : clazz.fields) {
+      writeVarInt(data, strings.indexOf(field.getJsonName()));
+      writeVarInt(data, strings.indexOf(field.getMappedFieldName()));
+      writeVarInt(data, strings.indexOf(field.getDeclaredType()));
+      data.writeByte((field.isMappedType() ? FLAG_MAPPED_TYPE : 0)
+          | (field.isDeclaredArrayType() ? FLAG_ARRAY_TYPE : 0));
+      writeTypes(data, field.getTypes());
+    }
+    if (isEnum) {
+      EnumDefinition enumClass = (EnumDefinition) clazz;
+      writeVarInt(data, enumClass.getJavaNames().size());
+      for (int i = 0; i < enumClass.getJavaNames().size(); ++i) {
+        writeVarInt(data, strings.indexOf(enumClass.getJavaNames().get(i)));
+        writeVarInt(data, strings.indexOf(enumClass.getJsonNames().get(i)));
+      }
+    }
+  }
+
+  private static ClassDefinition readClass(DataInputStream data, String[] strings)
+      throws IOException {
+    int kind = data.readUnsignedByte();
+    String pkg = strings[readVarInt(data)];
+    String className = strings[readVarInt(data)];
+    ClassDefinition clazz = kind == KIND_ENUM
+        ? new EnumDefinition(pkg, className) : new ClassDefinition(pkg, className);
+    clazz.setGenerateFile(data.readBoolean());
+    clazz.addSkippedElements(readVarLong(data));
+    for (int i = readVarInt(data); i > 0; --i) {
+      clazz.addImport(strings[readVarInt(data)]);
+    }
+    for (int i = readVarInt(data); i > 0; --i) {
+      String jsonName = strings[readVarInt(data)];
+      String fieldName = strings[readVarInt(data)];
+      String type = strings[readVarInt(data)];
+      int flags = data.readUnsignedByte();
+      clazz.addField(new ClassField(jsonName, fieldName, type, (flags & FLAG_MAPPED_TYPE) != 0,
+          (flags & FLAG_ARRAY_TYPE) != 0, readTypes(data)));
+    }
+    if (kind == KIND_ENUM) {
+      for (int i = readVarInt(data); i > 0; --i) {
+        String javaName = strings[readVarInt(data)];
+        String jsonName = strings[readVarInt(data)];
+        ((EnumDefinition) clazz).addEnumValue(javaName, jsonName);
+      }
+    }
+    return clazz;
+  }
+
+  private static void writeTypes(DataOutputStream data, TypeAccumulator types)
+      throws IOException {
+    writeVarInt(data, types.getSeen());
+    data.writeBoolean(types.getElements() != null);
+    if (types.getElements() != null) writeTypes(data, types.getElements());
+  }
+
+  private static TypeAccumulator readTypes(DataInputStream data) throws IOException {
+    int seen = readVarInt(data);
+    TypeAccumulator elements = data.readBoolean() ? readTypes(data) : null;
+    return new TypeAccumulator(seen, elements);
+  }
+
+  private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+    writeVarLong(data, value & 0xFFFFFFFFL);
+  }
+
+  private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      data.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    data.writeByte((int) value);
+  }
+
+  private static int readVarInt(DataInputStream data) throws IOException {
+    return (int) readVarLong(data);
+  }
+
+  private static long readVarLong(DataInputStream data) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = data.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IOException("Malformed snapshot: variable length number too long");
+  }
+
+  /** Distinct strings of a snapshot, numbered from 1 in the order they were added */
+  private static final class StringTable {
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    void addAll(ClassDefinition clazz) {
+      add(clazz.getPackage());
+      add(clazz.getClassName());
+      for (String importedClass : clazz.imports) {
+        add(importedClass);
+      }
+      for (ClassField field : clazz.fields) {
+        add(field.getJsonName());
+        add(field.getMappedFieldName());
+        add(field.getDeclaredType());
+      }
+      if (clazz instanceof EnumDefinition) {
+        EnumDefinition enumClass = (EnumDefinition) clazz;
+        for (String name : enumClass.getJavaNames()) add(name);
+        for (String name : enumClass.getJsonNames()) add(name);
+      }
+    }
+
+    private void add(String value) {
+      if (value != null && !indexes.containsKey(value)) {
+        strings.add(value);
+        indexes.put(value, strings.size());
+      }
+    }
+
+    int indexOf(String value) {
+      return value == null ? 0 : indexes.get(value);
+    }
+
+    void write(DataOutputStream data) throws IOException {
+      writeVarInt(data, strings.size());
+      for (String value : strings) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(data, bytes.length);
+        data.write(bytes);
+      }
+    }
+  }
+}
@@ -15,15 +15,35 @@
  */
 package com.singhinderjeet.json2java;
 
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.singhinderjeet.json2java.GenerationListener.Phase;
 
 /**
  * Entry class to convert a JSON file to Java source code.
@@ -32,63 +52,609 @@ import com.google.gson.JsonPrimitive;
  */
 public class Json2Java {
   private final ClassDefCollection classes = new ClassDefCollection();
+  private ConvergencePolicy convergencePolicy = ConvergencePolicy.NONE;
+  private GenerationListener listener = GenerationListener.NONE;
 
+  /**
+   * Sets the policy that decides when to stop descending into the elements of arrays and the
+   * records of a JSON Lines stream whose schema has converged. By default every element is used.
+   * Only streamed input is subject to the policy.
+   */
+  public void setConvergencePolicy(ConvergencePolicy convergencePolicy) {
+    this.convergencePolicy = convergencePolicy;
+  }
+
+  /**
+   * Sets the listener notified of the progress of inference and of the classes, including their
+   * merges, transforms and written files.
+   */
+  public void setListener(GenerationListener listener) {
+    this.listener = listener;
+    this.classes.setListener(listener);
+  }
+
+  /** Creates a collection for the classes of a single document or task */
+  private ClassDefCollection newClassDefCollection() {
+    ClassDefCollection classes = new ClassDefCollection();
+    classes.setListener(listener);
+    return classes;
+  }
+
+  /**
+   * Streams the JSON document from the reader and infers classes from it token by token. The
+   * document is never materialized as a tree, so the memory used is bounded by the size of the
+   * inferred classes rather than the size of the document. An empty or whitespace-only document
+   * is read as null, and generates no classes.
+   */
   public void processJson(Reader reader, String pkg, String className,
       CustomMappings mappings) throws IOException {
-    JsonElement root = new JsonParser().parse(reader);
-    reader.close();
-    processJson(pkg, className, mappings, root);
+    CountingReader counted = new CountingReader(reader);
+    try {
+      JsonReader jsonReader = new JsonReader(counted);
+      jsonReader.setLenient(true);
+      if (isEmptyDocument(jsonReader)) return;
+      processJson(this.classes, pkg, className, mappings, new ReaderTokenizer(jsonReader));
+      if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+    } finally {
+      listener.charactersRead(counted.count);
+      reader.close();
+    }
+  }
+
+  /**
+   * Like {@link #processJson(Reader, String, String, CustomMappings)} for a UTF-8 encoded stream.
+   * The listener is also told the number of bytes read.
+   */
+  public void processJson(InputStream in, String pkg, String className,
+      CustomMappings mappings) throws IOException {
+    CountingInputStream counted = new CountingInputStream(in);
+    try {
+      processJson(new InputStreamReader(counted, StandardCharsets.UTF_8), pkg, className,
+          mappings);
+    } finally {
+      listener.bytesRead(counted.count);
+    }
   }
 
-  private void processJson(String pkg, String className, CustomMappings mappings, JsonElement root)
-      throws IOException {
-    while (!(root instanceof JsonObject)) {
-      if (root instanceof JsonArray) {
-        for (JsonElement arrayElement : root.getAsJsonArray()) {
-          processJson(pkg, className, mappings, arrayElement);
+  /**
+   * Like {@link #processJson(Reader, String, String, CustomMappings)} but memory-maps the UTF-8
+   * encoded file and scans its bytes directly, which creates almost no garbage. Values are
+   * classified in place, so only the names are decoded. See {@link MappedJsonTokenizer} for the
+   * syntax accepted. The listener is told the number of bytes read, but not of characters.
+   */
+  public void processMappedJson(File file, String pkg, String className,
+      CustomMappings mappings) throws IOException {
+    try (MappedJsonTokenizer tokens = MappedJsonTokenizer.open(file.toPath())) {
+      try {
+        if (tokens.peek() == JsonToken.END_DOCUMENT) return; // an empty document
+        processJson(this.classes, pkg, className, mappings, tokens);
+        if (tokens.peek() != JsonToken.END_DOCUMENT) {
+          throw new JsonSyntaxException("Did not consume the entire document.");
         }
-        return; // nothing much needs to be done
-      } else if (root instanceof JsonPrimitive) {
-        return; // can't generate classes for a primitive
+      } finally {
+        listener.bytesRead(tokens.size());
       }
     }
-    if (root instanceof JsonObject) {
-      ClassDefCollection classes = new ClassDefCollection();
-      generateClasses(classes, root.getAsJsonObject(), pkg, className);
+  }
+
+  /**
+   * Returns true if the reader has no value before its end, which
+   * {@link com.google.gson.JsonParser} reads as null.
+   */
+  private static boolean isEmptyDocument(JsonReader reader) throws IOException {
+    try {
+      reader.peek();
+      return false;
+    } catch (EOFException e) {
+      return true;
+    }
+  }
+
+  /** Adapts a Gson {@link JsonReader} to {@link JsonTokenizer} */
+  private static final class ReaderTokenizer implements JsonTokenizer {
+    private final JsonReader reader;
+
+    ReaderTokenizer(JsonReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+      return reader.peek();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+      reader.beginObject();
+    }
+
+    @Override
+    public void endObject() throws IOException {
+      reader.endObject();
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+      reader.beginArray();
+    }
+
+    @Override
+    public void endArray() throws IOException {
+      reader.endArray();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+      return reader.hasNext();
+    }
+
+    @Override
+    public String nextName() throws IOException {
+      return reader.nextName();
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+      reader.nextNull();
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+      reader.skipValue();
+    }
+
+    @Override
+    public void nextScalar(TypeAccumulator types) throws IOException {
+      switch (reader.peek()) {
+      case BOOLEAN:
+        reader.nextBoolean();
+        types.addBoolean();
+        break;
+      case NUMBER:
+        types.addNumber(reader.nextDouble());
+        break;
+      case STRING:
+        types.addString(reader.nextString());
+        break;
+      default:
+        reader.skipValue();
+      }
+    }
+  }
+
+  /** Counts the characters read through it */
+  private static final class CountingReader extends FilterReader {
+    long count;
+
+    CountingReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int c = super.read();
+      if (c != -1) ++count;
+      return c;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) count += read;
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
+    }
+  }
+
+  /** Counts the bytes read through it */
+  private static final class CountingInputStream extends FilterInputStream {
+    long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) ++count;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) count += read;
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
+    }
+  }
+
+  /**
+   * Infers classes from newline-delimited JSON (JSON Lines), where each line is a separate
+   * document. Records are read one line at a time, so memory does not grow with the length of the
+   * stream. A line that is not valid JSON is skipped and counted rather than ending the run, and
+   * contributes nothing to the classes. Records skipped by the {@link ConvergencePolicy} are not
+   * parsed at all.
+   */
+  public JsonLinesStats processJsonLines(Reader reader, String pkg, String className,
+      CustomMappings mappings) throws IOException {
+    long start = System.nanoTime();
+    long records = 0;
+    long malformedRecords = 0;
+    ConvergencePolicy.Tracker tracker = convergencePolicy.newTracker();
+    try (BufferedReader lines = new BufferedReader(reader)) {
+      for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+        listener.charactersRead(line.length() + 1);
+        if (line.trim().isEmpty()) continue;
+        ++records;
+        if (!tracker.shouldProcess()) continue;
+        ClassDefCollection recordClasses = newClassDefCollection();
+        try {
+          JsonReader jsonReader = new JsonReader(new StringReader(line));
+          processJson(recordClasses, pkg, className, mappings, new ReaderTokenizer(jsonReader));
+          if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Did not consume the entire line.");
+          }
+        } catch (IOException | JsonParseException e) { // MalformedJsonException is an IOException
+          ++malformedRecords;
+          continue;
+        }
+        long modCount = this.classes.getModCount();
+        this.classes.merge(recordClasses);
+        tracker.processed(this.classes.getModCount() != modCount);
+      }
+    }
+    addSkippedElements(this.classes, className, tracker);
+    return new JsonLinesStats(records, malformedRecords, tracker.getSkipped(),
+        System.nanoTime() - start);
+  }
+
+  /**
+   * Infers classes from all the inputs in parallel on the common fork-join pool.
+   *
+   * @see #processJson(Collection, String, String, CustomMappings, ForkJoinPool)
+   */
+  public void processJson(Collection<? extends JsonSource> inputs, String pkg, String className,
+      CustomMappings mappings) throws IOException {
+    processJson(inputs, pkg, className, mappings, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Infers classes from all the inputs in parallel on the specified pool. Each task builds its own
+   * {@link ClassDefCollection}, and the results are combined pairwise with
+   * {@link ClassDefCollection#merge(ClassDefCollection)} in input order, so the classes are the
+   * same as if the inputs were processed one after another.
+   */
+  public void processJson(Collection<? extends JsonSource> inputs, String pkg, String className,
+      CustomMappings mappings, ForkJoinPool pool) throws IOException {
+    if (inputs.isEmpty()) return;
+    List<JsonSource> sources = new ArrayList<>(inputs);
+    try {
+      this.classes.merge(pool.invoke(
+          new InferenceTask(sources, 0, sources.size(), pkg, className, mappings,
+              convergencePolicy, listener)));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** Infers classes from a range of inputs, splitting it in halves until one input is left. */
+  private static final class InferenceTask extends RecursiveTask<ClassDefCollection> {
+    private static final long serialVersionUID = 1L;
+    private final List<JsonSource> sources;
+    private final int from;
+    private final int to;
+    private final String pkg;
+    private final String className;
+    private final CustomMappings mappings;
+    private final ConvergencePolicy convergencePolicy;
+    private final GenerationListener listener;
+
+    InferenceTask(List<JsonSource> sources, int from, int to, String pkg, String className,
+        CustomMappings mappings, ConvergencePolicy convergencePolicy,
+        GenerationListener listener) {
+      this.sources = sources;
+      this.from = from;
+      this.to = to;
+      this.pkg = pkg;
+      this.className = className;
+      this.mappings = mappings;
+      this.convergencePolicy = convergencePolicy;
+      this.listener = listener;
+    }
+
+    @Override
+    protected ClassDefCollection compute() {
+      if (to - from == 1) {
+        Json2Java converter = new Json2Java();
+        converter.setConvergencePolicy(convergencePolicy);
+        converter.setListener(listener);
+        JsonSource source = sources.get(from);
+        try {
+          if (source instanceof MappedJsonSource) {
+            converter.processMappedJson(((MappedJsonSource) source).file, pkg, className,
+                mappings);
+          } else if (source instanceof Utf8JsonSource) {
+            converter.processJson(((Utf8JsonSource) source).openStream(), pkg, className,
+                mappings);
+          } else {
+            converter.processJson(source.openReader(), pkg, className, mappings);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return converter.getClasses();
+      }
+      int mid = (from + to) >>> 1;
+      InferenceTask left = new InferenceTask(sources, from, mid, pkg, className, mappings,
+          convergencePolicy, listener);
+      InferenceTask right = new InferenceTask(sources, mid, to, pkg, className, mappings,
+          convergencePolicy, listener);
+      left.fork();
+      ClassDefCollection rightClasses = right.compute();
+      ClassDefCollection leftClasses = left.join();
+      leftClasses.merge(rightClasses);
+      return leftClasses;
+    }
+  }
+
+  /** Infers classes from an already parsed JSON document. */
+  public void processJson(JsonElement root, String pkg, String className,
+      CustomMappings mappings) throws IOException {
+    if (root instanceof JsonArray) {
+      for (JsonElement arrayElement : root.getAsJsonArray()) {
+        processJson(arrayElement, pkg, className, mappings);
+      }
+    } else if (root instanceof JsonObject) {
+      listener.recordRead();
+      ClassDefCollection classes = newClassDefCollection();
+      long start = System.nanoTime();
+      listener.phaseStarted(Phase.INFERENCE);
+      try {
+        generateClasses(classes, root.getAsJsonObject(), pkg, className, rootPath(mappings));
+      } finally {
+        listener.phaseFinished(Phase.INFERENCE, System.nanoTime() - start);
+      }
       classes.transform(mappings);
       this.classes.merge(classes);
+    } // can't generate classes for a primitive or null
+  }
+
+  /** Infers classes from the next value of the reader and merges them into target */
+  private void processJson(ClassDefCollection target, String pkg, String className,
+      CustomMappings mappings, JsonTokenizer reader) throws IOException {
+    switch (reader.peek()) {
+    case BEGIN_ARRAY:
+      ConvergencePolicy.Tracker tracker = convergencePolicy.newTracker();
+      reader.beginArray();
+      while (reader.hasNext()) {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+          processJson(target, pkg, className, mappings, reader);
+        } else if (tracker.shouldProcess()) {
+          long modCount = target.getModCount();
+          processJson(target, pkg, className, mappings, reader);
+          tracker.processed(target.getModCount() != modCount);
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endArray();
+      addSkippedElements(target, className, tracker);
+      break;
+    case BEGIN_OBJECT:
+      listener.recordRead();
+      ClassDefCollection classes = newClassDefCollection();
+      long start = System.nanoTime();
+      listener.phaseStarted(Phase.INFERENCE);
+      try {
+        generateClasses(classes, reader, pkg, className, rootPath(mappings));
+      } finally {
+        listener.phaseFinished(Phase.INFERENCE, System.nanoTime() - start);
+      }
+      classes.transform(mappings);
+      target.merge(classes);
+      break;
+    default:
+      reader.skipValue(); // can't generate classes for a primitive
     }
   }
 
+  private static void addSkippedElements(ClassDefCollection classes, String className,
+      ConvergencePolicy.Tracker tracker) {
+    if (tracker.getSkipped() == 0) return;
+    ClassDefinition clazz = classes.findByTypeName(className);
+    if (clazz != null) clazz.addSkippedElements(tracker.getSkipped());
+  }
+
   public void transform(CustomMappings mappings) {
     classes.transform(mappings);
   }
 
+  /** Returns the matcher state of the root of a document for the JsonPath mappings, if any */
+  private static JsonPathMatcher.State rootPath(CustomMappings mappings) {
+    return mappings == null ? JsonPathMatcher.NONE : mappings.compile().paths.root();
+  }
+
   private void generateClasses(ClassDefCollection classes, JsonObject root,
-      String pkg, String className) throws IOException {
+      String pkg, String className, JsonPathMatcher.State path) throws IOException {
     ClassDefinition classDef = classes.addClassDefinition(pkg, className);
     for (Map.Entry<String, JsonElement> element : root.entrySet()) {
-      String name = element.getKey();
+      Utils.JavaNames names = Utils.toJavaNames(element.getKey());
+      String type = names.typeName;
       JsonElement value = element.getValue();
-      String type = Utils.lowerCaseUnderscoreToCamelCase(name, true);
-      name = Utils.lowerCaseUnderscoreToCamelCase(name, false);
-      if (value instanceof JsonPrimitive) {
-        classDef.addField(new ClassField(name, value, type, false));
+      JsonPathMatcher.State memberPath = path.member(element.getKey());
+      JsonPathMatcher.Action action = getAction(memberPath, value instanceof JsonArray);
+      if (action != null) {
+        if (!value.isJsonNull()) addMappedField(classDef, names, value.isJsonArray(), action);
+      } else if (value instanceof JsonPrimitive) {
+        addField(classDef, newField(names, value, false));
       } else if (value instanceof JsonArray) {
         classDef.addImport("java.util.List");
-        classDef.addField(new ClassField(name, value, type, true));
+        addField(classDef, newField(names, value, true));
         JsonArray array = value.getAsJsonArray();
         for (JsonElement arrayElement : array) {
           if (arrayElement instanceof JsonObject) { // Use all elements of the array
-            generateClasses(classes, arrayElement.getAsJsonObject(), pkg, type);
+            generateClasses(classes, arrayElement.getAsJsonObject(), pkg, type,
+                memberPath.element());
           }
         }
+      } else if (value instanceof JsonObject) {
+        addField(classDef, newField(names, value, false));
+        generateClasses(classes, value.getAsJsonObject(), pkg, type, memberPath);
       }
-      if (value instanceof JsonObject) {
-        classDef.addField(new ClassField(name, value, type, false));
-        generateClasses(classes, value.getAsJsonObject(), pkg, type);
+    }
+  }
+
+  /**
+   * Returns the action of the JsonPath mapping for a member, or for its elements if it is an
+   * array, or null if no mapping matches.
+   */
+  private static JsonPathMatcher.Action getAction(JsonPathMatcher.State memberPath,
+      boolean isArray) {
+    if (memberPath.action != null) return memberPath.action;
+    return isArray ? memberPath.element().action : null;
+  }
+
+  private static ClassField newField(Utils.JavaNames names, JsonElement value,
+      boolean isArrayType) {
+    ClassField field = newField(names, isArrayType);
+    field.addJsonValue(value);
+    return field;
+  }
+
+  /** Creates a field named after a JSON key, whose values are added later */
+  private static ClassField newField(Utils.JavaNames names, boolean isArrayType) {
+    return new ClassField(names.jsonName, names.fieldName, names.typeName, false, isArrayType,
+        new TypeAccumulator());
+  }
+
+  /** Adds the field for a member matched by a JsonPath mapping, unless the mapping deletes it */
+  private void addMappedField(ClassDefinition classDef, Utils.JavaNames names,
+      boolean isArrayType, JsonPathMatcher.Action action) {
+    if (action.kind == JsonPathMatcher.Action.Kind.DELETE) return;
+    String type = names.typeName;
+    ClassField field = newField(names, isArrayType);
+    if (action.kind == JsonPathMatcher.Action.Kind.SKIP) {
+      classDef.addImport("com.google.gson.JsonElement");
+      field.mapType(type, "JsonElement", false);
+    } else {
+      if (isArrayType) classDef.addImport("java.util.List");
+      field.mapType(type, action.type, isArrayType);
+    }
+    addField(classDef, field);
+  }
+
+  private void addField(ClassDefinition classDef, ClassField field) {
+    classDef.addField(field);
+    listener.fieldCreated(classDef, field);
+  }
+
+  /**
+   * Streaming counterpart of {@link #generateClasses(ClassDefCollection, JsonObject, String,
+   * String, JsonPathMatcher.State)}. The reader must be positioned at the beginning of an object.
+   * Values matched by a JsonPath mapping are skipped without being parsed.
+   */
+  private void generateClasses(ClassDefCollection classes, JsonTokenizer reader,
+      String pkg, String className, JsonPathMatcher.State path) throws IOException {
+    ClassDefinition classDef = classes.addClassDefinition(pkg, className);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String jsonName = reader.nextName();
+      Utils.JavaNames names = Utils.toJavaNames(jsonName);
+      String type = names.typeName;
+      JsonToken token = reader.peek();
+      if (token == JsonToken.NULL) {
+        reader.nextNull();
+        continue;
       }
+      boolean isArrayType = token == JsonToken.BEGIN_ARRAY;
+      JsonPathMatcher.State memberPath = path.member(jsonName);
+      JsonPathMatcher.Action action = getAction(memberPath, isArrayType);
+      if (action != null) { // the value is never parsed
+        reader.skipValue();
+        addMappedField(classDef, names, isArrayType, action);
+        continue;
+      }
+      if (isArrayType) classDef.addImport("java.util.List");
+      ClassField field = newField(names, isArrayType);
+      addField(classDef, field);
+      readValue(classes, reader, pkg, type, field.getTypes(), memberPath);
     }
+    reader.endObject();
+  }
+
+  /**
+   * Reads the next value and records its kind in types. Classes are generated for an object value
+   * and for the object elements of an array value, but not for objects nested in inner arrays.
+   */
+  private void readValue(ClassDefCollection classes, JsonTokenizer reader, String pkg,
+      String type, TypeAccumulator types, JsonPathMatcher.State path) throws IOException {
+    switch (reader.peek()) {
+    case BEGIN_OBJECT:
+      types.addObject();
+      if (classes == null) {
+        reader.skipValue();
+      } else {
+        generateClasses(classes, reader, pkg, type, path);
+      }
+      break;
+    case BEGIN_ARRAY:
+      TypeAccumulator elements = types.addArray();
+      ConvergencePolicy.Tracker tracker = classes == null ? null : convergencePolicy.newTracker();
+      JsonPathMatcher.State elementPath = path.element();
+      reader.beginArray();
+      while (reader.hasNext()) { // Use all elements of the array
+        JsonToken token = reader.peek();
+        if (tracker == null || token != JsonToken.BEGIN_OBJECT) {
+          readValue(token == JsonToken.BEGIN_ARRAY ? null : classes, reader, pkg, type, elements,
+              elementPath);
+        } else if (tracker.shouldProcess()) {
+          long modCount = classes.getModCount();
+          readValue(classes, reader, pkg, type, elements, elementPath);
+          tracker.processed(classes.getModCount() != modCount);
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endArray();
+      if (tracker != null) addSkippedElements(classes, type, tracker);
+      break;
+    case BOOLEAN:
+    case NUMBER:
+    case STRING:
+      reader.nextScalar(types);
+      break;
+    default:
+      reader.skipValue();
+    }
+  }
+
+  /**
+   * Merges classes saved with {@link #saveSnapshot(OutputStream)} into the classes inferred so
+   * far, so that new documents can be added without reprocessing the old ones.
+   */
+  public void loadSnapshot(InputStream in) throws IOException {
+    classes.merge(InferenceSnapshot.read(in));
+  }
+
+  /** Saves the classes inferred so far. See {@link InferenceSnapshot}. */
+  public void saveSnapshot(OutputStream out) throws IOException {
+    InferenceSnapshot.write(classes, out);
   }
 
   public ClassDefCollection getClasses() {
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+/**
+ * Summary of a {@link Json2Java#processJsonLines(java.io.Reader, String, String, CustomMappings)}
+ * run.
+ *
+ * @author Inderjeet Singh
+ */
+public final class JsonLinesStats {
+  private final long records;
+  private final long malformedRecords;
+  private final long skippedRecords;
+  private final long elapsedNanos;
+
+  public JsonLinesStats(long records, long malformedRecords, long skippedRecords,
+      long elapsedNanos) {
+    this.records = records;
+    this.malformedRecords = malformedRecords;
+    this.skippedRecords = skippedRecords;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /** Number of non-blank lines read, including the malformed and skipped ones */
+  public long getRecords() {
+    return records;
+  }
+
+  /** Number of lines skipped because they were not valid JSON */
+  public long getMalformedRecords() {
+    return malformedRecords;
+  }
+
+  /** Number of lines not parsed because the {@link ConvergencePolicy} skipped them */
+  public long getSkippedRecords() {
+    return skippedRecords;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public double getRecordsPerSecond() {
+    return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d records (%d malformed, %d skipped) in %.3fs, %.0f records/s",
+        records, malformedRecords, skippedRecords, elapsedNanos / 1e9, getRecordsPerSecond());
+  }
+}
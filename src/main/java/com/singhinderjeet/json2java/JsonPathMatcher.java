@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches the position of values in a JSON document against a set of JsonPath expressions while
+ * the document is streamed. The paths are compiled into a nondeterministic automaton with a state
+ * for each step of each path, and deterministic states are built from it lazily, one for each set
+ * of automaton states reached, so that following a member or array element costs a map lookup.
+ *
+ * <p>A subset of JsonPath is supported: {@code $} for the root object, {@code .name} and
+ * {@code ['name']} for members, {@code .*} for any member or element, {@code [*]} for any array
+ * element, and {@code ..} before any of these to match at any depth. Array indexes and filters are
+ * not supported. The root is each document, each record of a JSON Lines stream, and each element
+ * of a top-level array, as for class inference.
+ *
+ * @author Inderjeet Singh
+ */
+final class JsonPathMatcher {
+
+  /** What to do with a value whose position matches a path */
+  static final class Action {
+    enum Kind { MAP, SKIP, DELETE }
+
+    final Kind kind;
+    /** For {@link Kind#MAP}, the type to give the value */
+    final String type;
+
+    Action(Kind kind, String type) {
+      this.kind = kind;
+      this.type = type;
+    }
+  }
+
+  /** Limits the transitions remembered for each state, since member names may be unbounded */
+  private static final int MAX_CACHED_NAMES = 1024;
+
+  /** The state of positions that no path can match, at this or any nested position */
+  static final State NONE = new State(null, new int[0], null);
+
+  private final Step[] steps;
+  /** For each automaton state, the action if it completes a path, else null */
+  private final Action[] accepting;
+  private final Map<StateSet, State> states = new ConcurrentHashMap<>();
+  private final State root;
+
+  /**
+   * @param paths JsonPath expressions
+   * @param actions the action for each path. Where several paths match the same position, the
+   *   action of the last one applies.
+   */
+  JsonPathMatcher(List<String> paths, List<Action> actions) {
+    List<Step> allSteps = new ArrayList<>();
+    List<Action> allAccepting = new ArrayList<>();
+    int[] starts = new int[paths.size()];
+    for (int i = 0; i < paths.size(); ++i) {
+      starts[i] = allSteps.size();
+      for (Step step : parse(paths.get(i))) {
+        allSteps.add(step);
+        allAccepting.add(null);
+      }
+      allSteps.add(null); // the state of a complete match has no step to take
+      allAccepting.add(actions.get(i));
+    }
+    this.steps = allSteps.toArray(new Step[0]);
+    this.accepting = allAccepting.toArray(new Action[0]);
+    this.root = paths.isEmpty() ? NONE : intern(starts);
+  }
+
+  /** Returns the state of the root object */
+  State root() {
+    return root;
+  }
+
+  /** The set of automaton states for a position in the document */
+  static final class State {
+    private final JsonPathMatcher matcher;
+    private final int[] automatonStates;
+    /** The action for this position, or null if no path ends here */
+    final Action action;
+    private final Map<String, State> members = new ConcurrentHashMap<>();
+    private volatile State element;
+
+    private State(JsonPathMatcher matcher, int[] automatonStates, Action action) {
+      this.matcher = matcher;
+      this.automatonStates = automatonStates;
+      this.action = action;
+    }
+
+    /** Returns the state of the member with the specified JSON name of the object here */
+    State member(String name) {
+      if (matcher == null) return this;
+      State next = members.get(name);
+      if (next == null) {
+        next = matcher.next(automatonStates, name);
+        if (members.size() < MAX_CACHED_NAMES) members.put(name, next);
+      }
+      return next;
+    }
+
+    /** Returns the state of the elements of the array here */
+    State element() {
+      if (matcher == null) return this;
+      State next = element;
+      if (next == null) element = next = matcher.next(automatonStates, null);
+      return next;
+    }
+  }
+
+  /** Follows a member with the specified name, or an array element if name is null */
+  private State next(int[] from, String name) {
+    int[] to = new int[from.length * 2];
+    int count = 0;
+    for (int state : from) {
+      Step step = steps[state];
+      if (step == null) continue;
+      if (step.descendant) to[count++] = state;
+      if (step.matches(name)) to[count++] = state + 1;
+    }
+    if (count == 0) return NONE;
+    Arrays.sort(to, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; ++i) {
+      if (distinct == 0 || to[i] != to[distinct - 1]) to[distinct++] = to[i];
+    }
+    return intern(Arrays.copyOf(to, distinct));
+  }
+
+  private State intern(int[] automatonStates) {
+    StateSet key = new StateSet(automatonStates);
+    State state = states.get(key);
+    if (state == null) {
+      Action action = null;
+      for (int s : automatonStates) {
+        if (accepting[s] != null) action = accepting[s]; // later paths have higher states
+      }
+      state = new State(this, automatonStates, action);
+      State existing = states.putIfAbsent(key, state);
+      if (existing != null) state = existing;
+    }
+    return state;
+  }
+
+  private static final class StateSet {
+    private final int[] states;
+    private final int hash;
+
+    StateSet(int[] states) {
+      this.states = states;
+      this.hash = Arrays.hashCode(states);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof StateSet && Arrays.equals(states, ((StateSet) o).states);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** One step of a path, such as {@code .name} or {@code ..[*]} */
+  private static final class Step {
+    /** The member name, or null for any member or element */
+    final String name;
+    /** Whether only array elements match */
+    final boolean element;
+    /** Whether the step may match at any depth below the previous step */
+    final boolean descendant;
+
+    Step(String name, boolean element, boolean descendant) {
+      this.name = name;
+      this.element = element;
+      this.descendant = descendant;
+    }
+
+    /** @param memberName the name of a member, or null for an array element */
+    boolean matches(String memberName) {
+      if (memberName == null) return name == null;
+      return !element && (name == null || name.equals(memberName));
+    }
+  }
+
+  /** Throws an IllegalArgumentException if path is not a supported JsonPath expression */
+  static void checkPath(String path) {
+    parse(path);
+  }
+
+  private static List<Step> parse(String path) {
+    if (!path.startsWith("$")) throw invalidPath(path, "it must start with $");
+    List<Step> steps = new ArrayList<>();
+    int i = 1;
+    while (i < path.length()) {
+      boolean descendant = path.startsWith("..", i);
+      if (descendant) {
+        i += 2;
+      } else if (path.charAt(i) == '.') {
+        ++i;
+      } else if (path.charAt(i) != '[') {
+        throw invalidPath(path, "unexpected " + path.charAt(i) + " at " + i);
+      }
+      if (i < path.length() && path.charAt(i) == '[') {
+        int end = path.indexOf(']', i);
+        if (end == -1) throw invalidPath(path, "missing ]");
+        String selector = path.substring(i + 1, end).trim();
+        char quote = selector.isEmpty() ? 0 : selector.charAt(0);
+        if (selector.equals("*")) {
+          steps.add(new Step(null, true, descendant));
+        } else if (selector.length() >= 2 && (quote == '\'' || quote == '"')
+            && selector.charAt(selector.length() - 1) == quote) {
+          steps.add(new Step(selector.substring(1, selector.length() - 1), false, descendant));
+        } else {
+          throw invalidPath(path, "only [*] and quoted names are supported in brackets");
+        }
+        i = end + 1;
+      } else {
+        int end = i;
+        while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') ++end;
+        String name = path.substring(i, end);
+        if (name.isEmpty()) throw invalidPath(path, "missing name at " + i);
+        steps.add(new Step(name.equals("*") ? null : name, false, descendant));
+        i = end;
+      }
+    }
+    if (steps.isEmpty()) throw invalidPath(path, "the root can not be mapped");
+    return steps;
+  }
+
+  private static IllegalArgumentException invalidPath(String path, String reason) {
+    return new IllegalArgumentException("Invalid JsonPath " + path + ": " + reason);
+  }
+}
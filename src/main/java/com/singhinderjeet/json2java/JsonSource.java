@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * A JSON document to be processed by {@link Json2Java}. The reader is opened only when the
+ * document is processed, so a large corpus can be described without holding files open.
+ *
+ * @author Inderjeet Singh
+ */
+public interface JsonSource {
+
+  /** Opens a new reader for the document. The caller closes it. */
+  Reader openReader() throws IOException;
+
+  /**
+   * A UTF-8 encoded JSON file, which may be gzip compressed. Compressed files are inflated on a
+   * separate thread while they are parsed.
+   */
+  static JsonSource of(File file) {
+    return new Utf8JsonSource(() -> CompressedInputs.open(file));
+  }
+
+  /**
+   * Returns a source for each .json entry of a zip file. Each entry is inflated on a separate
+   * thread while it is parsed.
+   */
+  static List<JsonSource> ofZip(File zip) throws IOException {
+    return CompressedInputs.zipEntries(zip);
+  }
+
+  /**
+   * A UTF-8 encoded JSON file that is memory-mapped and scanned byte by byte when processed with
+   * {@link Json2Java#processJson(java.util.Collection, String, String, CustomMappings)}. See
+   * {@link Json2Java#processMappedJson(File, String, String, CustomMappings)}.
+   */
+  static JsonSource mapped(File file) {
+    return new MappedJsonSource(file);
+  }
+
+  /** An already open reader. The returned source can be processed only once. */
+  static JsonSource of(Reader reader) {
+    return () -> reader;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonToken;
+
+/**
+ * The tokens of a JSON document, as far as they are needed to infer classes. Names are decoded,
+ * but scalar values are only classified, so an implementation need not materialize them.
+ * The methods behave like those of the same name in {@link com.google.gson.stream.JsonReader}.
+ *
+ * @author Inderjeet Singh
+ */
+interface JsonTokenizer {
+  JsonToken peek() throws IOException;
+
+  void beginObject() throws IOException;
+
+  void endObject() throws IOException;
+
+  void beginArray() throws IOException;
+
+  void endArray() throws IOException;
+
+  boolean hasNext() throws IOException;
+
+  String nextName() throws IOException;
+
+  void nextNull() throws IOException;
+
+  void skipValue() throws IOException;
+
+  /** Reads the next boolean, number or string and records its kind in types */
+  void nextScalar(TypeAccumulator types) throws IOException;
+}
@@ -16,9 +16,24 @@
 package com.singhinderjeet.json2java;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * class to run this tool from command line.
@@ -26,9 +41,27 @@ import java.io.Reader;
  * @author Inderjeet Singh
  */
 public class Main {
+  private static final String USAGE = "Usage: Main <json-file> <package> <root-class>\n"
+      + "   or: Main --package <package> --root <root-class> [--out <dir>] [--threads <n>]\n"
+      + "            [--mappings <file>] [--snapshot <file>] [--metrics] [--deduplicate]\n"
+      + "            [--mmap] <file | directory | glob>...\n"
+      + "Directories are searched recursively for .json, .json.gz and .zip files. Gzip files are\n"
+      + "inflated and each .json entry of a zip file is a separate input. If the snapshot file\n"
+      + "exists, the classes saved in it are merged with the inputs, and the result is saved\n"
+      + "back to it.\n"
+      + "--metrics prints the time spent in each phase, and emits JFR events when recording.\n"
+      + "--deduplicate generates a single class for objects of the same shape.\n"
+      + "--out may name a .jar or .zip file, into which all the sources are written.\n"
+      + "--mmap memory-maps the uncompressed input files and scans their bytes without decoding\n"
+      + "values.";
+  /** Exit status for invalid command-line arguments */
+  static final int USAGE_ERROR = 2;
+
   private final String packageName;
   private final String rootClassName;
   private final File outputDir;
+  private GenerationListener listener = GenerationListener.NONE;
+  private boolean deduplicate;
 
   public Main(String packageName, String rootClassName, File outputDir) {
     this.packageName = packageName;
@@ -36,20 +69,265 @@ public class Main {
     this.outputDir = outputDir;
   }
 
+  public void setListener(GenerationListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Sets whether classes of the same shape are generated as one class. See
+   * {@link ClassDefCollection#deduplicate()}. Snapshots keep the classes apart.
+   */
+  public void setDeduplicate(boolean deduplicate) {
+    this.deduplicate = deduplicate;
+  }
+
   public void generate(Reader reader, CustomMappings mappings) throws IOException {
     Json2Java converter = new Json2Java();
+    converter.setListener(listener);
     converter.processJson(reader, packageName, rootClassName, mappings);
     ClassDefCollection classes = converter.getClasses();
-    classes.generateClasses(outputDir, "    ");
+    if (deduplicate) classes.deduplicate();
+    writeClasses(classes, 1);
+  }
+
+  /** Infers classes from all the inputs together, using the specified number of threads. */
+  public void generate(List<JsonSource> inputs, CustomMappings mappings, int threads)
+      throws IOException {
+    generate(inputs, mappings, threads, null);
+  }
+
+  /**
+   * Like {@link #generate(List, CustomMappings, int)} but also merges in the classes saved in the
+   * snapshot file, if it exists, and saves the combined classes back to it.
+   */
+  public void generate(List<JsonSource> inputs, CustomMappings mappings, int threads,
+      File snapshot) throws IOException {
+    Json2Java converter = new Json2Java();
+    converter.setListener(listener);
+    if (snapshot != null && snapshot.isFile()) {
+      try (InputStream in = new FileInputStream(snapshot)) {
+        converter.loadSnapshot(in);
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      converter.processJson(inputs, packageName, rootClassName, mappings, pool);
+    } finally {
+      pool.shutdown();
+    }
+    if (snapshot != null) {
+      try (OutputStream out = new FileOutputStream(snapshot)) {
+        converter.saveSnapshot(out);
+      }
+    }
+    ClassDefCollection classes = converter.getClasses();
+    if (deduplicate) classes.deduplicate();
+    writeClasses(classes, threads);
+  }
+
+  /**
+   * Writes the classes under the output directory, or into it if it names a .jar or .zip file, and
+   * prints the path of each file written.
+   */
+  private void writeClasses(ClassDefCollection classes, int threads) throws IOException {
+    classes.setListener(GenerationListener.compose(listener, new GenerationListener() {
+      @Override public void fileWritten(File file, long bytes) {
+        System.out.println("Writing " + file.getPath());
+      }
+    }));
+    String name = outputDir.getName().toLowerCase();
+    boolean archive = name.endsWith(".jar") || name.endsWith(".zip");
+    try (SourceSink sink = archive ? SourceSink.zip(outputDir) : SourceSink.directory(outputDir)) {
+      classes.generateClasses(sink, "    ", threads);
+    }
   }
 
   public static void main(String[] args) throws Exception {
-    String inputJsonFileName = args[0];
+    if (args.length > 0 && args[0].startsWith("--")) {
+      int status = runBatch(args);
+      if (status != 0) System.exit(status);
+      return;
+    }
+    if (args.length != 3) System.exit(usageError(null));
+    File inputJsonFile = new File(args[0]);
     String packageName = args[1];
     String rootClassName = args[2];
-    Reader reader = new FileReader(inputJsonFileName);
     File outputDir = File.createTempFile("json2java", "src").getParentFile();
     Main main = new Main(packageName, rootClassName, outputDir);
-    main.generate(reader, null);
+    if (CompressedInputs.isZip(inputJsonFile)) {
+      main.generate(JsonSource.ofZip(inputJsonFile), null,
+          Runtime.getRuntime().availableProcessors());
+    } else {
+      main.generate(JsonSource.of(inputJsonFile).openReader(), null);
+    }
+  }
+
+  /**
+   * Runs the tool with options, and returns the exit status: 0, or {@link #USAGE_ERROR} after
+   * printing the usage if the arguments are invalid.
+   */
+  static int runBatch(String[] args) throws IOException {
+    String packageName = null;
+    String rootClassName = null;
+    File outputDir = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    CustomMappings mappings = null;
+    File snapshot = null;
+    GenerationMetrics metrics = null;
+    boolean deduplicate = false;
+    boolean mapped = false;
+    List<String> inputs = new ArrayList<>();
+    for (int i = 0; i < args.length; ++i) {
+      String arg = args[i];
+      if (!arg.startsWith("--")) {
+        inputs.add(arg);
+        continue;
+      }
+      if (arg.equals("--metrics")) {
+        metrics = new GenerationMetrics();
+        continue;
+      }
+      if (arg.equals("--deduplicate")) {
+        deduplicate = true;
+        continue;
+      }
+      if (arg.equals("--mmap")) {
+        mapped = true;
+        continue;
+      }
+      if (i + 1 == args.length) return usageError("Missing value for " + arg);
+      String value = args[++i];
+      if (arg.equals("--package")) {
+        packageName = value;
+      } else if (arg.equals("--root")) {
+        rootClassName = value;
+      } else if (arg.equals("--out")) {
+        outputDir = new File(value);
+      } else if (arg.equals("--threads")) {
+        try {
+          threads = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+          threads = 0;
+        }
+        if (threads < 1) return usageError("Invalid number of threads: " + value);
+      } else if (arg.equals("--snapshot")) {
+        snapshot = new File(value);
+      } else if (arg.equals("--mappings")) {
+        try (Reader reader = Files.newBufferedReader(Paths.get(value), StandardCharsets.UTF_8)) {
+          mappings = CustomMappings.read(reader);
+        } catch (IOException e) {
+          return usageError("Can not read the mappings file " + value);
+        } catch (IllegalArgumentException e) {
+          return usageError(value + ": " + e.getMessage());
+        }
+      } else {
+        return usageError("Unknown option " + arg);
+      }
+    }
+    if (packageName == null || rootClassName == null || inputs.isEmpty()) {
+      return usageError(null);
+    }
+    if (outputDir == null) outputDir = File.createTempFile("json2java", "src").getParentFile();
+    List<JsonSource> sources = new ArrayList<>();
+    for (File file : findInputFiles(inputs)) {
+      if (CompressedInputs.isZip(file)) {
+        sources.addAll(JsonSource.ofZip(file));
+      } else if (mapped && !CompressedInputs.isGzip(file)) {
+        sources.add(JsonSource.mapped(file));
+      } else {
+        sources.add(JsonSource.of(file));
+      }
+    }
+    Main main = new Main(packageName, rootClassName, outputDir);
+    if (metrics != null) main.setListener(withJfrEvents(metrics));
+    main.setDeduplicate(deduplicate);
+    main.generate(sources, mappings, threads, snapshot);
+    if (metrics != null) System.err.print(metrics);
+    return 0;
+  }
+
+  /** Prints the message, if any, and the usage, and returns {@link #USAGE_ERROR} */
+  private static int usageError(String message) {
+    System.err.println(message == null ? USAGE : message + "\n" + USAGE);
+    return USAGE_ERROR;
+  }
+
+  /**
+   * Adds a {@link JfrGenerationListener}, which is built for Java 11 and is loaded reflectively so
+   * that the rest of this class runs on Java 8.
+   */
+  private static GenerationListener withJfrEvents(GenerationListener listener) {
+    try {
+      Class<?> jfrListener = Class.forName("com.singhinderjeet.json2java.JfrGenerationListener");
+      return GenerationListener.compose(listener,
+          (GenerationListener) jfrListener.getDeclaredConstructor().newInstance());
+    } catch (ReflectiveOperationException | LinkageError e) { // no JFR in this JVM
+      return listener;
+    }
+  }
+
+  /**
+   * Expands each input to the files it names: a file stands for itself, a directory for all the
+   * .json, .json.gz and .zip files under it, and anything else is treated as a glob pattern.
+   * Files found under a directory or glob are sorted so that runs are repeatable.
+   */
+  static List<File> findInputFiles(List<String> inputs) throws IOException {
+    return findInputFiles(inputs, null);
+  }
+
+  /**
+   * Like {@link #findInputFiles(List)} but resolves relative inputs against the directory, or
+   * against the working directory if it is null.
+   */
+  static List<File> findInputFiles(List<String> inputs, File workingDir) throws IOException {
+    List<File> files = new ArrayList<>();
+    for (String input : inputs) {
+      File file = resolve(workingDir, input);
+      if (file.isFile()) {
+        files.add(file);
+      } else if (file.isDirectory()) {
+        files.addAll(find(file.toPath(), "**.{json,json.gz,zip}"));
+      } else {
+        // the glob is matched against paths relative to its leading directory
+        int baseDirLength = globBaseDirLength(input);
+        File baseDir = resolve(workingDir, input.substring(0, baseDirLength));
+        List<File> matches = find(baseDir.toPath(), input.substring(baseDirLength));
+        if (matches.isEmpty()) throw new FileNotFoundException(input);
+        files.addAll(matches);
+      }
+    }
+    return files;
+  }
+
+  private static File resolve(File dir, String name) {
+    File file = new File(name);
+    return dir == null || file.isAbsolute() ? file : new File(dir, name);
+  }
+
+  /**
+   * Returns the files under the directory whose paths relative to it match the glob. The walk
+   * stops at the depth of the glob unless it has a ** that matches any number of directories.
+   */
+  private static List<File> find(Path dir, String glob) throws IOException {
+    if (!Files.isDirectory(dir)) return new ArrayList<>();
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    int maxDepth = glob.contains("**") ? Integer.MAX_VALUE : glob.split("/", -1).length;
+    try (Stream<Path> paths = Files.walk(dir, maxDepth)) {
+      return paths
+          .filter(path -> Files.isRegularFile(path) && matcher.matches(dir.relativize(path)))
+          .sorted()
+          .map(Path::toFile)
+          .collect(Collectors.toList());
+    }
+  }
+
+  /** Returns the length of the longest leading directory of the pattern with no glob characters */
+  private static int globBaseDirLength(String pattern) {
+    int firstGlobChar = pattern.length();
+    for (char c : "*?[{".toCharArray()) {
+      int index = pattern.indexOf(c);
+      if (index >= 0 && index < firstGlobChar) firstGlobChar = index;
+    }
+    return pattern.lastIndexOf('/', firstGlobChar) + 1;
   }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A JSON file that {@link Json2Java} processes with a {@link MappedJsonTokenizer}. It can still
+ * be opened as a reader by code that does not know about mapped files.
+ *
+ * @author Inderjeet Singh
+ */
+final class MappedJsonSource implements JsonSource {
+  final File file;
+
+  MappedJsonSource(File file) {
+    this.file = file;
+  }
+
+  @Override
+  public Reader openReader() throws IOException {
+    return JsonSource.of(file).openReader();
+  }
+}
@@ -0,0 +1,509 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * A {@link JsonTokenizer} that scans the UTF-8 bytes of a memory-mapped file. Scalar values are
+ * classified where they lie: strings are checked for spelling out a boolean and numbers for the
+ * range of their value, without creating a String or a Number for them. Names are decoded once
+ * per distinct spelling and then reused. Large files are mapped a window at a time, and a single
+ * token must fit in a window.
+ *
+ * <p>The input must be JSON as specified by RFC 8259, except that strings may also be enclosed in
+ * single quotes. The tokenizer reads past the end of a document into any documents that follow,
+ * but {@link Json2Java#processMappedJson} rejects a file with more than one document, just as
+ * {@link Json2Java#processJson(java.io.Reader, String, String, CustomMappings)} does.
+ *
+ * @author Inderjeet Singh
+ */
+final class MappedJsonTokenizer implements JsonTokenizer, Closeable {
+  /** Largest number of bytes mapped at once */
+  static final int DEFAULT_WINDOW = 1 << 30;
+
+  private static final int EMPTY_DOCUMENT = 0;
+  private static final int NONEMPTY_DOCUMENT = 1;
+  private static final int EMPTY_ARRAY = 2;
+  private static final int NONEMPTY_ARRAY = 3;
+  private static final int EMPTY_OBJECT = 4;
+  private static final int DANGLING_NAME = 5;
+  private static final int NONEMPTY_OBJECT = 6;
+
+  private final FileChannel channel;
+  private final long size;
+  private final int window;
+  private ByteBuffer buffer;
+  /** Offset in the input of the first byte of buffer */
+  private long bufferStart;
+  private int limit;
+  private int pos;
+  /** Index in buffer of the first byte of the token being scanned, kept when remapping */
+  private int mark;
+
+  private int[] scopes = new int[32];
+  private int depth;
+  private JsonToken peeked;
+  /** Quote that opened the peeked name or string */
+  private byte quote;
+  private final Names names = new Names();
+
+  /** Scans the bytes remaining in buffer */
+  MappedJsonTokenizer(ByteBuffer buffer) {
+    this.channel = null;
+    this.size = buffer.remaining();
+    this.window = buffer.remaining();
+    this.buffer = buffer.slice();
+    this.limit = this.buffer.limit();
+    push(EMPTY_DOCUMENT);
+    skipByteOrderMark();
+  }
+
+  /** Scans the file open in channel, mapping at most window bytes of it at a time */
+  MappedJsonTokenizer(FileChannel channel, int window) throws IOException {
+    this.channel = channel;
+    this.size = channel.size();
+    this.window = window;
+    map(0);
+    push(EMPTY_DOCUMENT);
+    skipByteOrderMark();
+  }
+
+  static MappedJsonTokenizer open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new MappedJsonTokenizer(channel, DEFAULT_WINDOW);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** Returns the number of bytes in the input */
+  long size() {
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) channel.close();
+  }
+
+  private void map(long start) throws IOException {
+    bufferStart = start;
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(window, size - start));
+    limit = buffer.limit();
+  }
+
+  /**
+   * Maps the window starting at mark, once all the bytes of the current one are used. Returns
+   * false at the end of the input.
+   */
+  private boolean fill() throws IOException {
+    if (bufferStart + limit >= size) return false;
+    if (mark == 0) throw syntaxError("Token longer than " + window + " bytes");
+    map(bufferStart + mark);
+    pos -= mark;
+    mark = 0;
+    return true;
+  }
+
+  private void skipByteOrderMark() {
+    if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+        && buffer.get(2) == (byte) 0xBF) {
+      pos = 3;
+    }
+  }
+
+  private void push(int scope) {
+    if (depth == scopes.length) scopes = Arrays.copyOf(scopes, depth * 2);
+    scopes[depth++] = scope;
+  }
+
+  @Override
+  public JsonToken peek() throws IOException {
+    if (peeked == null) peeked = doPeek();
+    return peeked;
+  }
+
+  /** Consumes the bytes that identify the next token, and returns its kind */
+  private JsonToken doPeek() throws IOException {
+    int scope = scopes[depth - 1];
+    int c;
+    switch (scope) {
+    case EMPTY_DOCUMENT:
+    case NONEMPTY_DOCUMENT:
+      c = nextNonWhitespace();
+      if (c == -1) return JsonToken.END_DOCUMENT;
+      scopes[depth - 1] = NONEMPTY_DOCUMENT;
+      return peekValue(c);
+    case EMPTY_ARRAY:
+      scopes[depth - 1] = NONEMPTY_ARRAY;
+      c = nextNonWhitespaceInDocument();
+      return c == ']' ? JsonToken.END_ARRAY : peekValue(c);
+    case NONEMPTY_ARRAY:
+      c = nextNonWhitespaceInDocument();
+      if (c == ']') return JsonToken.END_ARRAY;
+      if (c != ',') throw syntaxError("Expected ',' or ']'");
+      return peekValue(nextNonWhitespaceInDocument());
+    case DANGLING_NAME:
+      if (nextNonWhitespaceInDocument() != ':') throw syntaxError("Expected ':'");
+      scopes[depth - 1] = NONEMPTY_OBJECT;
+      return peekValue(nextNonWhitespaceInDocument());
+    default: // EMPTY_OBJECT or NONEMPTY_OBJECT
+      c = nextNonWhitespaceInDocument();
+      if (c == '}') return JsonToken.END_OBJECT;
+      if (scope == NONEMPTY_OBJECT) {
+        if (c != ',') throw syntaxError("Expected ',' or '}'");
+        c = nextNonWhitespaceInDocument();
+      }
+      if (c != '"' && c != '\'') throw syntaxError("Expected a name");
+      quote = (byte) c;
+      scopes[depth - 1] = DANGLING_NAME;
+      return JsonToken.NAME;
+    }
+  }
+
+  private JsonToken peekValue(int c) throws IOException {
+    switch (c) {
+    case '{':
+      return JsonToken.BEGIN_OBJECT;
+    case '[':
+      return JsonToken.BEGIN_ARRAY;
+    case '"':
+    case '\'':
+      quote = (byte) c;
+      return JsonToken.STRING;
+    case 't':
+      expectLiteral("rue");
+      return JsonToken.BOOLEAN;
+    case 'f':
+      expectLiteral("alse");
+      return JsonToken.BOOLEAN;
+    case 'n':
+      expectLiteral("ull");
+      return JsonToken.NULL;
+    default:
+      if (c != '-' && (c < '0' || c > '9')) throw syntaxError("Expected a value");
+      --pos; // the number is scanned when it is read
+      return JsonToken.NUMBER;
+    }
+  }
+
+  private void expectLiteral(String rest) throws IOException {
+    mark = pos - 1;
+    for (int i = 0; i < rest.length(); ++i) {
+      if (pos == limit && !fill() || buffer.get(pos++) != rest.charAt(i)) {
+        throw syntaxError("Expected a value");
+      }
+    }
+  }
+
+  /** Returns the next byte that is not whitespace, or -1 at the end of the input */
+  private int nextNonWhitespace() throws IOException {
+    while (true) {
+      if (pos == limit) {
+        mark = pos;
+        if (!fill()) return -1;
+      }
+      int c = buffer.get(pos++);
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+    }
+  }
+
+  private int nextNonWhitespaceInDocument() throws IOException {
+    int c = nextNonWhitespace();
+    if (c == -1) throw syntaxError("End of input");
+    return c;
+  }
+
+  private void expect(JsonToken token) throws IOException {
+    if (peek() != token) {
+      throw new IllegalStateException("Expected " + token + " but was " + peeked);
+    }
+    peeked = null;
+  }
+
+  @Override
+  public void beginObject() throws IOException {
+    expect(JsonToken.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+  }
+
+  @Override
+  public void endObject() throws IOException {
+    expect(JsonToken.END_OBJECT);
+    --depth;
+  }
+
+  @Override
+  public void beginArray() throws IOException {
+    expect(JsonToken.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+  }
+
+  @Override
+  public void endArray() throws IOException {
+    expect(JsonToken.END_ARRAY);
+    --depth;
+  }
+
+  @Override
+  public boolean hasNext() throws IOException {
+    JsonToken token = peek();
+    return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY
+        && token != JsonToken.END_DOCUMENT;
+  }
+
+  @Override
+  public String nextName() throws IOException {
+    expect(JsonToken.NAME);
+    boolean escaped = skipString();
+    int length = pos - 1 - mark;
+    return escaped ? decode(mark, length) : names.get(buffer, mark, length);
+  }
+
+  @Override
+  public void nextNull() throws IOException {
+    expect(JsonToken.NULL);
+  }
+
+  @Override
+  public void nextScalar(TypeAccumulator types) throws IOException {
+    switch (peek()) {
+    case BOOLEAN:
+      types.addBoolean();
+      break;
+    case NUMBER:
+      types.addKind(scanNumber());
+      break;
+    case STRING:
+      if (skipString()) {
+        types.addString(decode(mark, pos - 1 - mark));
+      } else {
+        types.addKind(isBoolean(mark, pos - 1 - mark) ? TypeAccumulator.BOOLEAN
+            : TypeAccumulator.STRING);
+      }
+      break;
+    default:
+      throw new IllegalStateException("Expected a scalar but was " + peeked);
+    }
+    peeked = null;
+  }
+
+  @Override
+  public void skipValue() throws IOException {
+    int count = 0;
+    do {
+      switch (peek()) {
+      case BEGIN_ARRAY:
+        beginArray();
+        ++count;
+        break;
+      case BEGIN_OBJECT:
+        beginObject();
+        ++count;
+        break;
+      case END_ARRAY:
+        endArray();
+        --count;
+        break;
+      case END_OBJECT:
+        endObject();
+        --count;
+        break;
+      case NAME:
+      case STRING:
+        skipString();
+        peeked = null;
+        break;
+      case NUMBER:
+        scanNumber();
+        peeked = null;
+        break;
+      case END_DOCUMENT:
+        throw new IllegalStateException("Expected a value but was " + peeked);
+      default: // BOOLEAN or NULL, already consumed
+        peeked = null;
+      }
+    } while (count > 0);
+  }
+
+  /**
+   * Advances past the string whose opening quote was consumed, leaving its contents between mark
+   * and the byte before pos. Returns whether the string has escape sequences.
+   */
+  private boolean skipString() throws IOException {
+    mark = pos;
+    boolean escaped = false;
+    while (true) {
+      if (pos == limit && !fill()) throw syntaxError("Unterminated string");
+      byte c = buffer.get(pos++);
+      if (c == quote) return escaped;
+      if (c == '\\') {
+        escaped = true;
+        if (pos == limit && !fill()) throw syntaxError("Unterminated string");
+        ++pos;
+      }
+    }
+  }
+
+  /** Returns whether the bytes spell true or false, ignoring case, like TypeAccumulator */
+  private boolean isBoolean(int start, int length) {
+    return length == 4 && equalsIgnoreCase(start, "true")
+        || length == 5 && equalsIgnoreCase(start, "false");
+  }
+
+  private boolean equalsIgnoreCase(int start, String word) {
+    for (int i = 0; i < word.length(); ++i) {
+      if ((buffer.get(start + i) | 0x20) != word.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /** Decodes a string with escape sequences, which is rare enough to leave to Gson */
+  private String decode(int start, int length) throws IOException {
+    char q = (char) quote;
+    String quoted = q + new String(bytes(start, length), StandardCharsets.UTF_8) + q;
+    JsonReader reader = new JsonReader(new StringReader(quoted));
+    reader.setLenient(true);
+    return reader.nextString();
+  }
+
+  private byte[] bytes(int start, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; ++i) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return bytes;
+  }
+
+  /**
+   * Advances past the number at pos and returns its kind as {@link TypeAccumulator#kindOf}
+   * would for its value. Integers and decimal fractions short enough to be exact are classified
+   * from their digits. Other numbers are parsed.
+   */
+  private int scanNumber() throws IOException {
+    mark = pos;
+    boolean negative = peekByte() == '-';
+    if (negative) ++pos;
+    long value = 0;
+    int digits = 0; // significant digits of the integer part
+    int integerDigits = 0;
+    for (int c = peekByte(); c >= '0' && c <= '9'; ++pos, c = peekByte()) {
+      ++integerDigits;
+      if (value == 0 && c == '0') continue;
+      if (++digits <= 18) value = value * 10 + (c - '0');
+    }
+    if (integerDigits == 0) throw syntaxError("Expected a digit");
+    int fractionDigits = 0;
+    boolean wholeFraction = true;
+    if (peekByte() == '.') {
+      ++pos;
+      for (int c = peekByte(); c >= '0' && c <= '9'; ++pos, c = peekByte()) {
+        ++fractionDigits;
+        if (c != '0') wholeFraction = false;
+      }
+      if (fractionDigits == 0) throw syntaxError("Expected a digit");
+    }
+    boolean hasExponent = (peekByte() | 0x20) == 'e';
+    if (hasExponent) {
+      ++pos;
+      int c = peekByte();
+      if (c == '+' || c == '-') ++pos;
+      int exponentDigits = 0;
+      for (c = peekByte(); c >= '0' && c <= '9'; ++pos, c = peekByte()) {
+        ++exponentDigits;
+      }
+      if (exponentDigits == 0) throw syntaxError("Expected a digit");
+    }
+    if (!hasExponent) {
+      if (wholeFraction) {
+        if (digits > 18) return TypeAccumulator.LONG;
+        long signed = negative ? -value : value;
+        boolean isLargerThanInt = signed > Integer.MAX_VALUE || signed < Integer.MIN_VALUE;
+        return isLargerThanInt ? TypeAccumulator.LONG : TypeAccumulator.INT;
+      }
+      if (digits + fractionDigits <= 15) return TypeAccumulator.DOUBLE;
+    }
+    String number = new String(bytes(mark, pos - mark), StandardCharsets.US_ASCII);
+    return TypeAccumulator.kindOf(Double.parseDouble(number));
+  }
+
+  /** Returns the byte at pos without consuming it, or -1 at the end of the input */
+  private int peekByte() throws IOException {
+    if (pos == limit && !fill()) return -1;
+    return buffer.get(pos);
+  }
+
+  private MalformedJsonException syntaxError(String message) {
+    return new MalformedJsonException(message + " at offset " + (bufferStart + pos));
+  }
+
+  /**
+   * Names decoded so far, looked up by their bytes so that a name seen before is returned without
+   * decoding it again. Once the table is three quarters full, new names are decoded every time.
+   */
+  private static final class Names {
+    private static final int CAPACITY = 4096;
+    private final byte[][] keys = new byte[CAPACITY][];
+    private final String[] values = new String[CAPACITY];
+    private int count;
+
+    String get(ByteBuffer buffer, int start, int length) {
+      int hash = 1;
+      for (int i = 0; i < length; ++i) {
+        hash = 31 * hash + buffer.get(start + i);
+      }
+      int index = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+      for (byte[] key = keys[index]; key != null; key = keys[index]) {
+        if (matches(key, buffer, start, length)) return values[index];
+        index = (index + 1) & (CAPACITY - 1);
+      }
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; ++i) {
+        bytes[i] = buffer.get(start + i);
+      }
+      String name = new String(bytes, StandardCharsets.UTF_8);
+      if (count < CAPACITY * 3 / 4) {
+        keys[index] = bytes;
+        values[index] = name;
+        ++count;
+      }
+      return name;
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int start, int length) {
+      if (key.length != length) return false;
+      for (int i = 0; i < length; ++i) {
+        if (key[i] != buffer.get(start + i)) return false;
+      }
+      return true;
+    }
+  }
+}
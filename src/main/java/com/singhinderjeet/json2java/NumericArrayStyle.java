@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides the Java type of fields holding arrays of numbers. Only arrays whose elements were all
+ * int, long or double values get a primitive type; other arrays stay a {@link java.util.List} of
+ * boxed values.
+ *
+ * @author Inderjeet Singh
+ */
+public final class NumericArrayStyle {
+
+  /** Numeric arrays become List&lt;Integer&gt;, List&lt;Long&gt; or List&lt;Double&gt; */
+  public static final NumericArrayStyle LIST = new NumericArrayStyle(new HashMap<>());
+
+  /** Numeric arrays become int[], long[] or double[] */
+  public static final NumericArrayStyle ARRAY = collections("int[]", "long[]", "double[]");
+
+  /** Maps a primitive element type to the qualified name of the field type */
+  private final Map<String, String> types;
+
+  private NumericArrayStyle(Map<String, String> types) {
+    this.types = types;
+  }
+
+  /**
+   * Numeric arrays become the specified primitive collection classes, such as those of fastutil
+   * or Trove. Generated TypeAdapters read and write these through adapters registered with Gson.
+   *
+   * @param intType qualified name of the class for int arrays
+   * @param longType qualified name of the class for long arrays
+   * @param doubleType qualified name of the class for double arrays
+   */
+  public static NumericArrayStyle collections(String intType, String longType,
+      String doubleType) {
+    Map<String, String> types = new HashMap<>();
+    types.put("int", intType);
+    types.put("long", longType);
+    types.put("double", doubleType);
+    return new NumericArrayStyle(types);
+  }
+
+  /** Returns the field type for an array of elementType, or null if it is a List */
+  String getTypeName(String elementType) {
+    String type = types.get(elementType);
+    return type == null ? null : type.substring(type.lastIndexOf('.') + 1);
+  }
+
+  /** Returns the class to import for an array of elementType, or null if none is needed */
+  String getImport(String elementType) {
+    String type = types.get(elementType);
+    return type == null || type.indexOf('.') == -1 ? null : type;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads another stream ahead on its own thread, handing filled buffers over through a bounded
+ * queue. Wrapping a decompressing stream in it lets decompression and parsing run on different
+ * cores. The buffers are recycled, so reading creates little garbage. The source is read and
+ * closed only by the reading thread.
+ *
+ * @author Inderjeet Singh
+ */
+final class PipelinedInputStream extends InputStream {
+  static final int BUFFER_SIZE = 64 * 1024;
+  /** Number of filled buffers that may wait for the reader */
+  static final int QUEUE_CAPACITY = 4;
+
+  /** A filled buffer, or the end of the source or the error that ended it */
+  private static final class Chunk {
+    final byte[] bytes;
+    final int length;
+    final Throwable error;
+
+    Chunk(byte[] bytes, int length, Throwable error) {
+      this.bytes = bytes;
+      this.length = length;
+      this.error = error;
+    }
+  }
+
+  private static final Chunk END = new Chunk(null, 0, null);
+
+  private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  /** Buffers handed back by the reader. Two more than can wait, for the reader and the source. */
+  private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(QUEUE_CAPACITY + 2);
+  private final Thread thread;
+  private volatile boolean closed;
+  private Chunk current;
+  private int pos;
+
+  PipelinedInputStream(InputStream source, String name) {
+    for (int i = 0; i < QUEUE_CAPACITY + 2; ++i) {
+      free.add(new byte[BUFFER_SIZE]);
+    }
+    thread = new Thread(() -> readAhead(source), "json2java-read-" + name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void readAhead(InputStream source) {
+    Chunk last = END;
+    try (InputStream in = source) {
+      while (!closed) {
+        byte[] buffer = free.take();
+        int length = fill(in, buffer);
+        if (length > 0) filled.put(new Chunk(buffer, length, null));
+        if (length < buffer.length) break;
+      }
+    } catch (InterruptedException e) { // closed by the reader
+      return;
+    } catch (Throwable e) { // any failure ends the stream, or the reader would wait forever
+      last = new Chunk(null, 0, e);
+    }
+    try {
+      // waits for the reader to make room, which it does unless it closes this stream
+      filled.put(last);
+    } catch (InterruptedException e) { // closed by the reader
+    }
+  }
+
+  /** Reads until buffer is full or the source ends, returning the number of bytes read */
+  private static int fill(InputStream source, byte[] buffer) throws IOException {
+    int length = 0;
+    while (length < buffer.length) {
+      int count = source.read(buffer, length, buffer.length - length);
+      if (count == -1) break;
+      length += count;
+    }
+    return length;
+  }
+
+  /** Returns the chunk being read, taking the next one once it is used up, or null at the end */
+  private Chunk chunk() throws IOException {
+    if (closed) throw new IOException("Stream closed");
+    if (current != null && pos < current.length) return current;
+    if (current == END) return null;
+    if (current != null) free.offer(current.bytes);
+    try {
+      current = filled.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    pos = 0;
+    if (current.error != null) {
+      Throwable error = current.error;
+      current = END;
+      if (error instanceof Error) throw (Error) error;
+      throw new IOException(error.getMessage(), error);
+    }
+    return current == END ? null : current;
+  }
+
+  @Override
+  public int read() throws IOException {
+    Chunk chunk = chunk();
+    return chunk == null ? -1 : chunk.bytes[pos++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) return 0;
+    Chunk chunk = chunk();
+    if (chunk == null) return -1;
+    int count = Math.min(length, chunk.length - pos);
+    System.arraycopy(chunk.bytes, pos, buffer, offset, count);
+    pos += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return current == null || current == END ? 0 : current.length - pos;
+  }
+
+  /** Stops reading ahead. The source is closed by the reading thread. */
+  @Override
+  public void close() {
+    if (closed) return;
+    closed = true;
+    thread.interrupt();
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Where {@link ClassDefCollection#generateClasses(SourceSink, String, int)} writes the generated
+ * source files. Files are written one at a time, from a single thread, in a deterministic order.
+ *
+ * @author Inderjeet Singh
+ */
+public interface SourceSink extends Closeable {
+
+  /**
+   * Writes a source file.
+   *
+   * @param path the path of the file relative to the source root, with / separated directories,
+   *     such as {@code com/example/Root.java}
+   * @return the file written, or the path of the entry for an archive, as reported to the
+   *     {@link GenerationListener}
+   */
+  File write(String path, byte[] bytes) throws IOException;
+
+  /** Finishes the output. Sinks that write to a directory need not be closed. */
+  @Override
+  void close() throws IOException;
+
+  /** Writes each source as a file under dir, creating the package directories as needed */
+  static SourceSink directory(File dir) {
+    return new DirectorySourceSink(dir);
+  }
+
+  /**
+   * Streams all sources into a single zip file, such as a -sources.jar. Entries have a fixed
+   * time, so the same classes always produce the same bytes.
+   */
+  static SourceSink zip(File file) throws IOException {
+    return zip(new FileOutputStream(file));
+  }
+
+  /** Like {@link #zip(File)} but writes to out, which is closed when the sink is closed */
+  static SourceSink zip(OutputStream out) {
+    return new ZipSourceSink(out);
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.util.List;
+
+import com.singhinderjeet.json2java.SourceTemplate.Scope;
+import com.singhinderjeet.json2java.SourceTemplate.Var;
+
+/**
+ * The templates that the body of each generated class is rendered from. Templates are parsed
+ * when the style is created, and rendering appends to a reused buffer without creating objects
+ * per field, so a custom style costs no more than the default one.
+ *
+ * <p>In a template, {@code {{name}}} appends a value, {@code {{#name}}...{{/name}}} renders the
+ * enclosed text for each element of a list or if a condition holds, and
+ * {@code {{^name}}...{{/name}}} renders it for an empty list or if a condition does not hold.
+ * Each tab stands for one level of indentation. The class and constructor templates can use:
+ * <ul>
+ * <li>{@code className}, {@code baseClassName} and the condition {@code hasBaseClass}
+ * <li>{@code declarations}, {@code constructor} and {@code accessors}: the field declarations,
+ *     the constructor and the accessors, rendered from the other templates. Only the class
+ *     template can use these, and not inside a section.
+ * <li>the lists {@code fields}, the fields declared by the class, {@code parameters}, the fields
+ *     of the base class and then of the class, and {@code superArguments}, the fields of the
+ *     base class, with the condition {@code callsSuper} if there are any
+ * </ul>
+ * The field and accessor templates, and list sections over fields, can use {@code name},
+ * {@code jsonName}, {@code type}, {@code accessor}, and the conditions {@code serializedName}
+ * if the JSON name differs from the field name, and {@code first} and {@code last}. The enum
+ * template can use {@code className}, {@code baseClassName}, {@code hasBaseClass} and the list
+ * {@code values} with {@code name}, {@code jsonName}, {@code serializedName}, {@code first} and
+ * {@code last}.
+ *
+ * @author Inderjeet Singh
+ */
+public final class SourceStyle {
+  public static final String DEFAULT_CLASS_TEMPLATE =
+      "public class {{className}}{{#hasBaseClass}} extends {{baseClassName}}{{/hasBaseClass}} {\n"
+      + "\n"
+      + "{{declarations}}{{constructor}}{{accessors}}}\n";
+  public static final String DEFAULT_FIELD_TEMPLATE =
+      "{{#serializedName}}\t@SerializedName(\"{{jsonName}}\")\n{{/serializedName}}"
+      + "\tprivate final {{type}} {{name}};\n";
+  public static final String DEFAULT_CONSTRUCTOR_TEMPLATE =
+      "\n\tpublic {{className}}({{#parameters}}{{^first}}, {{/first}}{{type}} {{name}}"
+      + "{{/parameters}}) {\n"
+      + "{{#callsSuper}}\t\tsuper({{#superArguments}}{{^first}}, {{/first}}{{name}}"
+      + "{{/superArguments}});\n{{/callsSuper}}"
+      + "{{#fields}}{{^first}}\n{{/first}}\t\tthis.{{name}} = {{name}};{{/fields}}\n"
+      + "\t}\n";
+  public static final String DEFAULT_ACCESSOR_TEMPLATE =
+      "\n\tpublic {{type}} {{accessor}}() {\n"
+      + "\t\treturn {{name}};\n"
+      + "\t}\n";
+  public static final String DEFAULT_ENUM_TEMPLATE =
+      "public enum {{className}}{{#hasBaseClass}} extends {{baseClassName}}{{/hasBaseClass}} {\n"
+      + "{{#values}}\t{{#serializedName}}@SerializedName(\"{{jsonName}}\") {{/serializedName}}"
+      + "{{name}}{{^last}},{{/last}}\n{{/values}}"
+      + "}\n";
+
+  public static final SourceStyle DEFAULT = new SourceStyle(DEFAULT_CLASS_TEMPLATE,
+      DEFAULT_FIELD_TEMPLATE, DEFAULT_CONSTRUCTOR_TEMPLATE, DEFAULT_ACCESSOR_TEMPLATE,
+      DEFAULT_ENUM_TEMPLATE);
+
+  private final SourceTemplate classTemplate;
+  private final SourceTemplate fieldTemplate;
+  private final SourceTemplate constructorTemplate;
+  private final SourceTemplate accessorTemplate;
+  private final SourceTemplate enumTemplate;
+
+  /** @throws IllegalArgumentException if a template is malformed or uses an unknown name */
+  public SourceStyle(String classTemplate, String fieldTemplate, String constructorTemplate,
+      String accessorTemplate, String enumTemplate) {
+    this.classTemplate = SourceTemplate.parse(classTemplate, Scope.CLASS);
+    this.fieldTemplate = SourceTemplate.parse(fieldTemplate, Scope.ITEM);
+    this.constructorTemplate = SourceTemplate.parse(constructorTemplate, Scope.CONSTRUCTOR);
+    this.accessorTemplate = SourceTemplate.parse(accessorTemplate, Scope.ITEM);
+    this.enumTemplate = SourceTemplate.parse(enumTemplate, Scope.CLASS);
+  }
+
+  public SourceStyle withClassTemplate(String template) {
+    return new SourceStyle(template, fieldTemplate.getText(), constructorTemplate.getText(),
+        accessorTemplate.getText(), enumTemplate.getText());
+  }
+
+  public SourceStyle withFieldTemplate(String template) {
+    return new SourceStyle(classTemplate.getText(), template, constructorTemplate.getText(),
+        accessorTemplate.getText(), enumTemplate.getText());
+  }
+
+  public SourceStyle withConstructorTemplate(String template) {
+    return new SourceStyle(classTemplate.getText(), fieldTemplate.getText(), template,
+        accessorTemplate.getText(), enumTemplate.getText());
+  }
+
+  public SourceStyle withAccessorTemplate(String template) {
+    return new SourceStyle(classTemplate.getText(), fieldTemplate.getText(),
+        constructorTemplate.getText(), template, enumTemplate.getText());
+  }
+
+  public SourceStyle withEnumTemplate(String template) {
+    return new SourceStyle(classTemplate.getText(), fieldTemplate.getText(),
+        constructorTemplate.getText(), accessorTemplate.getText(), template);
+  }
+
+  /** Appends the body of a class, from the class declaration to its closing brace */
+  void appendClass(ClassDefinition clazz, StringBuilder out, String indent) {
+    classTemplate.render(new Context(this, clazz, indent), out);
+  }
+
+  void appendEnum(EnumDefinition clazz, StringBuilder out, String indent) {
+    enumTemplate.render(new Context(this, clazz, indent), out);
+  }
+
+  void appendConstructor(ClassDefinition clazz, StringBuilder out, String indent) {
+    constructorTemplate.render(new Context(this, clazz, indent), out);
+  }
+
+  void appendAccessors(ClassDefinition clazz, StringBuilder out, String indent) {
+    new Context(this, clazz, indent).appendEach(accessorTemplate, out);
+  }
+
+  /**
+   * The class that a template is rendered with and, inside a list section, the current element:
+   * a field, or the index of an enum value.
+   */
+  static final class Context {
+    private final SourceStyle style;
+    private final ClassDefinition clazz;
+    final String[] indents;
+    private List<ClassField> ownFields;
+    List<ClassField> items;
+    ClassField field;
+    int index;
+    int count;
+
+    Context(SourceStyle style, ClassDefinition clazz, String indent) {
+      this.style = style;
+      this.clazz = clazz;
+      this.indents = SourceTemplate.indents(indent);
+    }
+
+    private List<ClassField> ownFields() {
+      if (ownFields == null) ownFields = clazz.getOwnFields();
+      return ownFields;
+    }
+
+    /** Renders template for each of the fields declared by the class */
+    private void appendEach(SourceTemplate template, StringBuilder out) {
+      List<ClassField> fields = ownFields();
+      for (int i = 0; i < fields.size(); ++i) {
+        select(Var.FIELDS, i, fields.size());
+        template.render(this, out);
+      }
+      items = null;
+      field = null;
+    }
+
+    int size(Var list) {
+      switch (list) {
+      case FIELDS:
+        return ownFields().size();
+      case PARAMETERS:
+        return parameters(list).size();
+      case SUPER_ARGUMENTS:
+        return clazz.getBaseClass() == null ? 0 : clazz.getBaseClass().fields.size();
+      case VALUES:
+        return clazz instanceof EnumDefinition ? ((EnumDefinition) clazz).getJavaNames().size() : 0;
+      default:
+        throw new IllegalStateException(list.name);
+      }
+    }
+
+    private List<ClassField> parameters(Var list) {
+      if (list == Var.FIELDS) return ownFields();
+      if (list == Var.SUPER_ARGUMENTS) return clazz.getBaseClass().fields;
+      return clazz.getConstructorParameters();
+    }
+
+    /** Makes element index of list the current element */
+    void select(Var list, int index, int count) {
+      if (list != Var.VALUES) {
+        if (index == 0) items = parameters(list);
+        field = items.get(index);
+      } else {
+        items = null;
+        field = null;
+      }
+      this.index = index;
+      this.count = count;
+    }
+
+    boolean test(Var var) {
+      switch (var) {
+      case HAS_BASE_CLASS:
+        return clazz.getBaseClass() != null;
+      case CALLS_SUPER:
+        return size(Var.SUPER_ARGUMENTS) > 0;
+      case SERIALIZED_NAME:
+        if (field != null) return field.needsSerializedNameAnnotation();
+        String jsonName = enumJsonName();
+        return jsonName != null && !jsonName.equals(enumJavaName());
+      case FIRST:
+        return index == 0;
+      case LAST:
+        return index == count - 1;
+      default:
+        throw new IllegalStateException(var.name);
+      }
+    }
+
+    void append(Var var, StringBuilder out) {
+      switch (var) {
+      case CLASS_NAME:
+        out.append(clazz.getClassName());
+        break;
+      case BASE_CLASS_NAME:
+        if (clazz.getBaseClass() != null) out.append(clazz.getBaseClass().getClassName());
+        break;
+      case DECLARATIONS:
+        appendEach(style.fieldTemplate, out);
+        break;
+      case CONSTRUCTOR:
+        style.constructorTemplate.render(this, out);
+        break;
+      case ACCESSORS:
+        appendEach(style.accessorTemplate, out);
+        break;
+      case NAME:
+        out.append(field != null ? field.getFieldName() : enumJavaName());
+        break;
+      case JSON_NAME:
+        out.append(field != null ? field.getJsonName() : enumJsonName());
+        break;
+      case TYPE:
+        if (field != null) out.append(field.getTypeName());
+        break;
+      case ACCESSOR:
+        if (field != null) field.appendAccessorName(out);
+        break;
+      default:
+        throw new IllegalStateException(var.name);
+      }
+    }
+
+    private String enumJavaName() {
+      return ((EnumDefinition) clazz).getJavaNames().get(index);
+    }
+
+    private String enumJsonName() {
+      return ((EnumDefinition) clazz).getJsonNames().get(index);
+    }
+  }
+}
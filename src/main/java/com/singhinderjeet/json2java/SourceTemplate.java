@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A template for a part of a generated source file, parsed once into a list of instructions that
+ * append text, indentation and values straight into a buffer. {@code {{name}}} appends a value,
+ * {@code {{#name}}...{{/name}}} renders the enclosed text for each element of a list or if a
+ * condition holds, and {@code {{^name}}...{{/name}}} renders it for an empty list or if a
+ * condition does not hold. Each tab stands for one level of indentation. See
+ * {@link SourceStyle} for the names that can be used.
+ *
+ * @author Inderjeet Singh
+ */
+final class SourceTemplate {
+
+  /**
+   * Whether the names of a template refer to a class, or to a field or enum value. Only class
+   * templates may include the other templates of a class, which would otherwise include themselves.
+   */
+  enum Scope {
+    CLASS, CONSTRUCTOR, ITEM
+  }
+
+  private enum Kind {
+    /** A value rendered from another template of the class */
+    PARTIAL, VALUE, CONDITION, LIST
+  }
+
+  /** The names that templates can use */
+  enum Var {
+    CLASS_NAME("className", Scope.CLASS, Kind.VALUE),
+    BASE_CLASS_NAME("baseClassName", Scope.CLASS, Kind.VALUE),
+    HAS_BASE_CLASS("hasBaseClass", Scope.CLASS, Kind.CONDITION),
+    DECLARATIONS("declarations", Scope.CLASS, Kind.PARTIAL),
+    CONSTRUCTOR("constructor", Scope.CLASS, Kind.PARTIAL),
+    ACCESSORS("accessors", Scope.CLASS, Kind.PARTIAL),
+    FIELDS("fields", Scope.CLASS, Kind.LIST),
+    PARAMETERS("parameters", Scope.CLASS, Kind.LIST),
+    SUPER_ARGUMENTS("superArguments", Scope.CLASS, Kind.LIST),
+    CALLS_SUPER("callsSuper", Scope.CLASS, Kind.CONDITION),
+    VALUES("values", Scope.CLASS, Kind.LIST),
+    NAME("name", Scope.ITEM, Kind.VALUE),
+    JSON_NAME("jsonName", Scope.ITEM, Kind.VALUE),
+    TYPE("type", Scope.ITEM, Kind.VALUE),
+    ACCESSOR("accessor", Scope.ITEM, Kind.VALUE),
+    SERIALIZED_NAME("serializedName", Scope.ITEM, Kind.CONDITION),
+    FIRST("first", Scope.ITEM, Kind.CONDITION),
+    LAST("last", Scope.ITEM, Kind.CONDITION);
+
+    final String name;
+    final Scope scope;
+    final Kind kind;
+
+    Var(String name, Scope scope, Kind kind) {
+      this.name = name;
+      this.scope = scope;
+      this.kind = kind;
+    }
+
+    static Var named(String name) {
+      for (Var var : values()) {
+        if (var.name.equals(name)) return var;
+      }
+      return null;
+    }
+  }
+
+  private static final byte TEXT = 0;
+  private static final byte INDENT = 1;
+  private static final byte VALUE = 2;
+  private static final byte SECTION = 3;
+  private static final byte INVERTED_SECTION = 4;
+  private static final byte END = 5;
+
+  /** Deepest indentation a template can have */
+  private static final int MAX_INDENT = 16;
+  private static final Map<String, String[]> INDENTS = new ConcurrentHashMap<>();
+
+  private final String text;
+  private final byte[] ops;
+  /** Text of TEXT, level of INDENT, and index of the matching END of sections */
+  private final String[] texts;
+  private final int[] operands;
+  private final Var[] vars;
+
+  private SourceTemplate(String text, List<Object> instructions) {
+    this.text = text;
+    int count = instructions.size() / 2;
+    ops = new byte[count];
+    texts = new String[count];
+    operands = new int[count];
+    vars = new Var[count];
+    int[] openSections = new int[count];
+    int depth = 0;
+    for (int i = 0; i < count; ++i) {
+      ops[i] = (Byte) instructions.get(2 * i);
+      Object operand = instructions.get(2 * i + 1);
+      switch (ops[i]) {
+      case TEXT:
+        texts[i] = (String) operand;
+        break;
+      case INDENT:
+        operands[i] = (Integer) operand;
+        break;
+      case END:
+        operands[openSections[--depth]] = i;
+        vars[i] = (Var) operand;
+        break;
+      case SECTION:
+      case INVERTED_SECTION:
+        openSections[depth++] = i;
+        vars[i] = (Var) operand;
+        break;
+      default:
+        vars[i] = (Var) operand;
+      }
+    }
+  }
+
+  /**
+   * Parses a template whose names refer to a class or, for the ITEM scope, to a field or enum
+   * value.
+   *
+   * @throws IllegalArgumentException if the template is malformed or uses an unknown name
+   */
+  static SourceTemplate parse(String text, Scope scope) {
+    List<Object> instructions = new ArrayList<>();
+    List<Var> open = new ArrayList<>();
+    int pos = 0;
+    while (pos < text.length()) {
+      int start = text.indexOf("{{", pos);
+      if (start < 0) start = text.length();
+      // in a run of braces, the tag starts at the last two so that "{{{name}}" is "{" and a tag
+      while (start + 2 < text.length() && text.charAt(start + 2) == '{') ++start;
+      addText(instructions, text.substring(pos, start));
+      if (start == text.length()) break;
+      int end = text.indexOf("}}", start);
+      if (end < 0) throw new IllegalArgumentException("Unclosed tag at " + start + ": " + text);
+      String tag = text.substring(start + 2, end).trim();
+      pos = end + 2;
+      char type = tag.isEmpty() ? ' ' : tag.charAt(0);
+      String name = type == '#' || type == '^' || type == '/' ? tag.substring(1).trim() : tag;
+      Var var = Var.named(name);
+      if (var == null) throw new IllegalArgumentException("Unknown name " + name + ": " + text);
+      boolean inItem = scope == Scope.ITEM;
+      for (Var section : open) {
+        inItem |= section.kind == Kind.LIST;
+      }
+      if (var.scope == Scope.ITEM && !inItem) {
+        throw new IllegalArgumentException(name + " used outside a list: " + text);
+      }
+      if (type == '/') {
+        if (open.isEmpty() || open.get(open.size() - 1) != var) {
+          throw new IllegalArgumentException("Unexpected {{/" + name + "}}: " + text);
+        }
+        open.remove(open.size() - 1);
+        add(instructions, END, var);
+      } else if (type == '#' || type == '^') {
+        if (var.kind == Kind.VALUE || var.kind == Kind.PARTIAL) {
+          throw new IllegalArgumentException(name + " is not a list or condition: " + text);
+        }
+        open.add(var);
+        add(instructions, type == '#' ? SECTION : INVERTED_SECTION, var);
+      } else if (var.kind == Kind.PARTIAL) {
+        if (scope != Scope.CLASS || !open.isEmpty()) {
+          throw new IllegalArgumentException(
+              name + " can only be used outside sections of a class template: " + text);
+        }
+        add(instructions, VALUE, var);
+      } else {
+        if (var.kind != Kind.VALUE) throw new IllegalArgumentException(name + " is not a value");
+        add(instructions, VALUE, var);
+      }
+    }
+    if (!open.isEmpty()) {
+      throw new IllegalArgumentException("Unclosed {{#" + open.get(0).name + "}}: " + text);
+    }
+    return new SourceTemplate(text, instructions);
+  }
+
+  /** Adds text, turning each run of tabs into an indentation instruction */
+  private static void addText(List<Object> instructions, String text) {
+    int pos = 0;
+    while (pos < text.length()) {
+      int tab = text.indexOf('\t', pos);
+      if (tab < 0) tab = text.length();
+      if (tab > pos) add(instructions, TEXT, text.substring(pos, tab));
+      int level = 0;
+      for (pos = tab; pos < text.length() && text.charAt(pos) == '\t'; ++pos) {
+        ++level;
+      }
+      if (level > MAX_INDENT) throw new IllegalArgumentException("Indented too deep: " + text);
+      if (level > 0) add(instructions, INDENT, level);
+    }
+  }
+
+  private static void add(List<Object> instructions, byte op, Object operand) {
+    instructions.add(op);
+    instructions.add(operand);
+  }
+
+  String getText() {
+    return text;
+  }
+
+  /** Returns indent repeated 0 to MAX_INDENT times */
+  static String[] indents(String indent) {
+    String[] indents = INDENTS.get(indent);
+    if (indents == null) {
+      indents = new String[MAX_INDENT + 1];
+      StringBuilder repeated = new StringBuilder();
+      for (int level = 0; level <= MAX_INDENT; ++level) {
+        indents[level] = repeated.toString();
+        repeated.append(indent);
+      }
+      if (INDENTS.size() < 64) INDENTS.put(indent, indents);
+    }
+    return indents;
+  }
+
+  /** Renders the template with the class, field or enum value of context */
+  void render(SourceStyle.Context context, StringBuilder out) {
+    render(0, ops.length, context, out);
+  }
+
+  private void render(int from, int to, SourceStyle.Context context, StringBuilder out) {
+    for (int pc = from; pc < to; ++pc) {
+      switch (ops[pc]) {
+      case TEXT:
+        out.append(texts[pc]);
+        break;
+      case INDENT:
+        out.append(context.indents[operands[pc]]);
+        break;
+      case VALUE:
+        context.append(vars[pc], out);
+        break;
+      case SECTION:
+      case INVERTED_SECTION:
+        renderSection(pc, context, out);
+        pc = operands[pc];
+        break;
+      default: // END
+      }
+    }
+  }
+
+  private void renderSection(int pc, SourceStyle.Context context, StringBuilder out) {
+    Var var = vars[pc];
+    boolean inverted = ops[pc] == INVERTED_SECTION;
+    int end = operands[pc];
+    if (var.kind == Kind.CONDITION) {
+      if (context.test(var) != inverted) render(pc + 1, end, context, out);
+      return;
+    }
+    int size = context.size(var);
+    if (inverted) {
+      if (size == 0) render(pc + 1, end, context, out);
+      return;
+    }
+    List<ClassField> items = context.items;
+    ClassField field = context.field;
+    int index = context.index;
+    int count = context.count;
+    for (int i = 0; i < size; ++i) {
+      context.select(var, i, size);
+      render(pc + 1, end, context, out);
+    }
+    context.items = items;
+    context.field = field;
+    context.index = index;
+    context.count = count;
+  }
+}
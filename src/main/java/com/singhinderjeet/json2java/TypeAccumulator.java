@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Records the kinds of JSON values seen for a field, so that a Java type can be inferred without
+ * retaining the values themselves. Each value updates a few bits and is then dropped.
+ * Numbers widen from int to long to double, and mixing booleans, numbers and strings widens
+ * to String.
+ *
+ * @author Inderjeet Singh
+ */
+public class TypeAccumulator {
+  static final int BOOLEAN = 1;
+  static final int STRING = 1 << 1;
+  static final int INT = 1 << 2;
+  static final int LONG = 1 << 3;
+  static final int DOUBLE = 1 << 4;
+  static final int ARRAY = 1 << 5;
+  static final int OBJECT = 1 << 6;
+
+  private int seen;
+  /** Kinds of values seen as array elements, created on first array */
+  private TypeAccumulator elements;
+
+  public TypeAccumulator() {
+  }
+
+  /** Recreates an accumulator with the state returned by its accessors, used to load snapshots */
+  TypeAccumulator(int seen, TypeAccumulator elements) {
+    this.seen = seen;
+    this.elements = elements;
+  }
+
+  public void add(JsonElement value) {
+    if (value instanceof JsonPrimitive) {
+      JsonPrimitive primitive = value.getAsJsonPrimitive();
+      if (primitive.isBoolean()) {
+        addBoolean();
+      } else if (primitive.isString()) {
+        addString(primitive.getAsString());
+      } else if (primitive.isNumber()) {
+        addNumber(primitive.getAsDouble());
+      }
+    } else if (value instanceof JsonArray) {
+      TypeAccumulator elements = addArray();
+      for (JsonElement element : value.getAsJsonArray()) {
+        elements.add(element);
+      }
+    } else if (value instanceof JsonObject) {
+      addObject();
+    }
+  }
+
+  public void addBoolean() {
+    seen |= BOOLEAN;
+  }
+
+  /** Strings that spell out a boolean value are treated as booleans */
+  public void addString(String value) {
+    seen |= value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false") ? BOOLEAN : STRING;
+  }
+
+  public void addNumber(double number) {
+    seen |= kindOf(number);
+  }
+
+  /** Returns INT, LONG or DOUBLE, whichever is the narrowest kind that holds number */
+  static int kindOf(double number) {
+    boolean isWholeNumber = number - Math.ceil(number) == 0;
+    if (isWholeNumber) { // int is preferred over long so look for that
+      long longValue = (long) number;
+      boolean isLargerThanInt = longValue > Integer.MAX_VALUE || longValue < Integer.MIN_VALUE;
+      return isLargerThanInt ? LONG : INT;
+    } else { // double is preferred over float
+      return DOUBLE;
+    }
+  }
+
+  /** Records a value classified by the caller as one of the kind constants of this class */
+  void addKind(int kind) {
+    seen |= kind;
+  }
+
+  public void addObject() {
+    seen |= OBJECT;
+  }
+
+  /**
+   * Records an array value.
+   *
+   * @return the accumulator to which the elements of the array should be added
+   */
+  public TypeAccumulator addArray() {
+    seen |= ARRAY;
+    if (elements == null) elements = new TypeAccumulator();
+    return elements;
+  }
+
+  /** Adds the kinds seen by other, returning whether any of them were new */
+  public boolean merge(TypeAccumulator other) {
+    int before = this.seen;
+    this.seen |= other.seen;
+    boolean changed = this.seen != before;
+    if (other.elements != null && addArray().merge(other.elements)) changed = true;
+    return changed;
+  }
+
+  /**
+   * Returns a value of each kind seen, which recorded in a new accumulator give the same state as
+   * this one. The values seen are not retained, so these stand in for them.
+   */
+  List<JsonElement> getSampleValues() {
+    List<JsonElement> values = new ArrayList<>();
+    if ((seen & BOOLEAN) != 0) values.add(new JsonPrimitive(true));
+    if ((seen & STRING) != 0) values.add(new JsonPrimitive(""));
+    if ((seen & INT) != 0) values.add(new JsonPrimitive(0));
+    if ((seen & LONG) != 0) values.add(new JsonPrimitive(1L << 32));
+    if ((seen & DOUBLE) != 0) values.add(new JsonPrimitive(0.5d));
+    if ((seen & OBJECT) != 0) values.add(new JsonObject());
+    if (isArray()) {
+      JsonArray array = new JsonArray();
+      if (elements != null) {
+        for (JsonElement element : elements.getSampleValues()) {
+          array.add(element);
+        }
+      }
+      values.add(array);
+    }
+    return values;
+  }
+
+  int getSeen() {
+    return seen;
+  }
+
+  TypeAccumulator getElements() {
+    return elements;
+  }
+
+  /** Returns whether numbers and nothing else were seen */
+  public boolean isNumeric() {
+    return seen != 0 && (seen & ~(INT | LONG | DOUBLE)) == 0;
+  }
+
+  public boolean isArray() {
+    return (seen & ARRAY) != 0;
+  }
+
+  /**
+   * Returns the widest Java type that holds all the seen values. For arrays this is the type of
+   * the elements (inner arrays are flattened). If only objects or no values were seen,
+   * defaultType is returned.
+   */
+  public String getTypeName(String defaultType) {
+    if (isArray()) return elements.getTypeName(defaultType);
+    return getScalarTypeName(defaultType);
+  }
+
+  private String getScalarTypeName(String defaultType) {
+    boolean number = (seen & (INT | LONG | DOUBLE)) != 0;
+    if ((seen & STRING) != 0 || (number && (seen & BOOLEAN) != 0)) return "String";
+    if ((seen & BOOLEAN) != 0) return "boolean";
+    if ((seen & DOUBLE) != 0) return "double";
+    if ((seen & LONG) != 0) return "long";
+    if ((seen & INT) != 0) return "int";
+    return defaultType;
+  }
+
+  @Override
+  public String toString() {
+    return "TypeAccumulator [seen=" + Integer.toBinaryString(seen) + ", elements=" + elements + "]";
+  }
+}
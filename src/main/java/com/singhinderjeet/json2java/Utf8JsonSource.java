@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A UTF-8 encoded JSON document that {@link Json2Java} reads as a stream of bytes, so that it can
+ * report the bytes read as well as the characters.
+ *
+ * @author Inderjeet Singh
+ */
+final class Utf8JsonSource implements JsonSource {
+  private final StreamOpener opener;
+
+  interface StreamOpener {
+    InputStream open() throws IOException;
+  }
+
+  Utf8JsonSource(StreamOpener opener) {
+    this.opener = opener;
+  }
+
+  /** Opens a new stream of the UTF-8 encoded document, after any decompression */
+  InputStream openStream() throws IOException {
+    return opener.open();
+  }
+
+  @Override
+  public Reader openReader() throws IOException {
+    return new InputStreamReader(openStream(), StandardCharsets.UTF_8);
+  }
+}
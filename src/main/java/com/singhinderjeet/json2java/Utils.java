@@ -15,8 +15,14 @@
  */
 package com.singhinderjeet.json2java;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility methods.
@@ -24,26 +30,120 @@ import java.util.List;
  * @author Inderjeet Singh
  */
 public class Utils {
+  /** Java keywords and literals, which can not be used as field names */
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("abstract", "assert",
+      "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+      "default", "do", "double", "else", "enum", "extends", "false", "final", "finally", "float",
+      "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long",
+      "native", "new", "null", "package", "private", "protected", "public", "return", "short",
+      "static", "strictfp", "super", "switch", "synchronized", "this", "throw", "throws",
+      "transient", "true", "try", "void", "volatile", "while", "_"));
+
+  /** Number of JSON keys whose names are cached before the cache is cleared */
+  private static final int NAME_CACHE_SIZE = 8192;
+  private static final Map<String, JavaNames> nameCache = new ConcurrentHashMap<>();
+
+  /** Names of the field and the class that Json2Java derives from a JSON key */
+  static final class JavaNames {
+    /** The key with underscores removed and the letters after them upper-cased */
+    final String jsonName;
+    /** The field name if the JSON name is not usable as one, else null */
+    final String fieldName;
+    /** The class name for object values of the key */
+    final String typeName;
+
+    JavaNames(String jsonName, String fieldName, String typeName) {
+      this.jsonName = jsonName;
+      this.fieldName = fieldName;
+      this.typeName = typeName;
+    }
+  }
+
+  /**
+   * Returns the names for a JSON key. Characters that can not be part of a Java name separate
+   * words like underscores do, a name starting with a digit gets a leading underscore, and a
+   * field name that is a Java keyword gets a trailing underscore.
+   */
+  static JavaNames toJavaNames(String key) {
+    JavaNames names = nameCache.get(key);
+    if (names == null) {
+      names = computeJavaNames(key);
+      if (nameCache.size() >= NAME_CACHE_SIZE) nameCache.clear();
+      nameCache.put(key, names);
+    }
+    return names;
+  }
+
+  private static JavaNames computeJavaNames(String key) {
+    StringBuilder jsonName = new StringBuilder(key.length());
+    StringBuilder javaName = new StringBuilder(key.length());
+    boolean afterUnderscore = false;
+    boolean afterSeparator = false;
+    for (int i = 0; i < key.length(); ++i) {
+      char c = key.charAt(i);
+      if (c == '_') {
+        afterUnderscore = afterSeparator = true;
+        continue;
+      }
+      jsonName.append(afterUnderscore ? Character.toUpperCase(c) : c);
+      afterUnderscore = false;
+      if (Character.isJavaIdentifierPart(c)) {
+        javaName.append(afterSeparator ? Character.toUpperCase(c) : c);
+        afterSeparator = false;
+      } else {
+        afterSeparator = true;
+      }
+    }
+    String name = jsonName.length() == key.length() ? key : jsonName.toString();
+    if (javaName.length() == 0) javaName.append("value");
+    if (!Character.isJavaIdentifierStart(javaName.charAt(0))) javaName.insert(0, '_');
+    String typeName = firstLetterUpperCase(javaName.toString());
+    javaName.setCharAt(0, Character.toLowerCase(javaName.charAt(0)));
+    String fieldName = javaName.toString();
+    boolean usable = !name.isEmpty() && fieldName.equals(firstLetterLowerCase(name));
+    if (KEYWORDS.contains(fieldName)) {
+      fieldName += "_";
+      usable = false;
+    }
+    return new JavaNames(name, usable ? null : fieldName, typeName);
+  }
+
   static String lowerCaseUnderscoreToCamelCase(String name, boolean firstLetterUpperCase) {
-    while (name.contains("_")) {
-      int index = name.indexOf('_');
-      if (index + 1 == name.length()) { // is last character
-        name = name.substring(0, name.length() - 1);
+    StringBuilder camelCase = new StringBuilder(name.length());
+    boolean upperCase = firstLetterUpperCase;
+    for (int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      if (c == '_') {
+        upperCase = true;
       } else {
-        String firstPart = index == 0 ? "" : name.substring(0, index);
-        char camelCase = Character.toUpperCase(name.charAt(index + 1));
-        String lastPart = name.substring(index + 2);
-        name = firstPart + camelCase + lastPart;
+        camelCase.append(upperCase ? Character.toUpperCase(c) : c);
+        upperCase = false;
       }
     }
-    if (firstLetterUpperCase) name = firstLetterUpperCase(name);
-    return name;
+    return camelCase.toString();
+  }
+
+  private static String firstLetterLowerCase(String name) {
+    return Character.toLowerCase(name.charAt(0)) + name.substring(1);
   }
 
   public static String firstLetterUpperCase(String name) {
     return Character.toUpperCase(name.charAt(0)) + (name.length() > 1 ? name.substring(1) : "");
   }
 
+  /**
+   * Returns whether type, or one of its superclasses below base, declares a method with one of
+   * the names, that is whether type overrides one of those methods of base.
+   */
+  static boolean declaresAny(Class<?> type, Class<?> base, Set<String> methodNames) {
+    for (Class<?> c = type; c != base && c != null; c = c.getSuperclass()) {
+      for (Method method : c.getDeclaredMethods()) {
+        if (methodNames.contains(method.getName())) return true;
+      }
+    }
+    return false;
+  }
+
   @SafeVarargs
   public static <T> List<T> asList(T... elements) {
     List<T> list = new ArrayList<T>();
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.GregorianCalendar;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A {@link SourceSink} that streams the sources into a zip archive, in the order they are
+ * written. All entries carry the same time so that the archive is reproducible.
+ *
+ * @author Inderjeet Singh
+ */
+final class ZipSourceSink implements SourceSink {
+  /** Time of every entry. Zip files store local times, so this is the same in every time zone. */
+  private static final long ENTRY_TIME =
+      new GregorianCalendar(1980, GregorianCalendar.FEBRUARY, 1).getTimeInMillis();
+
+  private final ZipOutputStream zip;
+
+  ZipSourceSink(OutputStream out) {
+    this.zip = new ZipOutputStream(new BufferedOutputStream(out, 64 * 1024));
+  }
+
+  @Override
+  public File write(String path, byte[] bytes) throws IOException {
+    ZipEntry entry = new ZipEntry(path);
+    entry.setTime(ENTRY_TIME);
+    zip.putNextEntry(entry);
+    zip.write(bytes);
+    zip.closeEntry();
+    return new File(path);
+  }
+
+  @Override
+  public void close() throws IOException {
+    zip.close();
+  }
+}
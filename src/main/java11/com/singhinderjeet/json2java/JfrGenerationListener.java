@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A {@link GenerationListener} that emits Java Flight Recorder events for phases and written
+ * files, so that a run can be profiled with standard JFR tools. Events cost next to nothing
+ * unless a recording is active. Requires a JVM with JFR support.
+ *
+ * @author Inderjeet Singh
+ */
+public class JfrGenerationListener implements GenerationListener {
+
+  @Name("com.singhinderjeet.json2java.Phase")
+  @Label("Json2Java Phase")
+  @Category("Json2Java")
+  @Description("A phase of generating classes from JSON")
+  static final class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+  }
+
+  @Name("com.singhinderjeet.json2java.FileWritten")
+  @Label("Json2Java File Written")
+  @Category("Json2Java")
+  static final class FileWrittenEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+  }
+
+  /** Phase events in progress on each thread */
+  private final ThreadLocal<Map<Phase, PhaseEvent>> events =
+      ThreadLocal.withInitial(() -> new EnumMap<>(Phase.class));
+
+  @Override
+  public void phaseStarted(Phase phase) {
+    PhaseEvent event = new PhaseEvent();
+    if (!event.isEnabled()) return;
+    event.phase = phase.name();
+    event.begin();
+    events.get().put(phase, event);
+  }
+
+  @Override
+  public void phaseFinished(Phase phase, long elapsedNanos) {
+    PhaseEvent event = events.get().remove(phase);
+    if (event != null) event.commit();
+  }
+
+  @Override
+  public void fileWritten(File file, long bytes) {
+    FileWrittenEvent event = new FileWrittenEvent();
+    if (!event.shouldCommit()) return;
+    event.path = file.getPath();
+    event.bytes = bytes;
+    event.commit();
+  }
+}
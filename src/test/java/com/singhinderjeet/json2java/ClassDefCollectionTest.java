@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapterFactory;
+import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
+import com.singhinderjeet.json2java.CustomMappings.MappedTypeName;
+import com.singhinderjeet.json2java.CustomMappings.MovedFieldName;
+
+/**
+ * Unit tests for {@link ClassDefCollection}.
+ *
+ * @author Inderjeet Singh
+ */
+public class ClassDefCollectionTest {
+
+  @Test
+  public void testFindAfterRename() throws Exception {
+    ClassDefCollection classes = new ClassDefCollection();
+    ClassDefinition clazz = classes.addClassDefinition("a.b", "First");
+    clazz.rename("Renamed");
+    assertNull(classes.findByTypeName("First"));
+    assertSame(clazz, classes.findByTypeName("Renamed"));
+    assertNotNull(classes.findByTypeName("String"));
+  }
+
+  @Test
+  public void testFindAfterTransform() throws Exception {
+    ClassDefCollection classes = new ClassDefCollection();
+    ClassDefinition northeast = classes.addClassDefinition("a.b", "Northeast");
+    northeast.addField(new ClassField("lat", new JsonPrimitive(1.5d), "Lat", false));
+    classes.transform(new CustomMappings().mapType("Northeast", "Location"));
+    assertNull(classes.findByTypeName("Northeast"));
+    assertSame(northeast, classes.findByTypeName("Location"));
+  }
+
+  @Test
+  public void testTransformMatchesOrderedMappings() throws Exception {
+    for (int seed = 0; seed < 300; ++seed) {
+      CustomMappings mappings = randomMappings(new Random(seed));
+      ClassDefCollection classes = new ClassDefCollection(randomClasses(new Random(seed)));
+      classes.transform(mappings);
+      List<ClassDefinition> expected = randomClasses(new Random(seed));
+      transformInOrder(expected, mappings);
+      assertEquals("seed " + seed, describe(expected), describe(classes.getClassDefinitions()));
+      for (ClassDefinition clazz : classes.getClassDefinitions()) {
+        assertEquals(clazz.getClassName(),
+            classes.findByTypeName(clazz.getClassName()).getClassName());
+      }
+    }
+  }
+
+  private static final String[] NAMES = {"A", "B", "C", "D", "E", "F", "G", "H"};
+
+  private static List<ClassDefinition> randomClasses(Random random) {
+    List<ClassDefinition> classes = new ArrayList<>();
+    for (int i = 0; i < 12; ++i) {
+      ClassDefinition clazz = new ClassDefinition("a.b", NAMES[random.nextInt(NAMES.length)]);
+      for (int j = 0; j < 4; ++j) {
+        String type = random.nextBoolean() ? "int" : NAMES[random.nextInt(NAMES.length)];
+        clazz.addField(new ClassField("f" + random.nextInt(6), type, random.nextBoolean()));
+      }
+      classes.add(clazz);
+    }
+    return classes;
+  }
+
+  private static CustomMappings randomMappings(Random random) {
+    CustomMappings mappings = new CustomMappings();
+    for (int i = 0; i < 8; ++i) {
+      String type = NAMES[random.nextInt(6)];
+      String mapped = random.nextInt(4) == 0 ? "X" + i : NAMES[random.nextInt(6)];
+      if (random.nextBoolean()) {
+        mappings.mapType(type, mapped);
+      } else {
+        mappings.mapToArrayType(type, mapped);
+      }
+    }
+    for (int i = 0; i < 3; ++i) {
+      // G and H are only base classes, so merges can not make a class its own base class
+      mappings.mapSubType(NAMES[random.nextInt(6)], NAMES[6 + random.nextInt(2)]);
+      mappings.moveFieldToSubType("f" + random.nextInt(6), randomName(random), randomName(random));
+    }
+    for (int i = 0; i < 6; ++i) {
+      mappings.mapFieldName(randomName(random), "f" + random.nextInt(6), "name" + i);
+      mappings.deleteFieldName(randomName(random), "f" + random.nextInt(6));
+    }
+    return mappings;
+  }
+
+  private static String randomName(Random random) {
+    return random.nextInt(5) == 0 ? "X" + random.nextInt(8) : NAMES[random.nextInt(NAMES.length)];
+  }
+
+  /** The transform as originally written: every mapping is applied to all classes in turn */
+  private static void transformInOrder(List<ClassDefinition> classes, CustomMappings mappings) {
+    for (Map.Entry<String, String> mapping : mappings.subTypesEntrySet()) {
+      ClassDefinition subClass = findFirst(classes, mapping.getKey());
+      if (subClass != null) subClass.setBaseClass(findFirst(classes, mapping.getValue()));
+    }
+    for (Map.Entry<String, MappedTypeName> mapping : mappings.typesEntrySet()) {
+      String origType = mapping.getKey();
+      String mappedType = mapping.getValue().name;
+      ClassDefinition origClass = findFirst(classes, origType);
+      ClassDefinition mappedClass = findFirst(classes, mappedType);
+      if (mappedClass == null) {
+        if (origClass != null) origClass.rename(mappedType);
+      } else {
+        mappedClass.merge(origClass);
+        classes.remove(mappedClass);
+      }
+      for (ClassDefinition clazz : classes) {
+        clazz.mapType(origType, mappedType, mapping.getValue().isArrayType);
+        if (clazz.getClassName().equals(origType)) clazz.rename(mappedType);
+      }
+    }
+    for (MappedFieldName mapping : mappings.fieldNameMappings()) {
+      ClassDefinition origClass = findFirst(classes, mapping.className);
+      if (origClass != null) origClass.mapFieldName(mapping);
+    }
+    for (MovedFieldName field : mappings.movedFieldNames()) {
+      ClassDefinition origClass = findFirst(classes, field.baseType);
+      ClassDefinition destClass = findFirst(classes, field.subType);
+      if (origClass != null && destClass != null) {
+        ClassField classField = origClass.find(field.fieldJsonName);
+        if (classField != null) {
+          destClass.addField(classField);
+          origClass.deleteField(classField);
+        }
+      }
+    }
+    for (MappedFieldName mapping : mappings.deletedFields()) {
+      ClassDefinition origClass = findFirst(classes, mapping.className);
+      if (origClass != null) origClass.deleteField(mapping.jsonName);
+    }
+  }
+
+  private static ClassDefinition findFirst(List<ClassDefinition> classes, String name) {
+    for (ClassDefinition clazz : classes) {
+      if (clazz.getClassName().equals(name)) return clazz;
+    }
+    return null;
+  }
+
+  private static String describe(List<ClassDefinition> classes) {
+    StringBuilder sb = new StringBuilder();
+    for (ClassDefinition clazz : classes) {
+      describe(sb, clazz);
+      if (clazz.getBaseClass() != null) describe(sb.append(" extends "), clazz.getBaseClass());
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static void describe(StringBuilder sb, ClassDefinition clazz) {
+    sb.append(clazz.getClassName()).append(" {");
+    for (ClassField field : clazz.fields) {
+      sb.append(' ').append(field.getJsonName()).append(':').append(field.getFieldName())
+          .append(':').append(field.getDeclaredType())
+          .append(field.isDeclaredArrayType() ? "[]" : "")
+          .append(field.isMappedType() ? "*" : "");
+    }
+    sb.append(" }");
+  }
+
+  @Test
+  public void testDeduplicate() throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new InputStreamReader(ClassDefCollectionTest.class.getResourceAsStream(
+        "/reversegeocoding.json"), "UTF-8"), "com.geo", "Geocoding", null);
+    ClassDefCollection classes = converter.getClasses();
+    // Northeast, Southwest and Location have the same lat and lng fields, and Bounds and
+    // Viewport have the same northeast and southwest fields
+    assertEquals(3, classes.deduplicate());
+    assertNull(classes.findByTypeName("Southwest"));
+    assertNull(classes.findByTypeName("Location"));
+    assertNull(classes.findByTypeName("Viewport"));
+    ClassDefinition geometry = classes.findByTypeName("Geometry");
+    assertEquals("Northeast", geometry.find("location").getTypeName());
+    assertEquals("Bounds", geometry.find("viewport").getTypeName());
+    assertEquals("Northeast", classes.findByTypeName("Bounds").find("southwest").getTypeName());
+    assertEquals(0, classes.deduplicate());
+
+    Map<String, Class<?>> compiled = new InMemoryCompiler().compile(classes, "  ");
+    JsonObject json = JsonParser.parseReader(new InputStreamReader(
+        ClassDefCollectionTest.class.getResourceAsStream("/reversegeocoding.json"), "UTF-8"))
+        .getAsJsonObject().getAsJsonArray("results").get(0).getAsJsonObject()
+        .getAsJsonObject("geometry");
+    json.remove("location_type"); // the JSON names of snake_case fields are not kept
+    Object parsed = new Gson().fromJson(json, compiled.get("com.geo.Geometry"));
+    assertEquals(json, new Gson().toJsonTree(parsed));
+  }
+
+  @Test
+  public void testDeduplicateComparesReferencedClasses() throws Exception {
+    ClassDefCollection classes = new ClassDefCollection();
+    classes.addClassDefinition("a.b", "A")
+        .addField(new ClassField("x", new JsonObject(), "B", false));
+    classes.addClassDefinition("a.b", "C")
+        .addField(new ClassField("x", new JsonObject(), "D", false));
+    classes.addClassDefinition("a.b", "E")
+        .addField(new ClassField("x", new JsonObject(), "F", true));
+    classes.addClassDefinition("a.b", "B").addField(new ClassField("v", new JsonPrimitive(1),
+        "V", false));
+    classes.addClassDefinition("a.b", "D").addField(new ClassField("v", new JsonPrimitive("s"),
+        "V", false));
+    classes.addClassDefinition("a.b", "F").addField(new ClassField("v", new JsonPrimitive(2),
+        "V", false));
+    assertEquals(1, classes.deduplicate()); // only F, which has the shape of B
+    assertNull(classes.findByTypeName("F"));
+    assertEquals("List<B>", classes.findByTypeName("E").find("x").getTypeName());
+    assertEquals("D", classes.findByTypeName("C").find("x").getTypeName());
+
+    classes.addClassDefinition("a.b", "G")
+        .addField(new ClassField("x", new JsonObject(), "B", false));
+    assertEquals(1, classes.deduplicate());
+    assertNull(classes.findByTypeName("G"));
+    assertNotNull(classes.findByTypeName("A"));
+  }
+
+  @Test
+  public void testMergeLargeCollections() throws Exception {
+    ClassDefCollection first = new ClassDefCollection();
+    ClassDefCollection second = new ClassDefCollection();
+    for (int i = 0; i < 20000; ++i) {
+      first.addClassDefinition("a.b", "Class" + i);
+      second.addClassDefinition("a.b", "Class" + (i + 10000));
+    }
+    first.merge(second);
+    assertNotNull(first.findByTypeName("Class0"));
+    assertNotNull(first.findByTypeName("Class29999"));
+    assertEquals("Class15000", first.findByTypeName("Class15000").getClassName());
+  }
+
+  @Test
+  public void testGenerateClassesIndependentOfThreads() throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new InputStreamReader(ClassDefCollectionTest.class.getResourceAsStream(
+        "/reversegeocoding.json"), "UTF-8"), "com.reversegeocoding", "ReverseGeocodingResults",
+        new CustomMappings().mapSubType("Viewport", "Bounds"));
+    ClassDefCollection classes = converter.getClasses();
+    File sequentialDir = Files.createTempDirectory("json2java-sequential").toFile();
+    File parallelDir = Files.createTempDirectory("json2java-parallel").toFile();
+    classes.generateClasses(sequentialDir, "  ", 1);
+    classes.generateClasses(parallelDir, "  ", 8);
+
+    File sequentialPkgDir = new File(sequentialDir, "com/reversegeocoding");
+    File parallelPkgDir = new File(parallelDir, "com/reversegeocoding");
+    String[] names = sequentialPkgDir.list();
+    assertEquals(9, names.length);
+    assertEquals(names.length, parallelPkgDir.list().length);
+    for (String name : names) {
+      assertArrayEquals(name, Files.readAllBytes(new File(sequentialPkgDir, name).toPath()),
+          Files.readAllBytes(new File(parallelPkgDir, name).toPath()));
+    }
+  }
+
+  @Test
+  public void testTypeAdaptersMatchReflection() throws Exception {
+    ClassDefCollection classes = new ClassDefCollection();
+    classes.addEnumClass(new EnumDefinition("a.b", "Status")
+        .addEnumValue("SHIPPED", "shipped").addEnumValue("LOST", null));
+    ClassDefinition item = classes.addClassDefinition("a.b", "Item");
+    item.addField(new ClassField("price", new JsonPrimitive(1.5d), "Price", false));
+    ClassDefinition order = classes.addClassDefinition("a.b", "Order");
+    order.addImport("java.util.List");
+    order.addField(new ClassField("id", new JsonPrimitive(1), "Id", false));
+    order.addField(new ClassField("Name", new JsonPrimitive("x"), "Name", false));
+    order.addField(new ClassField("active", new JsonPrimitive(true), "Active", false));
+    JsonArray tags = new JsonArray();
+    tags.add("x");
+    order.addField(new ClassField("tags", tags, "Tags", false));
+    order.addField(new ClassField("status", new JsonObject(), "Status", false));
+    order.addField(new ClassField("item", new JsonObject(), "Item", false));
+    order.addField(new ClassField("items", new JsonObject(), "Item", true));
+    classes.setGenerateTypeAdapters("a", "OrderTypeAdapterFactory");
+    Map<String, Class<?>> compiled = new InMemoryCompiler().compile(classes, "  ");
+
+    Class<?> orderClass = compiled.get("a.b.Order");
+    TypeAdapterFactory factory = (TypeAdapterFactory) compiled.get("a.OrderTypeAdapterFactory")
+        .getDeclaredConstructor().newInstance();
+    Gson adapted = new GsonBuilder().registerTypeAdapterFactory(factory).create();
+    assertEquals("a.b.OrderTypeAdapter", adapted.getAdapter(orderClass).getClass().getName());
+    String json = "{'id': 7, 'Name': 'n', 'active': 'true', 'tags': ['a', null],"
+        + " 'status': 'shipped', 'item': {'price': 2.5}, 'items': [{'price': 1}, null],"
+        + " 'unknown': {'a': [1]}, 'id2': null}";
+    Gson reflective = new Gson();
+    String expected = reflective.toJson(reflective.fromJson(json, orderClass));
+    String actual = adapted.toJson(adapted.fromJson(json, orderClass));
+    assertEquals(JsonParser.parseString(expected), JsonParser.parseString(actual));
+    assertEquals("\"LOST\"", adapted.toJson(compiled.get("a.b.Status").getEnumConstants()[1]));
+  }
+
+  @Test
+  public void testNumericArrays() throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new StringReader("{'ints': [1, 2], 'longs': [3000000000, 1],"
+        + " 'coordinates': [1.5, 2], 'mixed': [1, 'a'], 'nested': [[1]], 'flags': [true]}"),
+        "a.b", "Shape", null);
+    ClassDefCollection classes = converter.getClasses();
+    ClassDefinition shape = classes.findByTypeName("Shape");
+    classes.prepareForWriting();
+    assertEquals("List<Integer>", shape.find("ints").getTypeName());
+    assertEquals("List<Boolean>", shape.find("flags").getTypeName());
+
+    classes.setNumericArrayStyle(NumericArrayStyle.ARRAY);
+    classes.setGenerateTypeAdapters("a.b", "ShapeTypeAdapterFactory");
+    Map<String, Class<?>> compiled = new InMemoryCompiler().compile(classes, "  ");
+    assertEquals("int[]", shape.find("ints").getTypeName());
+    assertEquals("long[]", shape.find("longs").getTypeName());
+    assertEquals("double[]", shape.find("coordinates").getTypeName());
+    assertEquals("List<String>", shape.find("mixed").getTypeName());
+    assertEquals("List<Integer>", shape.find("nested").getTypeName());
+
+    Class<?> shapeClass = compiled.get("a.b.Shape");
+    TypeAdapterFactory factory = (TypeAdapterFactory) compiled.get("a.b.ShapeTypeAdapterFactory")
+        .getDeclaredConstructor().newInstance();
+    Gson gson = new GsonBuilder().registerTypeAdapterFactory(factory).create();
+    String json = "{'ints':[1,2,3],'coordinates':[0.5],'longs':[]}";
+    Object parsed = gson.fromJson(json, shapeClass);
+    assertArrayEquals(new int[] {1, 2, 3}, (int[]) shapeClass.getMethod("getInts").invoke(parsed));
+    assertEquals(JsonParser.parseString(json), JsonParser.parseString(gson.toJson(parsed)));
+
+    classes.setNumericArrayStyle(NumericArrayStyle.collections(
+        "it.unimi.dsi.fastutil.ints.IntArrayList", "it.unimi.dsi.fastutil.longs.LongArrayList",
+        "it.unimi.dsi.fastutil.doubles.DoubleArrayList"));
+    classes.prepareForWriting();
+    assertEquals("IntArrayList", shape.find("ints").getTypeName());
+    assertTrue(classes.render(shape, "  ").contains(
+        "import it.unimi.dsi.fastutil.ints.IntArrayList;"));
+  }
+}
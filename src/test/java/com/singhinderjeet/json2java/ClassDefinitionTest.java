@@ -19,7 +19,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 
 import org.junit.Test;
 
@@ -41,6 +43,46 @@ public class ClassDefinitionTest {
     assertEquals(baseClass, subClass.getBaseClass());
   }
 
+  @Test
+  public void testBaseClassFieldsFollowChanges() {
+    ClassDefinition rootClass = new ClassDefinition("a.b", "RootClass");
+    ClassDefinition baseClass = new ClassDefinition("a.b", "BaseClass");
+    ClassDefinition subClass = new ClassDefinition("a.b", "SubClass");
+    baseClass.setBaseClass(rootClass);
+    subClass.setBaseClass(baseClass);
+    subClass.addField(new ClassField("b", new JsonPrimitive("b value"), "B", false));
+    assertFalse(subClass.isBaseClassField("a"));
+
+    rootClass.addField(new ClassField("a", new JsonPrimitive("a root"), "A", false));
+    assertTrue(subClass.isBaseClassField("a"));
+    assertEquals(rootClass.find("a"), subClass.find("a"));
+
+    rootClass.deleteField("a");
+    assertFalse(subClass.isBaseClassField("a"));
+    assertFalse(subClass.present("a"));
+    assertTrue(subClass.present("b"));
+  }
+
+  @Test
+  public void testBaseClassFieldsFollowReparenting() {
+    ClassDefinition oldRoot = new ClassDefinition("a.b", "OldRoot");
+    oldRoot.addField(new ClassField("a", new JsonPrimitive("a value"), "A", false));
+    oldRoot.addField(new ClassField("c", new JsonPrimitive("c value"), "C", false));
+    ClassDefinition newRoot = new ClassDefinition("a.b", "NewRoot");
+    newRoot.addField(new ClassField("x", new JsonPrimitive("x value"), "X", false));
+    ClassDefinition baseClass = new ClassDefinition("a.b", "BaseClass");
+    ClassDefinition subClass = new ClassDefinition("a.b", "SubClass");
+    baseClass.setBaseClass(oldRoot);
+    subClass.setBaseClass(baseClass);
+    assertTrue(subClass.isBaseClassField("a"));
+
+    // leaves the sum of the modification counts along the chain unchanged
+    baseClass.setBaseClass(newRoot);
+    assertFalse(subClass.isBaseClassField("a"));
+    assertFalse(subClass.present("c"));
+    assertEquals(newRoot.find("x"), subClass.find("x"));
+  }
+
   @Test
   public void testWriteConstructor() throws Exception {
     ClassDefinition baseClass = new ClassDefinition("a.b", "BaseClass");
@@ -50,9 +92,9 @@ public class ClassDefinitionTest {
     subClass.addField(new ClassField("b", new JsonPrimitive("b value"), "B", false));
     subClass.setBaseClass(baseClass);
 
-    StringWriter writer = new StringWriter();
-    subClass.writeConstructor(writer, "");
-    String value = writer.toString().trim();
+    StringBuilder source = new StringBuilder();
+    SourceStyle.DEFAULT.appendConstructor(subClass, source, "");
+    String value = source.toString().trim();
     assertTrue(value.startsWith("public SubClass(String a, String b)"));
   }
 
@@ -67,12 +109,12 @@ public class ClassDefinitionTest {
     baseClass.mapFieldName(new MappedFieldName("BaseClass", "aa", "aA"));
     subClass.mapFieldName(new MappedFieldName("SubClass", "aa", "aA"));
 
-    StringWriter writer = new StringWriter();
-    subClass.writeConstructor(writer, "");
-    String classContents = writer.toString().trim();
+    StringBuilder source = new StringBuilder();
+    SourceStyle.DEFAULT.appendConstructor(subClass, source, "");
+    String classContents = source.toString().trim();
     assertTrue(classContents.startsWith("public SubClass(String aA, String bb)"));
 
-    writer = new StringWriter();
+    StringWriter writer = new StringWriter();
     subClass.writeClassFile(writer, "  ", null, null);
     classContents = writer.toString();
     assertFalse(classContents.contains("String aA, String aA"));
@@ -91,12 +133,107 @@ public class ClassDefinitionTest {
     clazz.addField(new ClassField("number", new JsonPrimitive(2), "A", false));
     clazz.addField(new ClassField("floatingPoint", new JsonPrimitive(2.2d), "A", false));
 
-    StringWriter writer = new StringWriter();
-    clazz.writeAccessorMethods(writer, "");
-    String value = writer.toString().trim();
+    StringBuilder source = new StringBuilder();
+    SourceStyle.DEFAULT.appendAccessors(clazz, source, "");
+    String value = source.toString().trim();
     assertTrue(value, value.contains("public boolean isBool()"));
     assertTrue(value, value.contains("public String getStr()"));
     assertTrue(value, value.contains("public int getNumber()"));
     assertTrue(value, value.contains("public double getFloatingPoint()"));
   }
+
+  @Test
+  public void testOverriddenWriteMethodsChangeOutput() throws Exception {
+    ClassDefinition baseClass = new ClassDefinition("a.b", "BaseClass");
+    baseClass.addField(new ClassField("a", new JsonPrimitive("a base"), "A", false));
+    ClassDefinition subClass = new ClassDefinition("a.b", "SubClass") {
+      @Override
+      protected void writeAccessorMethods(Writer writer, String indent) throws IOException {
+        writer.append("\n").append(indent).append("// no accessors\n");
+      }
+    };
+    subClass.addField(new ClassField("a", new JsonPrimitive("a sub"), "A", false));
+    subClass.addField(new ClassField("b", new JsonPrimitive("b value"), "B", false));
+    subClass.setBaseClass(baseClass);
+    subClass.prepareForWriting();
+    StringWriter writer = new StringWriter();
+    subClass.writeClassFile(writer, "  ", null, null);
+    assertEquals("package a.b;\n"
+        + "public class SubClass extends BaseClass {\n\n"
+        + "  private final String b;\n\n"
+        + "  public SubClass(String a, String b) {\n"
+        + "    super(a);\n"
+        + "    this.b = b;\n"
+        + "  }\n\n"
+        + "  // no accessors\n"
+        + "}\n", writer.toString());
+  }
+
+  @Test
+  public void testOverriddenFieldAppendMethodsChangeOutput() throws Exception {
+    ClassDefinition clazz = new ClassDefinition("a.b", "Point");
+    clazz.addField(new ClassField("x", new JsonPrimitive(1), "X", false) {
+      @Override
+      public void appendtDeclaration(Appendable appendable, int indentLevel, String indent)
+          throws IOException {
+        appendable.append(indent).append("public final int x;\n");
+      }
+    });
+    clazz.prepareForWriting();
+    StringWriter writer = new StringWriter();
+    clazz.writeClassFile(writer, "  ", null, null);
+    String source = writer.toString();
+    assertTrue(source, source.contains("\n  public final int x;\n"));
+    assertTrue(source, source.contains("public int getX()"));
+  }
+
+  @Test
+  public void testWriteMethodsMatchDefaultStyle() throws Exception {
+    ClassDefinition baseClass = new ClassDefinition("a.b", "BaseClass");
+    baseClass.addField(new ClassField("a", new JsonPrimitive(true), "A", false));
+    for (boolean overridden : new boolean[] {false, true}) {
+      ClassDefinition subClass = overridden ? new ClassDefinition("a.b", "SubClass") {
+        @Override
+        protected void writeAccessorMethods(Writer writer, String indent) throws IOException {
+          super.writeAccessorMethods(writer, indent);
+        }
+      } : new ClassDefinition("a.b", "SubClass");
+      subClass.addField(new ClassField("a", new JsonPrimitive(false), "A", false));
+      subClass.addField(new ClassField("b_c", new JsonPrimitive(1), "BC", false));
+      subClass.mapFieldName(new MappedFieldName("SubClass", "b_c", "bc"));
+      subClass.setBaseClass(baseClass);
+      subClass.prepareForWriting();
+      StringBuilder out = new StringBuilder();
+      subClass.appendClassBody(out, "  ");
+      assertEquals("public class SubClass extends BaseClass {\n\n"
+          + "  @SerializedName(\"b_c\")\n"
+          + "  private final int bc;\n\n"
+          + "  public SubClass(boolean a, int bc) {\n"
+          + "    super(a);\n"
+          + "    this.bc = bc;\n"
+          + "  }\n\n"
+          + "  public int getBc() {\n"
+          + "    return bc;\n"
+          + "  }\n"
+          + "}\n", out.toString());
+    }
+  }
+
+  @Test
+  public void testEnumWriteMethodsMatchDefaultStyle() throws Exception {
+    EnumDefinition styled = new EnumDefinition("a.b", "Color");
+    EnumDefinition written = new EnumDefinition("a.b", "Color") {
+      @Override
+      protected void writeClassBody(Writer writer, String indent) throws IOException {
+        super.writeClassBody(writer, indent);
+      }
+    };
+    StringBuilder expected = new StringBuilder();
+    StringBuilder actual = new StringBuilder();
+    for (EnumDefinition colors : new EnumDefinition[] {styled, written}) {
+      colors.addEnumValue("RED", "red").addEnumValue("GREEN", "GREEN").addEnumValue("BLUE", null);
+      colors.appendClassBody(colors == styled ? expected : actual, "  ");
+    }
+    assertEquals(expected.toString(), actual.toString());
+  }
 }
@@ -18,11 +18,8 @@ package com.singhinderjeet.json2java;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
-import java.util.Set;
-
 import org.junit.Test;
 
-import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 
 public class ClassMergeTest {
@@ -39,9 +36,18 @@ public class ClassMergeTest {
     assertEquals(2, first.getFieldsCount());
     assertTrue(first.present("aa"));
     assertTrue(first.present("bb"));
-    Set<JsonElement> jsonValues = first.find("aa").getJsonValues();
-    assertEquals(2, jsonValues.size());
-    assertTrue(jsonValues.contains(new JsonPrimitive("a first")));
-    assertTrue(jsonValues.contains(new JsonPrimitive("a second")));
+    assertEquals("String", first.find("aa").getTypeName());
+  }
+
+  @Test
+  public void testMergeWidensNumberType() throws Exception {
+    ClassDefinition first = new ClassDefinition("a.b", "First");
+    ClassDefinition second = new ClassDefinition("a.b", "Second");
+    first.addField(new ClassField("aa", new JsonPrimitive(1), "A", false));
+    assertEquals("int", first.find("aa").getTypeName());
+    second.addField(new ClassField("aa", new JsonPrimitive(1.5d), "A", false));
+
+    first.merge(second);
+    assertEquals("double", first.find("aa").getTypeName());
   }
 }
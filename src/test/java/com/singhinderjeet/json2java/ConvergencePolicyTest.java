@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConvergencePolicy}.
+ *
+ * @author Inderjeet Singh
+ */
+public class ConvergencePolicyTest {
+
+  @Test
+  public void testSampleRateDecays() {
+    ConvergencePolicy.Tracker tracker = ConvergencePolicy.sampleAfter(2).newTracker();
+    StringBuilder processed = new StringBuilder();
+    for (int i = 0; i < 20; ++i) {
+      boolean process = tracker.shouldProcess();
+      processed.append(process ? 'p' : '-');
+      if (process) tracker.processed(i == 0);
+    }
+    assertEquals("ppp-p--p----p-------", processed.toString());
+    assertEquals(14, tracker.getSkipped());
+  }
+
+  @Test
+  public void testChangeResetsPolicy() {
+    ConvergencePolicy.Tracker tracker = ConvergencePolicy.skipAfter(1).newTracker();
+    assertTrue(tracker.shouldProcess());
+    tracker.processed(true);
+    assertTrue(tracker.shouldProcess());
+    tracker.processed(false);
+    assertFalse(tracker.shouldProcess());
+    assertFalse(tracker.shouldProcess());
+    assertEquals(2, tracker.getSkipped());
+  }
+
+  @Test
+  public void testInvalidPatience() {
+    for (int patience : new int[] {0, -1}) {
+      try {
+        ConvergencePolicy.skipAfter(patience);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+      try {
+        ConvergencePolicy.sampleAfter(patience);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testSkipsConvergedArrayElements() throws Exception {
+    StringBuilder json = new StringBuilder("{\"points\": [");
+    for (int i = 0; i < 1000; ++i) {
+      json.append("{\"x\": 1, \"y\": 2},");
+    }
+    json.append("{\"x\": 1, \"y\": 2, \"z\": 3}]}");
+    Json2Java converter = new Json2Java();
+    converter.setConvergencePolicy(ConvergencePolicy.skipAfter(10));
+    converter.processJson(new StringReader(json.toString()), "a.b", "Shape", null);
+    ClassDefinition points = converter.getClasses().findByTypeName("Points");
+    assertEquals(990, points.getSkippedElements());
+    assertEquals(990, converter.getClasses().getSkippedElements());
+    assertFalse(points.present("z"));
+
+    converter = new Json2Java();
+    converter.processJson(new StringReader(json.toString()), "a.b", "Shape", null);
+    points = converter.getClasses().findByTypeName("Points");
+    assertEquals(0, points.getSkippedElements());
+    assertTrue(points.present("z"));
+  }
+
+  @Test
+  public void testSkipsConvergedRecords() throws Exception {
+    StringBuilder json = new StringBuilder();
+    for (int i = 0; i < 100; ++i) {
+      json.append("{\"id\": ").append(i).append("}\n");
+    }
+    Json2Java converter = new Json2Java();
+    converter.setConvergencePolicy(ConvergencePolicy.skipAfter(5));
+    JsonLinesStats stats =
+        converter.processJsonLines(new StringReader(json.toString()), "a.b", "Entry", null);
+    assertEquals(100, stats.getRecords());
+    assertEquals(94, stats.getSkippedRecords());
+    assertEquals(94, converter.getClasses().findByTypeName("Entry").getSkippedElements());
+  }
+}
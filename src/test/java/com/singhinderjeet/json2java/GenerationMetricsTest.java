@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.singhinderjeet.json2java.GenerationListener.Phase;
+
+/**
+ * Unit tests for {@link GenerationMetrics}.
+ *
+ * @author Inderjeet Singh
+ */
+public class GenerationMetricsTest {
+
+  @Test
+  public void testPhasesAndCounts() throws Exception {
+    GenerationMetrics metrics = new GenerationMetrics();
+    Json2Java converter = new Json2Java();
+    converter.setListener(metrics);
+    converter.processJson(new InputStreamReader(GenerationMetricsTest.class.getResourceAsStream(
+        "/reversegeocoding.json"), "UTF-8"), "com.reversegeocoding", "ReverseGeocodingResults",
+        new CustomMappings().mapType("Northeast", "Location"));
+    assertEquals(1, metrics.getRecords());
+    assertTrue(metrics.getCharactersRead() > 1000);
+    assertEquals(1, metrics.getPhaseCount(Phase.INFERENCE));
+    assertEquals(1, metrics.getPhaseCount(Phase.TRANSFORM));
+    assertEquals(1, metrics.getPhaseCount(Phase.MERGE));
+    assertEquals(9, metrics.getClassesCreated());
+    assertTrue(metrics.getFieldsCreated() > 9);
+
+    ClassDefCollection classes = converter.getClasses();
+    classes.setLogFileWrites(false);
+    File dir = Files.createTempDirectory("json2java-metrics").toFile();
+    classes.generateClasses(dir, "  ");
+    assertEquals(classes.prepareForWriting().size(), metrics.getFilesWritten());
+    long bytes = 0;
+    for (ClassDefinition def : classes.prepareForWriting()) {
+      bytes += new File(def.getPackageDir(dir), def.getClassName() + ".java").length();
+    }
+    assertEquals(bytes, metrics.getBytesWritten());
+    assertEquals(1, metrics.getPhaseCount(Phase.WRITE));
+    assertTrue(metrics.toString().contains("wrote " + metrics.getFilesWritten() + " files"));
+  }
+
+  @Test
+  public void testRenderAndWriteReportedOncePerRun() throws Exception {
+    GenerationMetrics metrics = new GenerationMetrics();
+    Json2Java converter = new Json2Java();
+    converter.setListener(metrics);
+    for (int i = 0; i < 600; ++i) { // more than two batches of files
+      converter.processJson(new StringReader("{\"c" + i + "\": {\"a\": 1}}"), "a", "Root",
+          null);
+    }
+    ClassDefCollection classes = converter.getClasses();
+    classes.generateClasses(Files.createTempDirectory("json2java-metrics").toFile(), "  ", 2);
+    assertEquals(601, metrics.getFilesWritten());
+    assertEquals(1, metrics.getPhaseCount(Phase.RENDER));
+    assertEquals(1, metrics.getPhaseCount(Phase.WRITE));
+  }
+
+  @Test
+  public void testJsonLinesAndMerges() throws Exception {
+    GenerationMetrics metrics = new GenerationMetrics();
+    Json2Java converter = new Json2Java();
+    converter.setListener(metrics);
+    converter.processJsonLines(new StringReader("{\"a\": 1}\n{\"a\": 2, \"b\": {\"c\": 1}}\n"),
+        "a", "Root", null);
+    assertEquals(2, metrics.getRecords());
+    assertEquals(33, metrics.getCharactersRead());
+    assertEquals(3, metrics.getClassesCreated()); // Root twice, then B
+    assertEquals(4, metrics.getFieldsCreated()); // a, then a, b and c
+    // Each record is merged into its own collection, and then into the converter's classes
+    assertEquals(5, metrics.getMerges());
+    assertEquals(4, metrics.getPhaseCount(Phase.MERGE));
+  }
+
+  @Test
+  public void testBytesRead() throws Exception {
+    String json = "{\"name\": \"caf\u00e9 \u20ac\"}";
+    byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+    GenerationMetrics metrics = new GenerationMetrics();
+    Json2Java converter = new Json2Java();
+    converter.setListener(metrics);
+    converter.processJson(new ByteArrayInputStream(utf8), "a", "Root", null);
+    assertEquals(json.length(), metrics.getCharactersRead());
+    assertEquals(utf8.length, metrics.getBytesRead());
+
+    File file = File.createTempFile("json2java", ".json");
+    file.deleteOnExit();
+    Files.write(file.toPath(), utf8);
+    metrics = new GenerationMetrics();
+    converter = new Json2Java();
+    converter.setListener(metrics);
+    converter.processJson(Arrays.asList(JsonSource.of(file), JsonSource.mapped(file)), "a",
+        "Root", null, ForkJoinPool.commonPool());
+    assertEquals(json.length(), metrics.getCharactersRead()); // the mapped file counts no chars
+    assertEquals(2 * utf8.length, metrics.getBytesRead());
+    assertTrue(metrics.toString().contains(2 * utf8.length + " bytes"));
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStreamReader;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Unit tests for {@link InMemoryCompiler}.
+ *
+ * @author Inderjeet Singh
+ */
+public class InMemoryCompilerTest {
+
+  @Test
+  public void testCompileAndLoad() throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new InputStreamReader(InMemoryCompilerTest.class.getResourceAsStream(
+        "/tms-lineups.json"), "UTF-8"), "com.tms.lineups", "Lineup", null);
+    Map<String, Class<?>> classes =
+        new InMemoryCompiler().compile(converter.getClasses(), "  ");
+    assertEquals(2, classes.size());
+    Class<?> lineup = classes.get("com.tms.lineups.Lineup");
+    assertEquals("com.tms.lineups.Mso", lineup.getDeclaredField("mso").getType().getName());
+
+    Object parsed = new Gson().fromJson("{\"lineupId\": \"USA-1\", \"mso\": {\"id\": \"1\"}}",
+        lineup);
+    assertEquals("USA-1", lineup.getMethod("getLineupId").invoke(parsed));
+  }
+
+  @Test
+  public void testErrorsNameTheField() throws Exception {
+    ClassDefCollection classes = new ClassDefCollection();
+    ClassDefinition clazz = classes.addClassDefinition("a.b", "Order");
+    clazz.addField(new ClassField("id", new JsonPrimitive(1), "Id", false));
+    clazz.addField(new ClassField("shipping_info", new JsonObject(), "ShippingInfo", false));
+    try {
+      new InMemoryCompiler().compile(classes, "  ");
+      fail();
+    } catch (InMemoryCompiler.CompilationException expected) {
+      assertTrue(expected.getErrors().size() > 0);
+      for (String error : expected.getErrors()) {
+        assertTrue(error, error.startsWith("Order.shipping_info (JSON name \"shipping_info\")"));
+      }
+    }
+  }
+}
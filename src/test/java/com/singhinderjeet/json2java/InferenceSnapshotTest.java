@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link InferenceSnapshot}.
+ *
+ * @author Inderjeet Singh
+ */
+public class InferenceSnapshotTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new InputStreamReader(InferenceSnapshotTest.class.getResourceAsStream(
+        "/reversegeocoding.json"), "UTF-8"), "com.reversegeocoding", "ReverseGeocodingResults",
+        new CustomMappings().mapSubType("Viewport", "Bounds")
+            .mapFieldName("Results", "formattedAddress", "address"));
+    converter.addEnum(new EnumDefinition("com.reversegeocoding", "Status")
+        .addEnumValue("OK", null).addEnumValue("NOT_FOUND", "not_found"));
+    ClassDefCollection classes = converter.getClasses();
+    classes.setGenerateClassFile("Geometry", false);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    converter.saveSnapshot(out);
+    ClassDefCollection restored =
+        InferenceSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+
+    assertEquals(classes.getClassDefinitions().size(), restored.getClassDefinitions().size());
+    for (ClassDefinition clazz : classes.getClassDefinitions()) {
+      ClassDefinition copy = restored.findByTypeName(clazz.getClassName());
+      assertEquals(clazz.getPackage(), copy.getPackage());
+      assertEquals(clazz.isGenerateFile(), copy.isGenerateFile());
+      assertEquals(render(clazz), render(copy));
+    }
+    assertSame(restored.findByTypeName("Bounds"),
+        restored.findByTypeName("Viewport").getBaseClass());
+    assertFalse(restored.findByTypeName("Geometry").isGenerateFile());
+  }
+
+  @Test
+  public void testExtendWithNewDocuments() throws Exception {
+    Json2Java first = new Json2Java();
+    first.processJson(new StringReader("{\"id\": 1, \"tags\": [\"a\"]}"), "a.b", "Item", null);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    first.saveSnapshot(out);
+
+    Json2Java second = new Json2Java();
+    second.loadSnapshot(new ByteArrayInputStream(out.toByteArray()));
+    second.processJson(new StringReader("{\"id\": 1.5, \"name\": \"x\"}"), "a.b", "Item", null);
+    ClassDefinition item = second.getClasses().findByTypeName("Item");
+    assertEquals("double", item.find("id").getTypeName());
+    assertEquals("List<String>", item.find("tags").getTypeName());
+    assertTrue(item.present("name"));
+  }
+
+  private static String render(ClassDefinition clazz) throws Exception {
+    StringWriter writer = new StringWriter();
+    clazz.writeClassFile(writer, "  ", null, null);
+    return writer.toString();
+  }
+}
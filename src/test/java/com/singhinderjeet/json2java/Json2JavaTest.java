@@ -15,14 +15,30 @@
  */
 package com.singhinderjeet.json2java;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Test;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
 /**
  * Unit tests for {@link Main}.
  *
@@ -68,4 +84,230 @@ public class Json2JavaTest {
     ClassDefinition clazz = classes.findByTypeName("Mso");
     assertTrue(clazz.present("name"));
   }
+
+  @Test
+  public void testOutputMatchesBaseline() throws Exception {
+    CustomMappings mappings = new CustomMappings()
+      .mapType("Northeast", "Location")
+      .mapType("Southeast", "Location")
+      .mapType("Southwest", "Location")
+      .mapType("Northwest", "Location")
+      .mapType("AddressComponents", "AddressComponent");
+    assertBaselineOutput("/reversegeocoding.json", "com.reversegeocoding",
+        "ReverseGeocodingResults", mappings);
+    assertBaselineOutput("/tms-lineups.json", "com.tms.lineups", "Lineup", null);
+  }
+
+  @Test
+  public void testEmptyDocumentGeneratesNoClasses() throws Exception {
+    for (String json : new String[] {"", " \n\t "}) {
+      Json2Java converter = new Json2Java();
+      converter.processJson(new StringReader(json), "a.b", "Root", null);
+      assertTrue(converter.getClasses().getClassDefinitions().stream()
+          .noneMatch(ClassDefinition::isGenerateFile));
+    }
+    File empty = File.createTempFile("json2java", ".json");
+    empty.deleteOnExit();
+    Json2Java mapped = new Json2Java();
+    mapped.processMappedJson(empty, "a.b", "Root", null);
+    assertEquals(null, mapped.getClasses().findByTypeName("Root"));
+  }
+
+  @Test
+  public void testJsonLinesSkipsMalformedRecords() throws Exception {
+    String json = "{\"id\": 1, \"name\": \"first\"}\n"
+        + "{\"id\": 2, \"name\": \n"
+        + "\n"
+        + "{\"id\": 3000000000, \"location\": {\"city\": \"Durham\"}}\n"
+        + "not json at all\n";
+    Json2Java converter = new Json2Java();
+    JsonLinesStats stats = converter.processJsonLines(new StringReader(json), "com.logs", "Entry",
+        null);
+    assertEquals(4, stats.getRecords());
+    assertEquals(2, stats.getMalformedRecords());
+    ClassDefinition entry = converter.getClasses().findByTypeName("Entry");
+    assertEquals("long", entry.find("id").getTypeName());
+    assertTrue(entry.present("name"));
+    assertTrue(entry.present("location"));
+    assertTrue(converter.getClasses().findByTypeName("Location").present("city"));
+  }
+
+  @Test
+  public void testJsonLinesPropagatesErrorsOtherThanMalformedRecords() throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.setListener(new GenerationListener() {
+      @Override public void recordRead() {
+        throw new IllegalStateException("listener failed");
+      }
+    });
+    try {
+      converter.processJsonLines(new StringReader("{\"id\": 1}\n"), "com.logs", "Entry", null);
+      fail();
+    } catch (IllegalStateException expected) {
+      assertEquals("listener failed", expected.getMessage());
+    }
+  }
+
+  /**
+   * Checks that the streaming and the tree inference both generate the sources that the original
+   * implementation, which parsed the whole document with JsonParser, generated for the resource.
+   * Those are kept under /baseline.
+   */
+  private static void assertBaselineOutput(String resource, String pkg, String className,
+      CustomMappings mappings) throws Exception {
+    Json2Java streaming = new Json2Java();
+    streaming.processJson(open(resource), pkg, className, mappings);
+    Json2Java tree = new Json2Java();
+    tree.processJson(JsonParser.parseReader(open(resource)), pkg, className, mappings);
+    String pkgPath = pkg.replace('.', '/');
+    File baselineDir = new File(Json2JavaTest.class.getResource("/baseline/" + pkgPath).toURI());
+    String[] names = baselineDir.list();
+    assertTrue(names.length > 0);
+    for (Json2Java converter : new Json2Java[] {streaming, tree}) {
+      File dir = Files.createTempDirectory("json2java").toFile();
+      converter.getClasses().setLogFileWrites(false);
+      converter.getClasses().generateClasses(dir, "    ");
+      File pkgDir = new File(dir, pkgPath);
+      assertEquals(names.length, pkgDir.list().length);
+      for (String name : names) {
+        assertArrayEquals(name, Files.readAllBytes(new File(baselineDir, name).toPath()),
+            Files.readAllBytes(new File(pkgDir, name).toPath()));
+      }
+    }
+  }
+
+  @Test
+  public void testJsonPathMappingsWhileStreaming() throws Exception {
+    String json = "{'id': 1, 'debug': {'trace': {'frames': [1, 2]}}, 'extra': {'a': 1},"
+        + " 'items': [{'price': {'amount': 2.5}, 'tags': ['x'], 'raw': [1, 'y']}], 'when': null}";
+    CustomMappings mappings = new CustomMappings()
+        .deletePath("$.debug")
+        .skipPath("$.extra")
+        .mapPath("$.items[*].price", "Money")
+        .mapPath("$..tags[*]", "Tag")
+        .skipPath("$.items[*].raw");
+    GenerationMetrics metrics = new GenerationMetrics();
+    Json2Java converter = new Json2Java();
+    converter.setListener(metrics);
+    converter.processJson(new StringReader(json), "a.b", "Order", mappings);
+    ClassDefCollection classes = converter.getClasses();
+    ClassDefinition order = classes.findByTypeName("Order");
+    assertEquals(null, order.find("debug"));
+    assertEquals("JsonElement", order.find("extra").getTypeName());
+    ClassDefinition item = classes.findByTypeName("Items");
+    assertEquals("Money", item.find("price").getTypeName());
+    assertEquals("List<Tag>", item.find("tags").getTypeName());
+    assertEquals("JsonElement", item.find("raw").getTypeName());
+    // nothing was inferred from the skipped values
+    assertEquals(2, metrics.getClassesCreated());
+    assertEquals(null, classes.findByTypeName("Trace"));
+
+    Json2Java tree = new Json2Java();
+    tree.processJson(JsonParser.parseString(json), "a.b", "Order", mappings);
+    File streamed = Files.createTempDirectory("json2java-streamed").toFile();
+    File parsed = Files.createTempDirectory("json2java-parsed").toFile();
+    classes.setLogFileWrites(false);
+    classes.generateClasses(streamed, "  ");
+    tree.getClasses().setLogFileWrites(false);
+    tree.getClasses().generateClasses(parsed, "  ");
+    for (String file : new String[] {"a/b/Order.java", "a/b/Items.java"}) {
+      assertArrayEquals(Files.readAllBytes(new File(parsed, file).toPath()),
+          Files.readAllBytes(new File(streamed, file).toPath()));
+    }
+    String source = new String(Files.readAllBytes(new File(streamed, "a/b/Order.java").toPath()));
+    assertTrue(source.contains("import com.google.gson.JsonElement;"));
+  }
+
+  @Test
+  public void testParallelMatchesSequential() throws Exception {
+    JsonArray lineups = JsonParser.parseReader(open("/tms-lineups.json")).getAsJsonArray();
+    List<JsonSource> sources = new ArrayList<>();
+    for (int i = 0; i < 50; ++i) {
+      for (JsonElement lineup : lineups) {
+        String json = lineup.toString();
+        sources.add(() -> new StringReader(json));
+      }
+    }
+    sources.add(() -> open("/reversegeocoding.json"));
+    Json2Java sequential = new Json2Java();
+    for (JsonSource source : sources) {
+      sequential.processJson(source.openReader(), "com.tms.lineups", "Lineup", null);
+    }
+    Json2Java parallel = new Json2Java();
+    parallel.processJson(sources, "com.tms.lineups", "Lineup", null, new ForkJoinPool(4));
+    assertSameOutput(sequential, parallel, "com.tms.lineups");
+  }
+
+  @Test
+  public void testMappedMatchesStreaming() throws Exception {
+    CustomMappings mappings = new CustomMappings().mapType("Northeast", "Location")
+        .skipPath("$.results[*].geometry.viewport");
+    Json2Java streaming = new Json2Java();
+    streaming.processJson(open("/reversegeocoding.json"), "com.reversegeocoding",
+        "ReverseGeocodingResults", mappings);
+    Json2Java mapped = new Json2Java();
+    mapped.processMappedJson(copy("/reversegeocoding.json"), "com.reversegeocoding",
+        "ReverseGeocodingResults", mappings);
+    assertSameOutput(streaming, mapped, "com.reversegeocoding");
+
+    List<JsonSource> sources = new ArrayList<>();
+    File lineups = copy("/tms-lineups.json");
+    for (int i = 0; i < 4; ++i) {
+      sources.add(JsonSource.mapped(lineups));
+    }
+    Json2Java parallel = new Json2Java();
+    parallel.processJson(sources, "com.tms.lineups", "Lineup", null, new ForkJoinPool(2));
+    streaming = new Json2Java();
+    streaming.processJson(open("/tms-lineups.json"), "com.tms.lineups", "Lineup", null);
+    assertSameOutput(streaming, parallel, "com.tms.lineups");
+  }
+
+  @Test
+  public void testTrailingDocumentsRejected() throws Exception {
+    String json = "{\"a\": 1} {\"b\": 2}";
+    File file = File.createTempFile("json2java", ".json");
+    file.deleteOnExit();
+    Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    try {
+      new Json2Java().processMappedJson(file, "a.b", "Root", null);
+      fail();
+    } catch (JsonSyntaxException expected) {
+    }
+    try {
+      new Json2Java().processJson(new StringReader(json), "a.b", "Root", null);
+      fail();
+    } catch (JsonSyntaxException expected) {
+    }
+  }
+
+  private static File copy(String resource) throws IOException {
+    File file = File.createTempFile("json2java", ".json");
+    file.deleteOnExit();
+    try (InputStream in = Json2JavaTest.class.getResourceAsStream(resource)) {
+      Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    return file;
+  }
+
+  private static void assertSameOutput(Json2Java expected, Json2Java actual, String pkg)
+      throws Exception {
+    File expectedDir = Files.createTempDirectory("json2java-expected").toFile();
+    File actualDir = Files.createTempDirectory("json2java-actual").toFile();
+    expected.getClasses().generateClasses(expectedDir, "  ");
+    actual.getClasses().generateClasses(actualDir, "  ");
+    File expectedPkgDir = new File(expectedDir, pkg.replace('.', File.separatorChar));
+    File actualPkgDir = new File(actualDir, pkg.replace('.', File.separatorChar));
+    String[] names = expectedPkgDir.list();
+    assertTrue(names.length > 0);
+    assertEquals(names.length, actualPkgDir.list().length);
+    for (String name : names) {
+      assertArrayEquals(name, Files.readAllBytes(new File(expectedPkgDir, name).toPath()),
+          Files.readAllBytes(new File(actualPkgDir, name).toPath()));
+    }
+  }
+
+  private static InputStreamReader open(String resource) throws IOException {
+    InputStream json = Json2JavaTest.class.getResourceAsStream(resource);
+    return new InputStreamReader(json, "UTF-8");
+  }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.singhinderjeet.json2java.JsonPathMatcher.Action;
+import com.singhinderjeet.json2java.JsonPathMatcher.State;
+
+/**
+ * Unit tests for {@link JsonPathMatcher}.
+ *
+ * @author Inderjeet Singh
+ */
+public class JsonPathMatcherTest {
+  private static final Action DELETE = new Action(Action.Kind.DELETE, null);
+  private static final Action SKIP = new Action(Action.Kind.SKIP, null);
+
+  @Test
+  public void testMembersAndElements() {
+    State root = matcher("$.results[*].geometry", "$['address book'].*").root();
+    assertSame(DELETE, root.member("results").element().member("geometry").action);
+    assertNull(root.member("results").member("geometry").action);
+    assertSame(JsonPathMatcher.NONE, root.member("geometry"));
+    assertSame(SKIP, root.member("address book").member("home").action);
+    assertSame(SKIP, root.member("address book").element().action);
+    assertSame(JsonPathMatcher.NONE, root.member("address book").member("home").member("city"));
+  }
+
+  @Test
+  public void testDescendants() {
+    State root = matcher("$..id", "$.a..[*]").root();
+    assertSame(DELETE, root.member("id").action);
+    assertSame(DELETE, root.member("x").element().member("y").member("id").action);
+    assertNull(root.member("a").action);
+    assertSame(SKIP, root.member("a").member("b").element().action);
+    // states are shared by all positions with the same partial matches
+    assertSame(root.member("x"), root.member("y").member("z"));
+  }
+
+  @Test
+  public void testLaterPathWins() {
+    State root = matcher("$..name", "$.person.name").root();
+    assertSame(SKIP, root.member("person").member("name").action);
+    assertSame(DELETE, root.member("company").member("name").action);
+  }
+
+  @Test
+  public void testNoPaths() {
+    assertSame(JsonPathMatcher.NONE, new JsonPathMatcher(Arrays.asList(), Arrays.asList()).root());
+    assertSame(JsonPathMatcher.NONE, JsonPathMatcher.NONE.member("a").element());
+  }
+
+  @Test
+  public void testInvalidPaths() {
+    for (String path : new String[] {"a.b", "$", "$.a[0]", "$.a[", "$..", "$.a.", "$a"}) {
+      try {
+        JsonPathMatcher.checkPath(path);
+        fail(path);
+      } catch (IllegalArgumentException expected) {
+        assertEquals(true, expected.getMessage().startsWith("Invalid JsonPath " + path));
+      }
+    }
+  }
+
+  /** The first path deletes and the second skips */
+  private static JsonPathMatcher matcher(String deleted, String skipped) {
+    return new JsonPathMatcher(Arrays.asList(deleted, skipped), Arrays.asList(DELETE, SKIP));
+  }
+}
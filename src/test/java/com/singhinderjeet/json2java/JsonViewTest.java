@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Unit tests for the views generated with {@link ClassDefCollection#setGenerateViews(String)}.
+ *
+ * @author Inderjeet Singh
+ */
+public class JsonViewTest {
+
+  @Test
+  public void testViewsMatchClasses() throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new InputStreamReader(JsonViewTest.class.getResourceAsStream(
+        "/tms-lineups.json"), "UTF-8"), "com.tms.lineups", "Lineup", null);
+    converter.getClasses().setGenerateViews("com.tms.views");
+    Map<String, Class<?>> classes = new InMemoryCompiler().compile(converter.getClasses(), "  ");
+    Class<?> lineup = classes.get("com.tms.lineups.Lineup");
+    Class<?> lineupView = classes.get("com.tms.lineups.LineupView");
+    JsonArray lineups = JsonParser.parseReader(new InputStreamReader(
+        JsonViewTest.class.getResourceAsStream("/tms-lineups.json"), "UTF-8")).getAsJsonArray();
+    for (JsonElement json : lineups) {
+      Object parsed = new Gson().fromJson(json, lineup);
+      Object view = of(lineupView, json.toString());
+      for (String getter : new String[] {"getType", "getLineupId", "getName", "getDevice",
+          "getLocation"}) {
+        assertEquals(call(parsed, getter), call(view, getter));
+      }
+      assertEquals(call(call(parsed, "getMso"), "getName"), call(call(view, "getMso"), "getName"));
+    }
+  }
+
+  @Test
+  public void testValues() throws Exception {
+    String json = "{'id': 3000000000, 'name': 'x', 'score': 1.5, 'open': true,"
+        + " 'tags': ['a', 'b'], 'extra': {'a': 1}, 'owner': {'id': 1, 'name': 'o'},"
+        + " 'items': [{'id': 1, 'name': 'first'}, null]}";
+    Map<String, Class<?>> classes = compile(json, new CustomMappings().skipPath("$.extra"));
+    Class<?> order = classes.get("a.b.OrderView");
+    Object view = of(order, " {\"name\": \"caf\u00e9 \\\"\\u00e9\\\"\\n\", \"id\": -42,"
+        + " \"score\": 2.5e3, \"open\": \"true\", \"tags\": [\"x\", null],"
+        + " \"extra\": [1, {}], \"owner\": null, \"unknown\": {\"a\": [1, {}]},"
+        + " \"items\": [{\"name\": \"first\", \"id\": 7}, null, {\"id\": 8}]} ");
+    assertEquals("caf\u00e9 \"\u00e9\"\n", call(view, "getName"));
+    assertEquals(-42L, call(view, "getId"));
+    assertEquals(2500.0, call(view, "getScore"));
+    assertEquals(true, call(view, "isOpen"));
+    assertEquals(Arrays.asList("x", null), call(view, "getTags"));
+    assertEquals(JsonParser.parseString("[1, {}]"), call(view, "getExtra"));
+    assertNull(call(view, "getOwner"));
+    List<?> items = (List<?>) call(view, "getItems");
+    assertEquals(3, items.size());
+    assertEquals("first", call(items.get(0), "getName"));
+    assertEquals(7, call(items.get(0), "getId"));
+    assertNull(items.get(1));
+    assertNull(call(items.get(2), "getName"));
+    assertEquals(8, call(items.get(2), "getId"));
+
+    view = of(order, "{}");
+    assertNull(call(view, "getName"));
+    assertEquals(0L, call(view, "getId"));
+    assertEquals(false, call(view, "isOpen"));
+    assertNull(call(view, "getItems"));
+  }
+
+  @Test
+  public void testFieldsAreDecodedWhenRead() throws Exception {
+    Map<String, Class<?>> classes = compile("{'id': 1, 'owner': {'id': 2}, 'items': [{'id': 3}]}",
+        null);
+    Class<?> order = classes.get("a.b.OrderView");
+    Object view = of(order, "{\"id\": 1, \"owner\": {\"id\": \"x\"}, \"items\": [{\"id\": 1.5}]}");
+    assertEquals(1, call(view, "getId"));
+    Object owner = call(view, "getOwner");
+    List<?> items = (List<?>) call(view, "getItems");
+    assertEquals(1, items.size());
+    try {
+      call(owner, "getId");
+      fail();
+    } catch (NumberFormatException expected) {
+    }
+    try {
+      call(items.get(0), "getId");
+      fail();
+    } catch (NumberFormatException expected) {
+    }
+    view = of(order, "{\"id\": 1, \"owner\": {\"id\": 2]}");
+    assertEquals(1, call(view, "getId"));
+    try {
+      call(view, "getOwner");
+      fail();
+    } catch (JsonSyntaxException expected) {
+    }
+    try {
+      of(order, "{\"id\": 1 \"owner\": {}}");
+      fail();
+    } catch (JsonSyntaxException expected) {
+    }
+  }
+
+  private static Map<String, Class<?>> compile(String json, CustomMappings mappings)
+      throws Exception {
+    Json2Java converter = new Json2Java();
+    converter.processJson(new StringReader(json), "a.b", "Order", mappings);
+    converter.getClasses().setGenerateViews("a.b");
+    return new InMemoryCompiler().compile(converter.getClasses(), "  ");
+  }
+
+  private static Object of(Class<?> view, String json) throws Exception {
+    return invoke(view.getMethod("of", byte[].class), null, json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Object call(Object target, String getter) throws Exception {
+    return invoke(target.getClass().getMethod(getter), target);
+  }
+
+  private static Object invoke(Method method, Object target, Object... args) throws Exception {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Main}.
+ *
+ * @author Inderjeet Singh
+ */
+public class MainTest {
+
+  @Test
+  public void testBatchRun() throws Exception {
+    File inputDir = Files.createTempDirectory("json2java-in").toFile();
+    copyResource("/reversegeocoding.json", new File(inputDir, "a/reversegeocoding.json"));
+    copyResource("/reversegeocoding.json", new File(inputDir, "b/reversegeocoding.json"));
+    File mappingsFile = new File(inputDir, "mappings.txt");
+    Files.write(mappingsFile.toPath(), Arrays.asList(
+        "# geocoding mappings", "mapType AddressComponents AddressComponent",
+        "mapFieldName Results formattedAddress address"));
+    File outputDir = Files.createTempDirectory("json2java-out").toFile();
+
+    Main.main(new String[] {"--package", "com.geo", "--root", "Geocoding",
+        "--out", outputDir.getPath(), "--threads", "2",
+        "--mappings", mappingsFile.getPath(), inputDir.getPath()});
+    File pkgDir = new File(outputDir, "com/geo");
+    assertTrue(new File(pkgDir, "Geocoding.java").isFile());
+    assertTrue(new File(pkgDir, "AddressComponent.java").isFile());
+    assertFalse(new File(pkgDir, "AddressComponents.java").exists());
+    String results = new String(Files.readAllBytes(new File(pkgDir, "Results.java").toPath()));
+    assertTrue(results, results.contains("public String getAddress()"));
+  }
+
+  @Test
+  public void testInvalidArguments() throws Exception {
+    File inputDir = Files.createTempDirectory("json2java-in").toFile();
+    File mappingsFile = new File(inputDir, "mappings.txt");
+    Files.write(mappingsFile.toPath(), Arrays.asList("mapType Northeast"));
+    String[][] invalid = {
+      {"--package", "com.geo", "--root", "Geocoding"},
+      {"--package", "com.geo", "--root", "Geocoding", inputDir.getPath(), "--out"},
+      {"--package", "com.geo", "--root", "Geocoding", "--verbose", inputDir.getPath()},
+      {"--package", "com.geo", "--root", "Geocoding", "--threads", "0", inputDir.getPath()},
+      {"--package", "com.geo", "--root", "Geocoding", "--threads", "two", inputDir.getPath()},
+      {"--package", "com.geo", "--root", "Geocoding", "--mappings", mappingsFile.getPath(),
+          inputDir.getPath()},
+      {"--package", "com.geo", "--root", "Geocoding", "--mappings",
+          new File(inputDir, "missing.txt").getPath(), inputDir.getPath()},
+    };
+    for (String[] args : invalid) {
+      assertEquals(Arrays.toString(args), Main.USAGE_ERROR, Main.runBatch(args));
+    }
+  }
+
+  @Test
+  public void testFindInputFilesWithGlob() throws Exception {
+    File inputDir = Files.createTempDirectory("json2java-in").toFile();
+    copyResource("/tms-lineups.json", new File(inputDir, "x/one.json"));
+    copyResource("/tms-lineups.json", new File(inputDir, "y/two.json"));
+    copyResource("/tms-lineups.json", new File(inputDir, "y/three.txt"));
+
+    List<File> files = Main.findInputFiles(Arrays.asList(inputDir.getPath() + "/*/*.json"));
+    assertEquals(2, files.size());
+    assertEquals("one.json", files.get(0).getName());
+    assertEquals("two.json", files.get(1).getName());
+  }
+
+  @Test
+  public void testFindInputFilesWithBareGlob() throws Exception {
+    File inputDir = Files.createTempDirectory("json2java-in").toFile();
+    copyResource("/tms-lineups.json", new File(inputDir, "one.json"));
+    copyResource("/tms-lineups.json", new File(inputDir, "x/two.json"));
+
+    List<File> files = Main.findInputFiles(Arrays.asList("*.json"), inputDir);
+    assertEquals(Arrays.asList(new File(inputDir, "one.json")), files);
+    files = Main.findInputFiles(Arrays.asList("**.json"), inputDir);
+    assertEquals(Arrays.asList(new File(inputDir, "one.json"), new File(inputDir, "x/two.json")),
+        files);
+  }
+
+  @Test
+  public void testCompressedInputs() throws Exception {
+    File inputDir = Files.createTempDirectory("json2java-in").toFile();
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(
+        new File(inputDir, "geocoding.json.gz")))) {
+      copyResource("/reversegeocoding.json", out);
+    }
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(
+        new File(inputDir, "bundle.zip")))) {
+      out.putNextEntry(new ZipEntry("lineups/tms-lineups.json"));
+      copyResource("/tms-lineups.json", out);
+      out.putNextEntry(new ZipEntry("README.txt"));
+      out.write("not json".getBytes("UTF-8"));
+    }
+    assertEquals(1, JsonSource.ofZip(new File(inputDir, "bundle.zip")).size());
+    File outputDir = Files.createTempDirectory("json2java-out").toFile();
+
+    Main.main(new String[] {"--package", "com.geo", "--root", "Root", "--mmap",
+        "--out", outputDir.getPath(), inputDir.getPath()});
+    File pkgDir = new File(outputDir, "com/geo");
+    assertTrue(new File(pkgDir, "AddressComponents.java").isFile()); // from the gzip file
+    assertTrue(new File(pkgDir, "Mso.java").isFile()); // from the zip entry
+  }
+
+  @Test
+  public void testSourcesJar() throws Exception {
+    File inputDir = Files.createTempDirectory("json2java-in").toFile();
+    copyResource("/reversegeocoding.json", new File(inputDir, "reversegeocoding.json"));
+    File outputDir = Files.createTempDirectory("json2java-out").toFile();
+    File first = new File(outputDir, "first-sources.jar");
+    File second = new File(outputDir, "second-sources.zip");
+    for (File out : new File[] {first, second, outputDir}) {
+      Main.main(new String[] {"--package", "com.geo", "--root", "Geocoding", "--threads", "2",
+          "--out", out.getPath(), inputDir.getPath()});
+    }
+    assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    int entries = 0;
+    try (ZipFile zip = new ZipFile(first)) {
+      for (ZipEntry entry : Collections.list(zip.entries())) {
+        File file = new File(outputDir, entry.getName());
+        assertTrue(entry.getName(), file.isFile());
+        try (InputStream in = zip.getInputStream(entry)) {
+          ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          for (int b = in.read(); b != -1; b = in.read()) {
+            bytes.write(b);
+          }
+          assertArrayEquals(Files.readAllBytes(file.toPath()), bytes.toByteArray());
+        }
+        ++entries;
+      }
+    }
+    assertEquals(new File(outputDir, "com/geo").list().length, entries);
+  }
+
+  private static void copyResource(String resource, OutputStream out) throws Exception {
+    try (InputStream in = MainTest.class.getResourceAsStream(resource)) {
+      byte[] buffer = new byte[8192];
+      for (int count; (count = in.read(buffer)) != -1;) {
+        out.write(buffer, 0, count);
+      }
+    }
+  }
+
+  private static void copyResource(String resource, File file) throws Exception {
+    file.getParentFile().mkdirs();
+    try (InputStream in = MainTest.class.getResourceAsStream(resource)) {
+      Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * Unit tests for {@link MappedJsonTokenizer}.
+ *
+ * @author Inderjeet Singh
+ */
+public class MappedJsonTokenizerTest {
+
+  @Test
+  public void testTokens() throws Exception {
+    MappedJsonTokenizer tokens = tokenize(
+        "\uFEFF{\"a_b\": [1, 'x', true, null, {}], \"c\\u0064\": {\"e\": false}}");
+    tokens.beginObject();
+    assertEquals("a_b", tokens.nextName());
+    tokens.beginArray();
+    TypeAccumulator types = new TypeAccumulator();
+    tokens.nextScalar(types);
+    tokens.nextScalar(types);
+    tokens.nextScalar(types);
+    assertEquals(JsonToken.NULL, tokens.peek());
+    tokens.nextNull();
+    tokens.skipValue();
+    assertFalse(tokens.hasNext());
+    tokens.endArray();
+    assertEquals("String", types.getTypeName(null));
+    assertEquals("cd", tokens.nextName());
+    tokens.skipValue();
+    tokens.endObject();
+    assertEquals(JsonToken.END_DOCUMENT, tokens.peek());
+  }
+
+  @Test
+  public void testNamesAreReused() throws Exception {
+    MappedJsonTokenizer tokens = tokenize("[{\"name\": 1}, {\"name\": 2}]");
+    tokens.beginArray();
+    tokens.beginObject();
+    String first = tokens.nextName();
+    tokens.skipValue();
+    tokens.endObject();
+    tokens.beginObject();
+    assertSame(first, tokens.nextName());
+  }
+
+  @Test
+  public void testStringKinds() throws Exception {
+    assertEquals("boolean", typeOf("[\"TRUE\", \"False\", 't\\u0072ue']"));
+    assertEquals("String", typeOf("[\"true\", \"truth\"]"));
+    assertEquals("String", typeOf("[\"\\\"\"]"));
+  }
+
+  @Test
+  public void testNumberKindsMatchTypeAccumulator() throws Exception {
+    String[] numbers = {"0", "-0", "7", "-2147483648", "2147483647", "2147483648",
+        "-2147483649", "9223372036854775807", "123456789012345678901234", "1.0", "-3.000",
+        "2.5", "0.1", "1e3", "1.5E3", "2.5e-1", "1E400", "0.00000000000000000001",
+        "1.0000000000000000001", "12345678901234567.5", "00012"};
+    for (String number : numbers) {
+      assertNumberKind(number);
+    }
+    Random random = new Random(42);
+    for (int i = 0; i < 10000; ++i) {
+      String number = Long.toString(random.nextLong() >> random.nextInt(64));
+      if (random.nextBoolean()) number += "." + Integer.toString(random.nextInt(1000));
+      if (random.nextInt(4) == 0) number += "e" + (random.nextInt(40) - 20);
+      assertNumberKind(number);
+    }
+  }
+
+  private static void assertNumberKind(String number) throws IOException {
+    TypeAccumulator expected = new TypeAccumulator();
+    expected.addNumber(Double.parseDouble(number));
+    assertEquals(number, expected.getTypeName(null), typeOf("[" + number + "]"));
+  }
+
+  @Test
+  public void testTokensSpanningWindows() throws Exception {
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < 200; ++i) {
+      if (i > 0) json.append(",\n ");
+      json.append("{\"id\": ").append(i * 100000007L).append(", \"name\": \"n").append(i)
+          .append("\", \"ok\": true, \"score\": ").append(i / 8.0).append('}');
+    }
+    json.append(']');
+    File file = File.createTempFile("json2java-mapped", ".json");
+    file.deleteOnExit();
+    Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedJsonTokenizer tokens = new MappedJsonTokenizer(channel, 24);
+      tokens.beginArray();
+      TypeAccumulator ids = new TypeAccumulator();
+      TypeAccumulator scores = new TypeAccumulator();
+      int count = 0;
+      while (tokens.hasNext()) {
+        tokens.beginObject();
+        assertEquals("id", tokens.nextName());
+        tokens.nextScalar(ids);
+        assertEquals("name", tokens.nextName());
+        tokens.skipValue();
+        assertEquals("ok", tokens.nextName());
+        tokens.skipValue();
+        assertEquals("score", tokens.nextName());
+        tokens.nextScalar(scores);
+        tokens.endObject();
+        ++count;
+      }
+      tokens.endArray();
+      assertEquals(JsonToken.END_DOCUMENT, tokens.peek());
+      assertEquals(200, count);
+      assertEquals("long", ids.getTypeName(null));
+      assertEquals("double", scores.getTypeName(null));
+    }
+  }
+
+  @Test
+  public void testTokenLongerThanWindow() throws Exception {
+    File file = File.createTempFile("json2java-mapped", ".json");
+    file.deleteOnExit();
+    Files.write(file.toPath(), "[\"a string longer than the window\"]".getBytes("UTF-8"));
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedJsonTokenizer tokens = new MappedJsonTokenizer(channel, 8);
+      tokens.beginArray();
+      tokens.skipValue();
+      fail();
+    } catch (MalformedJsonException expected) {
+    }
+  }
+
+  @Test
+  public void testMalformed() throws Exception {
+    for (String json : new String[] {"{\"a\" 1}", "[1 2]", "[-]", "[1.]", "[1e]", "[tru]",
+        "{a: 1}", "[\"open", "[1,"}) {
+      try {
+        MappedJsonTokenizer tokens = tokenize(json);
+        tokens.skipValue();
+        fail(json);
+      } catch (MalformedJsonException expected) {
+      }
+    }
+  }
+
+  private static String typeOf(String jsonArray) throws IOException {
+    MappedJsonTokenizer tokens = tokenize(jsonArray);
+    TypeAccumulator types = new TypeAccumulator();
+    tokens.beginArray();
+    while (tokens.hasNext()) {
+      tokens.nextScalar(types);
+    }
+    tokens.endArray();
+    return types.getTypeName(null);
+  }
+
+  private static MappedJsonTokenizer tokenize(String json) {
+    return new MappedJsonTokenizer(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+  }
+}
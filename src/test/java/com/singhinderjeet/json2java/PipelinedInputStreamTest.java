@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PipelinedInputStream}.
+ *
+ * @author Inderjeet Singh
+ */
+public class PipelinedInputStreamTest {
+
+  @Test
+  public void testReadsAllBytes() throws Exception {
+    byte[] bytes = new byte[PipelinedInputStream.BUFFER_SIZE * 10 + 17];
+    new Random(7).nextBytes(bytes);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = new PipelinedInputStream(new ByteArrayInputStream(bytes), "test")) {
+      assertEquals(bytes[0] & 0xff, in.read());
+      out.write(bytes[0]);
+      byte[] buffer = new byte[1000];
+      for (int count; (count = in.read(buffer, 0, buffer.length)) != -1;) {
+        out.write(buffer, 0, count);
+      }
+      assertEquals(-1, in.read());
+    }
+    assertArrayEquals(bytes, out.toByteArray());
+  }
+
+  @Test
+  public void testPropagatesErrors() throws Exception {
+    InputStream failing = new InputStream() {
+      private int count;
+
+      @Override
+      public int read() throws IOException {
+        if (++count > 100) throw new IOException("disk on fire");
+        return 'x';
+      }
+    };
+    try (InputStream in = new PipelinedInputStream(failing, "test")) {
+      while (in.read() != -1) {
+      }
+      fail();
+    } catch (IOException expected) {
+      assertEquals("disk on fire", expected.getMessage());
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testPropagatesErrorsWhileQueueIsFull() throws Exception {
+    assertErrorReachesSlowReader(new IOException("truncated"));
+    assertErrorReachesSlowReader(new IllegalStateException("bug in source"));
+  }
+
+  private static void assertErrorReachesSlowReader(Exception error) throws Exception {
+    int size = PipelinedInputStream.BUFFER_SIZE * PipelinedInputStream.QUEUE_CAPACITY;
+    CountDownLatch failed = new CountDownLatch(1);
+    InputStream failing = new InputStream() {
+      private int count;
+
+      @Override
+      public int read() throws IOException {
+        if (count++ < size) return 'x';
+        failed.countDown();
+        if (error instanceof IOException) throw (IOException) error;
+        throw (RuntimeException) error;
+      }
+    };
+    try (InputStream in = new PipelinedInputStream(failing, "test")) {
+      // the reader falls behind until the source fails with the queue full
+      assertTrue(failed.await(5, TimeUnit.SECONDS));
+      Thread.sleep(100);
+      byte[] buffer = new byte[8192];
+      while (in.read(buffer, 0, buffer.length) != -1) {
+      }
+      fail();
+    } catch (IOException expected) {
+      assertEquals(error.getMessage(), expected.getMessage());
+      assertEquals(error, expected.getCause());
+    }
+  }
+
+  @Test
+  public void testCloseStopsReadingAhead() throws Exception {
+    CountDownLatch closed = new CountDownLatch(1);
+    InputStream endless = new FilterInputStream(new InputStream() {
+      @Override
+      public int read() {
+        return 'x';
+      }
+    }) {
+      @Override
+      public void close() {
+        closed.countDown();
+      }
+    };
+    InputStream in = new PipelinedInputStream(endless, "test");
+    assertEquals('x', in.read());
+    in.close();
+    assertTrue(closed.await(10, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Scale regression tests on synthetic inputs. Each test times a workload on an input of size n
+ * and of size 2n, and fails if the time grows by more than {@link #MAX_GROWTH}: linear work
+ * about doubles, while quadratic work, such as a linear search per class or per field, about
+ * quadruples.
+ * <p>
+ * The default build uses inputs that take a fraction of a second. The scale profile
+ * ({@code mvn test -Pscale}) multiplies them by the system property json2java.scale.factor, up to
+ * 10k classes, 20k-field objects and a 1 GB stream, and caps the heap of the test JVM. The
+ * property json2java.scale.streamChars sets the length of the smaller stream.
+ *
+ * @author Inderjeet Singh
+ */
+public class ScaleTest {
+  private static final double MAX_GROWTH = 3.0;
+  private static final int FACTOR = Integer.getInteger("json2java.scale.factor", 1);
+  private static final long MB = 1024 * 1024;
+  /** Runs of a workload are repeated, keeping the fastest, until they take this long */
+  private static final long MEASURE_NANOS = 2_000_000_000L;
+
+  @Test
+  public void testClassCount() throws Exception {
+    assertLinear("classes", 1000 * FACTOR, this::inferAndGenerateClasses);
+  }
+
+  /** Infers classCount classes, renames them all and generates their sources */
+  private void inferAndGenerateClasses(long classCount) throws IOException {
+    String json = new SyntheticCorpus(1).width((int) (3 * classCount)).nestedWidth(10)
+        .keyCardinality(10).depth(2).arrayLength(1).document(0);
+    Json2Java converter = new Json2Java();
+    converter.processJson(new StringReader(json), "com.scale", "Root", null);
+    ClassDefCollection classes = converter.getClasses();
+    List<ClassDefinition> defs = classes.getClassDefinitions();
+    assertEquals(classCount + 2, defs.size()); // with String and Root
+
+    CustomMappings mappings = new CustomMappings();
+    for (int i = 2; i < defs.size(); ++i) {
+      mappings.mapType(defs.get(i).getClassName(), defs.get(i).getClassName() + "Data");
+    }
+    classes.transform(mappings);
+    assertTrue(classes.findByTypeName("K4Data") != null);
+
+    try (SourceSink sink = SourceSink.zip(new DiscardingOutputStream())) {
+      classes.generateClasses(sink, "  ", 1);
+    }
+  }
+
+  @Test
+  public void testFieldCount() throws Exception {
+    assertLinear("fields", 2000 * FACTOR, this::inferWideObjects);
+  }
+
+  /** Infers a class with fieldCount fields from 40 documents, widening some of the fields */
+  private void inferWideObjects(long fieldCount) throws IOException {
+    SyntheticCorpus corpus = new SyntheticCorpus(2).width((int) fieldCount)
+        .keyCardinality((int) fieldCount).depth(1).typeNoise(0.01);
+    Json2Java converter = new Json2Java();
+    for (int i = 0; i < 40; ++i) {
+      converter.processJson(new StringReader(corpus.document(i)), "com.scale", "Root", null);
+    }
+    ClassDefinition root = converter.getClasses().findByTypeName("Root");
+    assertEquals(fieldCount, root.getFieldsCount());
+    int widened = 0;
+    for (int key = 0; key < fieldCount; key += 6) { // int keys
+      if (!root.find("k" + key).getTypeName().equals("int")) ++widened;
+    }
+    assertTrue("type noise should widen some fields", widened > 0);
+  }
+
+  @Test
+  public void testStreamLength() throws Exception {
+    long chars = Long.getLong("json2java.scale.streamChars", 8 * MB * FACTOR);
+    assertLinear("characters", chars, this::inferJsonLines);
+    // the classes retained are tiny compared to the stream
+    assertTrue(usedHeapAfterGc() < 64 * MB);
+  }
+
+  private void inferJsonLines(long chars) throws IOException {
+    SyntheticCorpus corpus = new SyntheticCorpus(3).width(20).depth(3).keyCardinality(40);
+    Json2Java converter = new Json2Java();
+    JsonLinesStats stats = converter.processJsonLines(corpus.openJsonLines(chars), "com.scale",
+        "Root", null);
+    assertTrue(stats.getRecords() > 0);
+    assertEquals(0, stats.getMalformedRecords());
+  }
+
+  private interface Workload {
+    void run(long size) throws IOException;
+  }
+
+  /** Fails if the workload takes more than {@link #MAX_GROWTH} times as long at 2n as at n */
+  private static void assertLinear(String unit, long n, Workload workload) throws IOException {
+    workload.run(n); // warms up the JIT
+    long time = fastestRun(workload, n);
+    long doubledTime = fastestRun(workload, 2 * n);
+    double growth = (double) doubledTime / time;
+    assertTrue(String.format("%d %s took %d ms, %d took %d ms", n, unit, time / 1_000_000,
+        2 * n, doubledTime / 1_000_000), growth < MAX_GROWTH);
+  }
+
+  private static long fastestRun(Workload workload, long size) throws IOException {
+    long fastest = Long.MAX_VALUE;
+    long total = 0;
+    for (int i = 0; i < 5 && total < MEASURE_NANOS; ++i) {
+      System.gc();
+      long start = System.nanoTime();
+      workload.run(size);
+      long elapsed = System.nanoTime() - start;
+      fastest = Math.min(fastest, elapsed);
+      total += elapsed;
+    }
+    return fastest;
+  }
+
+  private static long usedHeapAfterGc() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static final class DiscardingOutputStream extends OutputStream {
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+    }
+  }
+}
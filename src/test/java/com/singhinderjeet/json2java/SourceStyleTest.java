@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.google.gson.JsonPrimitive;
+import com.singhinderjeet.json2java.CustomMappings.MappedFieldName;
+
+/**
+ * Unit tests for {@link SourceStyle}.
+ *
+ * @author Inderjeet Singh
+ */
+public class SourceStyleTest {
+
+  @Test
+  public void testPublicFieldsWithoutAccessors() throws Exception {
+    ClassDefinition baseClass = new ClassDefinition("a.b", "Base");
+    baseClass.addField(new ClassField("id", new JsonPrimitive(1), "Id", false));
+    ClassDefinition clazz = new ClassDefinition("a.b", "Item");
+    clazz.setBaseClass(baseClass);
+    clazz.addField(new ClassField("is_open", new JsonPrimitive(true), "IsOpen", false));
+    clazz.addField(new ClassField("name", new JsonPrimitive("x"), "Name", false));
+    clazz.mapFieldName(new MappedFieldName("Item", "is_open", "isOpen"));
+    SourceStyle style = SourceStyle.DEFAULT
+        .withFieldTemplate("\tpublic {{type}} {{name}}; // {{jsonName}}\n")
+        .withClassTemplate("public class {{className}}{{#hasBaseClass}} extends {{baseClassName}}"
+            + "{{/hasBaseClass}} {\n{{declarations}}{{^fields}}\t// no fields\n{{/fields}}}\n")
+        .withAccessorTemplate("unused");
+    clazz.setSourceStyle(style);
+    clazz.prepareForWriting();
+    StringBuilder out = new StringBuilder();
+    clazz.appendClassFile(out, "  ", null, null);
+    assertEquals("package a.b;\n\n"
+        + "import com.google.gson.annotations.SerializedName;\n"
+        + "public class Item extends Base {\n"
+        + "  public boolean isOpen; // is_open\n"
+        + "  public String name; // name\n"
+        + "}\n", out.toString());
+
+    ClassDefinition empty = new ClassDefinition("a.b", "Empty");
+    empty.setSourceStyle(style);
+    out.setLength(0);
+    empty.appendClassBody(out, "\t");
+    assertEquals("public class Empty {\n\t// no fields\n}\n", out.toString());
+  }
+
+  @Test
+  public void testEnumTemplate() throws Exception {
+    EnumDefinition colors = new EnumDefinition("a.b", "Color")
+        .addEnumValue("RED", "red").addEnumValue("GREEN", "GREEN").addEnumValue("BLUE", null);
+    colors.setSourceStyle(SourceStyle.DEFAULT.withEnumTemplate("enum {{className}} "
+        + "{{{#values}}{{^first}}, {{/first}}{{name}}{{#serializedName}}={{jsonName}}"
+        + "{{/serializedName}}{{/values}}}"));
+    StringBuilder out = new StringBuilder();
+    colors.appendClassBody(out, "  ");
+    assertEquals("enum Color {RED=red, GREEN, BLUE}", out.toString());
+  }
+
+  @Test
+  public void testDefaultClassBody() throws Exception {
+    ClassDefinition clazz = new ClassDefinition("a.b", "Point");
+    clazz.addField(new ClassField("x", new JsonPrimitive(1), "X", false));
+    clazz.addField(new ClassField("y_pos", new JsonPrimitive(2), "YPos", false));
+    clazz.mapFieldName(new MappedFieldName("Point", "y_pos", "yPos"));
+    clazz.prepareForWriting();
+    StringBuilder out = new StringBuilder();
+    clazz.appendClassBody(out, "  ");
+    assertEquals("public class Point {\n\n"
+        + "  private final int x;\n"
+        + "  @SerializedName(\"y_pos\")\n"
+        + "  private final int yPos;\n\n"
+        + "  public Point(int x, int yPos) {\n"
+        + "    this.x = x;\n"
+        + "    this.yPos = yPos;\n"
+        + "  }\n\n"
+        + "  public int getX() {\n"
+        + "    return x;\n"
+        + "  }\n\n"
+        + "  public int getYPos() {\n"
+        + "    return yPos;\n"
+        + "  }\n"
+        + "}\n", out.toString());
+  }
+
+  @Test
+  public void testMalformedTemplates() {
+    assertMalformed("{{unknown}}");
+    assertMalformed("{{name}}");
+    assertMalformed("{{#fields}}{{name}}");
+    assertMalformed("{{#fields}}{{/values}}");
+    assertMalformed("{{/fields}}");
+    assertMalformed("{{#className}}{{/className}}");
+    assertMalformed("{{fields}}");
+    assertMalformed("{{hasBaseClass}}");
+    assertMalformed("{{className");
+  }
+
+  @Test
+  public void testTemplatesCannotIncludeThemselves() {
+    String[] partials = {"{{declarations}}", "{{constructor}}", "{{accessors}}"};
+    for (String partial : partials) {
+      assertRejected(() -> SourceStyle.DEFAULT.withFieldTemplate("\t" + partial + "\n"));
+      assertRejected(() -> SourceStyle.DEFAULT.withAccessorTemplate("\t" + partial + "\n"));
+      assertRejected(() -> SourceStyle.DEFAULT.withConstructorTemplate("\t" + partial + "\n"));
+      assertRejected(() -> SourceStyle.DEFAULT.withClassTemplate(
+          "class {{className}} {{{#fields}}" + partial + "{{/fields}}}"));
+    }
+  }
+
+  private static void assertRejected(Runnable createStyle) {
+    try {
+      createStyle.run();
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private static void assertMalformed(String template) {
+    try {
+      SourceStyle.DEFAULT.withClassTemplate(template);
+      fail(template);
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
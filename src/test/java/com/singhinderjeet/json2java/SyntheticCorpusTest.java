@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Unit tests for {@link SyntheticCorpus}.
+ *
+ * @author Inderjeet Singh
+ */
+public class SyntheticCorpusTest {
+
+  @Test
+  public void testSameSeedSameDocuments() throws Exception {
+    SyntheticCorpus corpus = new SyntheticCorpus(7).width(8).keyCardinality(20).typeNoise(0.1);
+    assertEquals(corpus.document(3), new SyntheticCorpus(7).width(8).keyCardinality(20)
+        .typeNoise(0.1).document(3));
+    assertNotEquals(corpus.document(3), corpus.document(4));
+    assertNotEquals(corpus.document(3), new SyntheticCorpus(8).width(8).keyCardinality(20)
+        .typeNoise(0.1).document(3));
+  }
+
+  @Test
+  public void testShape() throws Exception {
+    SyntheticCorpus corpus = new SyntheticCorpus(1).width(12).nestedWidth(6).keyCardinality(12)
+        .depth(2).arrayLength(4);
+    JsonObject root = JsonParser.parseString(corpus.document(0)).getAsJsonObject();
+    assertEquals(12, root.size());
+    assertTrue(root.get("k0").getAsJsonPrimitive().isNumber());
+    assertTrue(root.get("k2").getAsJsonPrimitive().isString());
+    assertEquals(6, root.getAsJsonObject("k4").size());
+    assertEquals(4, root.getAsJsonArray("k5").size());
+    // objects are replaced with ints at the maximum depth
+    for (String key : root.getAsJsonObject("k4").keySet()) {
+      assertTrue(root.getAsJsonObject("k4").get(key).isJsonPrimitive());
+    }
+  }
+
+  @Test
+  public void testNestedKeysAndItems() throws Exception {
+    SyntheticCorpus corpus = new SyntheticCorpus(1).width(12).keyCardinality(12).depth(3)
+        .nestedKeys(1);
+    JsonObject items = JsonParser.parseString(corpus.itemsDocument(2)).getAsJsonObject();
+    assertEquals(2, items.getAsJsonArray("items").size());
+    JsonObject root = items.getAsJsonArray("items").get(0).getAsJsonObject();
+    assertEquals(JsonParser.parseString(corpus.document(0)), root);
+    // only k4 holds an object, so the documents are chains of depth objects
+    assertTrue(root.get("k5").getAsJsonPrimitive().isNumber());
+    assertTrue(root.get("k10").getAsJsonPrimitive().isNumber());
+    JsonObject child = root.getAsJsonObject("k4");
+    assertTrue(child.get("k5").getAsJsonPrimitive().isNumber());
+    assertTrue(child.getAsJsonObject("k4").get("k4").getAsJsonPrimitive().isNumber());
+  }
+
+  @Test
+  public void testJsonLinesLength() throws Exception {
+    SyntheticCorpus corpus = new SyntheticCorpus(1);
+    long length = 0;
+    int lines = 0;
+    try (BufferedReader reader = new BufferedReader(corpus.openJsonLines(10000))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        assertEquals(corpus.document(lines++), line);
+        length += line.length() + 1;
+      }
+    }
+    assertTrue(length >= 10000);
+    assertTrue(length - corpus.document(lines - 1).length() - 1 < 10000);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Unit tests for {@link TypeAccumulator}.
+ *
+ * @author Inderjeet Singh
+ */
+public class TypeAccumulatorTest {
+
+  @Test
+  public void testNumbersWiden() throws Exception {
+    TypeAccumulator types = new TypeAccumulator();
+    types.addNumber(1);
+    assertEquals("int", types.getTypeName("A"));
+    types.addNumber(Integer.MAX_VALUE + 1L);
+    assertEquals("long", types.getTypeName("A"));
+    types.addNumber(2);
+    assertEquals("long", types.getTypeName("A"));
+    types.addNumber(2.5d);
+    assertEquals("double", types.getTypeName("A"));
+  }
+
+  @Test
+  public void testMixedScalarsWidenToString() throws Exception {
+    TypeAccumulator types = new TypeAccumulator();
+    types.addString("TRUE");
+    assertEquals("boolean", types.getTypeName("A"));
+    types.addNumber(1);
+    assertEquals("String", types.getTypeName("A"));
+  }
+
+  @Test
+  public void testObjectsAndArrays() throws Exception {
+    TypeAccumulator types = new TypeAccumulator();
+    types.add(new JsonObject());
+    assertFalse(types.isArray());
+    assertEquals("A", types.getTypeName("A"));
+
+    JsonArray array = new JsonArray();
+    array.add(new JsonPrimitive(3));
+    JsonArray inner = new JsonArray();
+    inner.add(new JsonPrimitive(3.5d));
+    array.add(inner);
+    types.add(array);
+    assertTrue(types.isArray());
+    assertEquals("double", types.getTypeName("A"));
+  }
+
+  @Test
+  public void testSampleValuesRecordTheSameKinds() throws Exception {
+    TypeAccumulator types = new TypeAccumulator();
+    types.addString("TRUE");
+    types.addNumber(3000000000d);
+    types.addObject();
+    TypeAccumulator elements = types.addArray();
+    elements.addNumber(1);
+    elements.addNumber(1.5);
+    elements.addArray().addString("a");
+
+    TypeAccumulator copy = new TypeAccumulator();
+    for (JsonElement value : types.getSampleValues()) {
+      copy.add(value);
+    }
+    assertEquals(types.toString(), copy.toString());
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testFieldJsonValues() throws Exception {
+    JsonArray array = new JsonArray();
+    array.add(new JsonPrimitive(3000000000L));
+    ClassField field = new ClassField("a", array, "A", true);
+    field.addJsonValue(new JsonArray());
+    ClassField copy = new ClassField("a", "A", true);
+    for (JsonElement value : field.getJsonValues()) {
+      copy.addJsonValue(value);
+    }
+    assertEquals(1, field.getJsonValues().size());
+    assertEquals("List<Long>", copy.getTypeName());
+    assertEquals(field.getTypeName(), copy.getTypeName());
+  }
+}
@@ -16,6 +16,8 @@
 package com.singhinderjeet.json2java;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -37,4 +39,35 @@ public class UtilsTest {
     assertEquals("AbraCaDabra", Utils.lowerCaseUnderscoreToCamelCase("Abra_caDabra", true));
     assertEquals("AbraCaDabra", Utils.lowerCaseUnderscoreToCamelCase("Abra_Ca_Dabra", true));
   }
+
+  @Test
+  public void testToJavaNames() throws Exception {
+    assertNames("formattedAddress", null, "FormattedAddress", "formatted_address");
+    assertNames("Abc", null, "Abc", "Abc");
+    assertNames("class", "class_", "Class", "class");
+    assertNames("null", "null_", "Null", "null");
+    assertNames("2fa", "_2fa", "_2fa", "2fa");
+    assertNames("content-type", "contentType", "ContentType", "content-type");
+    assertNames("@id", "id", "Id", "@id");
+    assertNames("", "value", "Value", "");
+    assertNames("-", "value", "Value", "-");
+  }
+
+  @Test
+  public void testToJavaNamesIsCached() throws Exception {
+    String key = "cached_key";
+    assertSame(Utils.toJavaNames(key), Utils.toJavaNames(new String(key)));
+  }
+
+  private static void assertNames(String jsonName, String fieldName, String typeName,
+      String key) {
+    Utils.JavaNames names = Utils.toJavaNames(key);
+    assertEquals(jsonName, names.jsonName);
+    if (fieldName == null) {
+      assertNull(names.fieldName);
+    } else {
+      assertEquals(fieldName, names.fieldName);
+    }
+    assertEquals(typeName, names.typeName);
+  }
 }
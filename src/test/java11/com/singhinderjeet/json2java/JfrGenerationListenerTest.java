@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Unit tests for {@link JfrGenerationListener}.
+ *
+ * @author Inderjeet Singh
+ */
+public class JfrGenerationListenerTest {
+
+  @Test
+  public void testPhaseEvents() throws Exception {
+    Path file = Files.createTempFile("json2java", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("com.singhinderjeet.json2java.Phase");
+      recording.start();
+      Json2Java converter = new Json2Java();
+      converter.setListener(new JfrGenerationListener());
+      converter.processJson(new StringReader("{\"a\": {\"b\": 1}}"), "a", "Root",
+          new CustomMappings().mapType("A", "Renamed"));
+      recording.stop();
+      recording.dump(file);
+    }
+    List<String> phases = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      phases.add(event.getString("phase"));
+    }
+    assertEquals("[INFERENCE, TRANSFORM, MERGE]", phases.toString());
+    Files.delete(file);
+  }
+}
@@ -0,0 +1,27 @@
+package com.reversegeocoding;
+
+import java.util.List;
+public class AddressComponent {
+
+    private final String longName;
+    private final String shortName;
+    private final List<String> types;
+
+    public AddressComponent(String longName, String shortName, List<String> types) {
+        this.longName = longName;
+        this.shortName = shortName;
+        this.types = types;
+    }
+
+    public String getLongName() {
+        return longName;
+    }
+
+    public String getShortName() {
+        return shortName;
+    }
+
+    public List<String> getTypes() {
+        return types;
+    }
+}
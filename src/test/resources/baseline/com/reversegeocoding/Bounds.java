@@ -0,0 +1,19 @@
+package com.reversegeocoding;
+public class Bounds {
+
+    private final Location northeast;
+    private final Location southwest;
+
+    public Bounds(Location northeast, Location southwest) {
+        this.northeast = northeast;
+        this.southwest = southwest;
+    }
+
+    public Location getNortheast() {
+        return northeast;
+    }
+
+    public Location getSouthwest() {
+        return southwest;
+    }
+}
@@ -0,0 +1,31 @@
+package com.reversegeocoding;
+public class Geometry {
+
+    private final Bounds bounds;
+    private final Location location;
+    private final String locationType;
+    private final Viewport viewport;
+
+    public Geometry(Bounds bounds, Location location, String locationType, Viewport viewport) {
+        this.bounds = bounds;
+        this.location = location;
+        this.locationType = locationType;
+        this.viewport = viewport;
+    }
+
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    public String getLocationType() {
+        return locationType;
+    }
+
+    public Viewport getViewport() {
+        return viewport;
+    }
+}
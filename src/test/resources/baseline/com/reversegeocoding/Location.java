@@ -0,0 +1,19 @@
+package com.reversegeocoding;
+public class Location {
+
+    private final double lat;
+    private final double lng;
+
+    public Location(double lat, double lng) {
+        this.lat = lat;
+        this.lng = lng;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLng() {
+        return lng;
+    }
+}
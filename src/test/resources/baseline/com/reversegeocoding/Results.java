@@ -0,0 +1,33 @@
+package com.reversegeocoding;
+
+import java.util.List;
+public class Results {
+
+    private final AddressComponent addressComponents;
+    private final String formattedAddress;
+    private final Geometry geometry;
+    private final List<String> types;
+
+    public Results(AddressComponent addressComponents, String formattedAddress, Geometry geometry, List<String> types) {
+        this.addressComponents = addressComponents;
+        this.formattedAddress = formattedAddress;
+        this.geometry = geometry;
+        this.types = types;
+    }
+
+    public AddressComponent getAddressComponents() {
+        return addressComponents;
+    }
+
+    public String getFormattedAddress() {
+        return formattedAddress;
+    }
+
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    public List<String> getTypes() {
+        return types;
+    }
+}
@@ -0,0 +1,21 @@
+package com.reversegeocoding;
+
+import java.util.List;
+public class ReverseGeocodingResults {
+
+    private final List<Results> results;
+    private final String status;
+
+    public ReverseGeocodingResults(List<Results> results, String status) {
+        this.results = results;
+        this.status = status;
+    }
+
+    public List<Results> getResults() {
+        return results;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
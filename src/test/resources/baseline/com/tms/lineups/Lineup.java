@@ -0,0 +1,43 @@
+package com.tms.lineups;
+public class Lineup {
+
+    private final String device;
+    private final String lineupId;
+    private final String location;
+    private final Mso mso;
+    private final String name;
+    private final String type;
+
+    public Lineup(String device, String lineupId, String location, Mso mso, String name, String type) {
+        this.device = device;
+        this.lineupId = lineupId;
+        this.location = location;
+        this.mso = mso;
+        this.name = name;
+        this.type = type;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public String getLineupId() {
+        return lineupId;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Mso getMso() {
+        return mso;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
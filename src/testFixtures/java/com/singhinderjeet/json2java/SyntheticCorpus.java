@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2015 Inderjeet Singh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.singhinderjeet.json2java;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+
+/**
+ * Generates JSON documents deterministically from a seed, for tests and benchmarks that need large
+ * or oddly shaped inputs. Documents are built from a pool of keyCardinality keys; the kind of value
+ * a key holds is fixed by the key, so the same key infers the same type in every document unless
+ * type noise replaces a value with one of another kind.
+ * <p>
+ * Keys k0, k6, k12, ... hold ints, k1, k7, ... doubles, k2, ... strings, k3, ... booleans,
+ * k4, ... objects and k5, ... arrays of objects. Objects and arrays below the maximum depth, and
+ * beyond the number of nested keys, hold ints instead.
+ * <p>
+ * This class is shared by the tests and the benchmarks module, so that both measure the same
+ * inputs.
+ *
+ * @author Inderjeet Singh
+ */
+final class SyntheticCorpus {
+  private static final int KINDS = 6;
+
+  private final long seed;
+  private int width = 10;
+  private int nestedWidth = -1;
+  private int depth = 2;
+  private int arrayLength = 3;
+  private int keyCardinality = 10;
+  private int nestedKeys = Integer.MAX_VALUE;
+  private double typeNoise;
+
+  SyntheticCorpus(long seed) {
+    this.seed = seed;
+  }
+
+  /** Number of fields in each object */
+  SyntheticCorpus width(int width) {
+    this.width = width;
+    return this;
+  }
+
+  /** Number of fields in each nested object, if different from the width */
+  SyntheticCorpus nestedWidth(int nestedWidth) {
+    this.nestedWidth = nestedWidth;
+    return this;
+  }
+
+  /** Levels of nested objects, where 1 is a flat document */
+  SyntheticCorpus depth(int depth) {
+    this.depth = depth;
+    return this;
+  }
+
+  /** Number of elements in each array value */
+  SyntheticCorpus arrayLength(int arrayLength) {
+    this.arrayLength = arrayLength;
+    return this;
+  }
+
+  /** Number of distinct keys the fields of an object are drawn from */
+  SyntheticCorpus keyCardinality(int keyCardinality) {
+    this.keyCardinality = keyCardinality;
+    return this;
+  }
+
+  /**
+   * Number of keys, in the order k4, k5, k10, k11 and so on, that hold objects or arrays. With 1,
+   * only k4 holds an object, so each document is a chain of depth objects.
+   */
+  SyntheticCorpus nestedKeys(int nestedKeys) {
+    this.nestedKeys = nestedKeys;
+    return this;
+  }
+
+  /** Probability that a scalar value is replaced with one of another kind */
+  SyntheticCorpus typeNoise(double typeNoise) {
+    this.typeNoise = typeNoise;
+    return this;
+  }
+
+  /** Returns the document with the specified index; the same index always gives the same text */
+  String document(long index) {
+    StringBuilder json = new StringBuilder();
+    appendObject(json, new Random(seed * 31 + index), 1);
+    return json.toString();
+  }
+
+  /** Returns an object whose "items" array holds the documents 0 to count - 1 */
+  String itemsDocument(int count) {
+    StringBuilder json = new StringBuilder("{\"items\":[");
+    for (int i = 0; i < count; ++i) {
+      if (i > 0) json.append(',');
+      appendObject(json, new Random(seed * 31 + i), 1);
+    }
+    return json.append("]}").toString();
+  }
+
+  JsonSource source(long index) {
+    return () -> new StringReader(document(index));
+  }
+
+  /**
+   * Returns a JSON Lines stream of documents 0, 1, 2 and so on, ending with the first document
+   * that brings the length of the stream to at least minChars. Documents are generated as they
+   * are read, so the stream may be much larger than the heap.
+   */
+  Reader openJsonLines(long minChars) {
+    return new Reader() {
+      private long index;
+      private long written;
+      private String line = "";
+      private int position;
+
+      @Override
+      public int read(char[] buffer, int offset, int length) {
+        if (position == line.length()) {
+          if (written >= minChars) return -1;
+          line = document(index++) + "\n";
+          position = 0;
+          written += line.length();
+        }
+        int count = Math.min(length, line.length() - position);
+        line.getChars(position, position + count, buffer, offset);
+        position += count;
+        return count;
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  private void appendObject(StringBuilder json, Random random, int level) {
+    json.append('{');
+    int width = level == 1 || nestedWidth < 0 ? this.width : nestedWidth;
+    // picks width distinct keys by walking the pool from a random start with a stride that is
+    // coprime to its size
+    int cardinality = Math.max(keyCardinality, width);
+    int start = random.nextInt(cardinality);
+    int stride = cardinality == width ? 1 : coprimeStride(random, cardinality);
+    for (int i = 0; i < width; ++i) {
+      if (i > 0) json.append(',');
+      int key = (int) ((start + (long) i * stride) % cardinality);
+      json.append("\"k").append(key).append("\":");
+      appendValue(json, random, kind(key), level);
+    }
+    json.append('}');
+  }
+
+  private int kind(int key) {
+    int kind = key % KINDS;
+    boolean nested = kind >= 4;
+    return nested && (key / KINDS) * 2 + kind - 4 >= nestedKeys ? 0 : kind;
+  }
+
+  private static int coprimeStride(Random random, int cardinality) {
+    while (true) {
+      int stride = 1 + random.nextInt(cardinality - 1);
+      if (gcd(stride, cardinality) == 1) return stride;
+    }
+  }
+
+  private static int gcd(int a, int b) {
+    return b == 0 ? a : gcd(b, a % b);
+  }
+
+  private void appendValue(StringBuilder json, Random random, int kind, int level) {
+    boolean nested = kind >= 4;
+    if (nested && level >= depth) kind = 0;
+    if (!nested && typeNoise > 0 && random.nextDouble() < typeNoise) kind = random.nextInt(4);
+    switch (kind) {
+    case 0:
+      json.append(random.nextInt(1000000));
+      break;
+    case 1:
+      json.append(random.nextInt(1000000) / 100.0 + 0.5);
+      break;
+    case 2:
+      json.append("\"s").append(random.nextInt(1000)).append('"');
+      break;
+    case 3:
+      json.append(random.nextBoolean());
+      break;
+    case 4:
+      appendObject(json, random, level + 1);
+      break;
+    default:
+      json.append('[');
+      for (int i = 0; i < arrayLength; ++i) {
+        if (i > 0) json.append(',');
+        appendObject(json, random, level + 1);
+      }
+      json.append(']');
+    }
+  }
+}